@@ -17,7 +17,9 @@
 package com.google.common.base;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
@@ -191,6 +193,45 @@ public final class Splitter {
     });
   }
 
+  /**
+   * Returns a splitter that considers any occurrence of the literals of
+   * {@code separatorMatcher} to be a separator; where occurrences overlap,
+   * the leftmost-longest one is the separator. For example, {@code
+   * Splitter.on(LiteralMatcher.of("\r\n", "\n", "\r")).split(entireFile)}
+   * splits a string into lines whatever line terminators it uses. However
+   * many literals there are, the input is read in a single pass.
+   *
+   * @param separatorMatcher the literals recognized as separators
+   * @return a splitter, with default settings, that uses these literals
+   * @since 12.0
+   */
+  @Beta
+  public static Splitter on(final LiteralMatcher separatorMatcher) {
+    checkNotNull(separatorMatcher);
+
+    return new Splitter(new Strategy() {
+      @Override public SplittingIterator iterator(
+          Splitter splitter, CharSequence toSplit) {
+        return new SplittingIterator(splitter, toSplit) {
+          int separatorEnd;
+
+          @Override public int separatorStart(int start) {
+            long match = separatorMatcher.find(toSplit, start);
+            if (match < 0) {
+              return -1;
+            }
+            separatorEnd = LiteralMatcher.matchEnd(match);
+            return LiteralMatcher.matchStart(match);
+          }
+
+          @Override public int separatorEnd(int separatorPosition) {
+            return separatorEnd;
+          }
+        };
+      }
+    });
+  }
+
   /**
    * Returns a splitter that divides strings into pieces of the given length.
    * For example, {@code Splitter.fixedLength(2).split("abcde")} returns an
@@ -323,6 +364,152 @@ public final class Splitter {
     return strategy.iterator(this, sequence);
   }
 
+  /**
+   * Splits {@code sequence} and reports the bounds of each component, in
+   * order, to {@code handler}, without creating any strings. The components
+   * are those that {@link #split(CharSequence)} would return, after trimming,
+   * omission of empty strings and the limit are applied; each is {@code
+   * sequence.subSequence(start, end)}.
+   *
+   * @param sequence the sequence of characters to split
+   * @param handler the handler receiving the bounds of each component
+   * @return the number of components reported, including the one for which
+   *     the handler returned false, if any
+   * @since 12.0
+   */
+  @Beta
+  public int split(CharSequence sequence, ComponentHandler handler) {
+    checkNotNull(sequence);
+    checkNotNull(handler);
+    SplittingIterator iterator = strategy.iterator(this, sequence);
+    int count = 0;
+    while (iterator.advance()) {
+      count++;
+      if (!handler.handle(sequence, iterator.componentStart,
+          iterator.componentEnd)) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Splits {@code sequence} and stores the bounds of the components in
+   * {@code bounds}, without creating any strings: the start (inclusive) and
+   * end (exclusive) indexes in {@code sequence} of component {@code i} are
+   * stored at indexes {@code 2 * i} and {@code 2 * i + 1}. The components are
+   * those that {@link #split(CharSequence)} would return.
+   *
+   * <p>If there are more than {@code bounds.length / 2} components, only the
+   * bounds of the first ones are stored, but all are counted. Reusing a
+   * single array, sized for the expected number of fields, makes splitting
+   * delimited records free of allocation proportional to their size.
+   *
+   * @param sequence the sequence of characters to split
+   * @param bounds the array receiving the bounds of the components
+   * @return the number of components, which is greater than {@code
+   *     bounds.length / 2} if some could not be stored
+   * @since 12.0
+   */
+  @Beta
+  public int split(CharSequence sequence, int[] bounds) {
+    checkNotNull(sequence);
+    checkNotNull(bounds);
+    SplittingIterator iterator = strategy.iterator(this, sequence);
+    int count = 0;
+    while (iterator.advance()) {
+      int index = 2 * count;
+      if (index + 1 < bounds.length) {
+        bounds[index] = iterator.componentStart;
+        bounds[index + 1] = iterator.componentEnd;
+      }
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Splits {@code sequence} into components as {@link #split(CharSequence)}
+   * does, but returns them as views of {@code sequence} rather than strings.
+   * Each iterator returns <i>the same</i> {@link CharSequence} instance for
+   * every component, updated to view the current component; it is only valid
+   * until the next call to {@link Iterator#next}, and must be copied, for
+   * example with {@code toString()}, to be kept. The sequence must not be
+   * modified while it is being split.
+   *
+   * @param sequence the sequence of characters to split
+   * @return an iteration over reused views of the components
+   * @since 12.0
+   */
+  @Beta
+  public Iterable<CharSequence> splitReusingViews(
+      final CharSequence sequence) {
+    checkNotNull(sequence);
+
+    return new Iterable<CharSequence>() {
+      @Override public Iterator<CharSequence> iterator() {
+        final SplittingIterator components = strategy.iterator(
+            Splitter.this, sequence);
+        final ComponentView view = new ComponentView(sequence);
+        return new AbstractIterator<CharSequence>() {
+          @Override protected CharSequence computeNext() {
+            if (!components.advance()) {
+              return endOfData();
+            }
+            view.start = components.componentStart;
+            view.end = components.componentEnd;
+            return view;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Receives the bounds of the components found by {@link
+   * Splitter#split(CharSequence, ComponentHandler)}.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public interface ComponentHandler {
+    /**
+     * Handles the component {@code sequence.subSequence(start, end)}.
+     *
+     * @return true to continue splitting, false to stop
+     */
+    boolean handle(CharSequence sequence, int start, int end);
+  }
+
+  /** A mutable view of a range of a character sequence. */
+  private static final class ComponentView implements CharSequence {
+    final CharSequence sequence;
+    int start;
+    int end;
+
+    ComponentView(CharSequence sequence) {
+      this.sequence = sequence;
+    }
+
+    @Override public int length() {
+      return end - start;
+    }
+
+    @Override public char charAt(int index) {
+      checkElementIndex(index, end - start);
+      return sequence.charAt(start + index);
+    }
+
+    @Override public CharSequence subSequence(int from, int to) {
+      checkPositionIndexes(from, to, end - start);
+      return sequence.subSequence(start + from, start + to);
+    }
+
+    @Override public String toString() {
+      return sequence.subSequence(start, end).toString();
+    }
+  }
+
   /**
    * Returns a {@code MapSplitter} which splits entries based on this splitter,
    * and splits entries into keys and values using the specified separator.
@@ -402,7 +589,7 @@ public final class Splitter {
   }
 
   private interface Strategy {
-    Iterator<String> iterator(Splitter splitter, CharSequence toSplit);
+    SplittingIterator iterator(Splitter splitter, CharSequence toSplit);
   }
 
   private abstract static class SplittingIterator
@@ -434,7 +621,23 @@ public final class Splitter {
       this.toSplit = toSplit;
     }
 
+    /** The bounds of the component found by the last call to advance(). */
+    int componentStart;
+    int componentEnd;
+
     @Override protected String computeNext() {
+      if (!advance()) {
+        return endOfData();
+      }
+      return toSplit.subSequence(componentStart, componentEnd).toString();
+    }
+
+    /**
+     * Finds the next component, stores its bounds in {@code componentStart}
+     * and {@code componentEnd}, and returns true; or returns false if there
+     * are no more components.
+     */
+    boolean advance() {
       while (offset != -1) {
         int start = offset;
         int end;
@@ -473,9 +676,11 @@ public final class Splitter {
           limit--;
         }
 
-        return toSplit.subSequence(start, end).toString();
+        componentStart = start;
+        componentEnd = end;
+        return true;
       }
-      return endOfData();
+      return false;
     }
   }
 }
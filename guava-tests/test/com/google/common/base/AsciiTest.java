@@ -49,6 +49,25 @@ public class AsciiTest extends TestCase {
     assertEquals(IGNORED, Ascii.toUpperCase(IGNORED));
   }
 
+  public void testToCase_unchangedInputReturnedItself() {
+    assertSame(LOWER, Ascii.toLowerCase(LOWER));
+    assertSame(UPPER, Ascii.toUpperCase(UPPER));
+    assertSame(IGNORED, Ascii.toLowerCase(IGNORED));
+  }
+
+  public void testToCase_charArray() {
+    char[] chars = "aBcD".toCharArray();
+    Ascii.toUpperCase(chars, 0, 3);
+    assertEquals("ABCD", new String(chars));
+    Ascii.toLowerCase(chars, 1, 4);
+    assertEquals("Abcd", new String(chars));
+    try {
+      Ascii.toLowerCase(chars, 2, 5);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
   public void testCharsIgnored() {
     for (char c : IGNORED.toCharArray()) {
       String str = String.valueOf(c);
@@ -186,4 +186,75 @@ public class CaseFormatTest extends TestCase {
     assertEquals("FOO", UPPER_UNDERSCORE.to(UPPER_UNDERSCORE, "FOO"));
     assertEquals("FOO_BAR", UPPER_UNDERSCORE.to(UPPER_UNDERSCORE, "FOO_BAR"));
   }
+
+  public void testUnchangedInputReturnedItself() {
+    String camel = "FooBar";
+    assertSame(camel, LOWER_CAMEL.to(UPPER_CAMEL, camel));
+    String word = "foo";
+    assertSame(word, LOWER_HYPHEN.to(LOWER_CAMEL, word));
+    assertSame(word, LOWER_UNDERSCORE.to(LOWER_HYPHEN, word));
+    String constant = "FOO_BAR";
+    assertSame(constant, LOWER_UNDERSCORE.to(UPPER_UNDERSCORE, constant));
+    String mixed = "Foo_Bar";
+    assertEquals("FOO_BAR", LOWER_UNDERSCORE.to(UPPER_UNDERSCORE, mixed));
+  }
+
+  public void testAppendToStringBuilder() {
+    StringBuilder builder = new StringBuilder("x.");
+    assertSame(builder, UPPER_CAMEL.appendTo(LOWER_UNDERSCORE, "FooBarBaz", builder));
+    assertEquals("x.foo_bar_baz", builder.toString());
+    LOWER_HYPHEN.appendTo(LOWER_HYPHEN, "-a", builder);
+    assertEquals("x.foo_bar_baz-a", builder.toString());
+  }
+
+  public void testAppendToCharArray() {
+    char[] chars = new char[12];
+    assertEquals(9, LOWER_CAMEL.appendTo(UPPER_UNDERSCORE, "fooBar", chars, 2));
+    assertEquals("FOO_BAR", new String(chars, 2, 7));
+    assertEquals(3, LOWER_CAMEL.appendTo(LOWER_CAMEL, "abc", chars, 0));
+    assertEquals("abc", new String(chars, 0, 3));
+  }
+
+  public void testAppendToCharArray_tooSmall() {
+    char[] chars = new char[4];
+    try {
+      LOWER_CAMEL.appendTo(LOWER_HYPHEN, "fooBar", chars, 0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    assertEquals("foo-", new String(chars));
+    try {
+      LOWER_CAMEL.appendTo(LOWER_HYPHEN, "", chars, 5);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testSinksAgreeWithTo() {
+    String[] inputs = {"", "a", "fooBar", "FooBar", "foo_bar", "FOO-BAR", "-x_", "aBCd", "A"};
+    for (CaseFormat from : CaseFormat.values()) {
+      for (CaseFormat to : CaseFormat.values()) {
+        for (String input : inputs) {
+          String expected = from.to(to, input);
+          assertEquals(expected, from.appendTo(to, input, new StringBuilder()).toString());
+          char[] chars = new char[input.length() * 2];
+          assertEquals(expected, new String(chars, 0, from.appendTo(to, input, chars, 0)));
+        }
+      }
+    }
+  }
+
+  public void testCachingConverter() {
+    Function<String, String> converter = LOWER_CAMEL.cachingConverterTo(LOWER_UNDERSCORE, 3);
+    String first = converter.apply("fooBar");
+    assertEquals("foo_bar", first);
+    assertSame(first, converter.apply("fooBar"));
+    assertEquals("baz", converter.apply("baz"));
+    assertEquals("LOWER_CAMEL.cachingConverterTo(LOWER_UNDERSCORE, 4)", converter.toString());
+    try {
+      LOWER_CAMEL.cachingConverterTo(LOWER_UNDERSCORE, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
 }
@@ -604,4 +604,43 @@ public class CharMatcherTest extends TestCase {
     assertSame(CharMatcher.NONE, CharMatcher.NONE.precomputed());
     assertSame(CharMatcher.ANY, CharMatcher.ANY.precomputed());
   }
+
+  @GwtIncompatible("precomputed() returns the matcher itself in GWT")
+  public void testPrecomputedRepresentations() {
+    assertSame(CharMatcher.NONE, anyOf("ab").and(anyOf("cd")).precomputed());
+    assertSame(CharMatcher.ANY, anyOf("ab").or(noneOf("ab")).precomputed());
+    assertEquals(is('q').getClass(),
+        anyOf("qq").or(anyOf("q")).precomputed().getClass());
+
+    CharMatcher[] matchers = {
+        anyOf("abc"),
+        anyOf("\u00e9\u4e2d-"),
+        noneOf("\u00e9\u4e2d-"),
+        CharMatcher.JAVA_DIGIT,
+        CharMatcher.JAVA_LETTER.and(CharMatcher.ASCII),
+        CharMatcher.JAVA_LETTER,
+        CharMatcher.WHITESPACE.negate(),
+    };
+    String text = "  ab\u00e9c123 -\u4e2d xyz\uffff\u0000\u2029  ";
+    for (CharMatcher matcher : matchers) {
+      CharMatcher precomputed = matcher.precomputed();
+      for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+        assertEquals(matcher.matches((char) c), precomputed.matches((char) c));
+      }
+      assertEquals(matcher.indexIn(text), precomputed.indexIn(text));
+      assertEquals(matcher.indexIn(text, 5), precomputed.indexIn(text, 5));
+      assertEquals(matcher.lastIndexIn(text), precomputed.lastIndexIn(text));
+      assertEquals(matcher.countIn(text), precomputed.countIn(text));
+      assertEquals(matcher.matchesAllOf(text), precomputed.matchesAllOf(text));
+      assertEquals(matcher.matchesNoneOf(text), precomputed.matchesNoneOf(text));
+      assertEquals(matcher.removeFrom(text), precomputed.removeFrom(text));
+      assertEquals(matcher.retainFrom(text), precomputed.retainFrom(text));
+      assertEquals(matcher.trimFrom(text), precomputed.trimFrom(text));
+      assertEquals(matcher.collapseFrom(text, '.'), precomputed.collapseFrom(text, '.'));
+      assertSame(precomputed, precomputed.precomputed());
+      // Combining a precomputed matcher with others preserves its characters.
+      assertEquals(matcher.or(is('\u1234')).precomputed().countIn(text + '\u1234'),
+          precomputed.or(is('\u1234')).precomputed().countIn(text + '\u1234'));
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.common.base;
 
 import com.google.common.base.internal.Finalizer;
+import com.google.common.testing.GcFinalization;
 
 import junit.framework.TestCase;
 
@@ -55,6 +56,56 @@ public class FinalizableReferenceQueueTest extends TestCase {
     fail();
   }
 
+  public void testSharedQueue() {
+    assertSame(FinalizableReferenceQueue.sharedQueue(), FinalizableReferenceQueue.sharedQueue());
+    final MockReference reference = new MockReference(FinalizableReferenceQueue.sharedQueue());
+    GcFinalization.awaitDone(new GcFinalization.FinalizationPredicate() {
+      @Override public boolean isDone() {
+        return reference.finalizeReferentCalled;
+      }
+    });
+    try {
+      FinalizableReferenceQueue.sharedQueue().cleanUp(1);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(-1, FinalizableReferenceQueue.sharedQueue().backlog());
+  }
+
+  public void testPolledQueue() {
+    frq = FinalizableReferenceQueue.newPolledQueue();
+    final MockReference[] references = new MockReference[3];
+    for (int i = 0; i < references.length; i++) {
+      references[i] = new MockReference(frq);
+    }
+    assertEquals(0, frq.cleanUp(10));
+    assertEquals(0, frq.backlog());
+    GcFinalization.awaitDone(new GcFinalization.FinalizationPredicate() {
+      @Override public boolean isDone() {
+        return frq.backlog() == references.length;
+      }
+    });
+    // Nothing is finalized until the owner cleans up.
+    assertFalse(references[0].finalizeReferentCalled);
+
+    assertEquals(2, frq.cleanUp(2));
+    assertEquals(1, frq.backlog());
+    assertEquals(1, frq.cleanUp(2));
+    assertEquals(0, frq.backlog());
+    assertEquals(0, frq.cleanUp(2));
+    for (MockReference reference : references) {
+      assertTrue(reference.finalizeReferentCalled);
+    }
+  }
+
+  public void testCleanUp_negative() {
+    try {
+      FinalizableReferenceQueue.newPolledQueue().cleanUp(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   static class MockReference extends FinalizableWeakReference<Object> {
 
     volatile boolean finalizeReferentCalled;
@@ -30,6 +30,8 @@ import com.google.common.testing.NullPointerTester;
 import junit.framework.TestCase;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
@@ -142,6 +144,9 @@ public class JoinerTest extends TestCase {
     assertSame(sb2, joiner.appendTo(sb2, array));
     assertEquals(0, sb2.length());
 
+    assertEquals(0, joiner.appendTo(new char[0], 0, set));
+    assertEquals(0, joiner.appendTo(new char[0], 0, array));
+
     try {
       joiner.appendTo(NASTY_APPENDABLE, set);
     } catch (IOException e) {
@@ -195,6 +200,12 @@ public class JoinerTest extends TestCase {
     joiner.appendTo(sb2, partsArray);
     assertEquals("x" + expected, sb2.toString());
 
+    char[] chars = new char[expected.length() + 2];
+    assertEquals(expected.length() + 1, joiner.appendTo(chars, 1, parts));
+    assertEquals(expected, new String(chars, 1, expected.length()));
+    assertEquals(expected.length(), joiner.appendTo(chars, 0, partsArray));
+    assertEquals(expected, new String(chars, 0, expected.length()));
+
     int num = partsArray.length - 2;
     if (num >= 0) {
       Object[] rest = new Integer[num];
@@ -395,10 +406,65 @@ public class JoinerTest extends TestCase {
         new DontStringMeBro(), null, new DontStringMeBro()));
   }
 
+  public void testJoin_charSequences() {
+    StringBuilder builder = new StringBuilder("b");
+    assertEquals("a, b, c", Joiner.on(", ").join(ImmutableSet.of("a", builder, "c")));
+    assertEquals("a", Joiner.on(", ").join(Arrays.asList("a")));
+    assertEquals("", Joiner.on(", ").skipNulls().join(Arrays.asList(null, null)));
+  }
+
+  public void testAppendToCharArray() {
+    char[] chars = "..........".toCharArray();
+    assertEquals(6, J.appendTo(chars, 2, ImmutableSet.of("ab", 7)));
+    assertEquals("..ab-7....", new String(chars));
+  }
+
+  public void testAppendToCharArray_tooSmall() {
+    char[] chars = new char[4];
+    try {
+      J.appendTo(chars, 0, ITERABLE_123);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    assertEquals("1-2-", new String(chars));
+    try {
+      J.appendTo(chars, 5, ITERABLE_);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  @GwtIncompatible("ByteBuffer")
+  public void testAppendToByteBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(32);
+    buffer.put((byte) 'x');
+    assertSame(buffer, J.skipNulls().appendTo(buffer, Arrays.asList("caf\u00e9", null, 12)));
+    assertEquals(9, buffer.position());
+    buffer.flip();
+    assertEquals("xcaf\u00e9-12", Charsets.UTF_8.decode(buffer).toString());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(16);
+    J.appendTo(direct, new Object[] {"a", "\u20ac"});
+    assertEquals(5, direct.position());
+  }
+
+  @GwtIncompatible("ByteBuffer")
+  public void testAppendToByteBuffer_overflow() {
+    ByteBuffer buffer = ByteBuffer.allocate(3);
+    try {
+      J.appendTo(buffer, ITERABLE_123);
+      fail();
+    } catch (BufferOverflowException expected) {
+    }
+    assertEquals(3, buffer.position());
+  }
+
   @GwtIncompatible("NullPointerTester")
   public void testNullPointers() throws Exception {
     NullPointerTester tester = new NullPointerTester();
     tester.setDefault(StringBuilder.class, new StringBuilder());
+    tester.setDefault(char[].class, new char[0]);
+    tester.setDefault(ByteBuffer.class, ByteBuffer.allocate(0));
     // This is necessary because of the generics hackery we have to temporarily support parameters
     // which implement both Iterator and Iterable.
     tester.setDefault(Object.class, Iterators.emptyIterator());
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit test for {@link LiteralMatcher}.
+ */
+@GwtCompatible(emulated = true)
+public class LiteralMatcherTest extends TestCase {
+
+  @GwtIncompatible("NullPointerTester")
+  public void testNullPointers() throws Exception {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(LiteralMatcher.class);
+    tester.testAllPublicInstanceMethods(LiteralMatcher.of("a", "bc"));
+  }
+
+  public void testInvalidLiterals() {
+    try {
+      LiteralMatcher.of();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      LiteralMatcher.of("a", "");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testLiterals() {
+    assertEquals(ImmutableList.of("b", "a"), LiteralMatcher.of("b", "a", "b").literals());
+  }
+
+  public void testFoundIn() {
+    LiteralMatcher matcher = LiteralMatcher.of("he", "she", "his", "hers");
+    assertTrue(matcher.foundIn("ushers"));
+    assertTrue(matcher.foundIn("his"));
+    assertFalse(matcher.foundIn("hi s"));
+    assertFalse(matcher.foundIn(""));
+  }
+
+  public void testFindAllIn() {
+    LiteralMatcher matcher = LiteralMatcher.of("he", "she", "his", "hers");
+    assertEquals("[she@1, he@2, hers@2]", matcher.findAllIn("ushers").toString());
+    List<LiteralMatcher.Occurrence> occurrences = matcher.findAllIn("ahishe");
+    assertEquals("[his@1, she@3, he@4]", occurrences.toString());
+    assertEquals(1, occurrences.get(0).start());
+    assertEquals(4, occurrences.get(0).end());
+    assertEquals("his", occurrences.get(0).literal());
+    assertTrue(matcher.findAllIn("xyz").isEmpty());
+  }
+
+  public void testFindAllIn_overlappingRepeats() {
+    assertEquals("[aa@0, aa@1, aa@2]", LiteralMatcher.of("aa").findAllIn("aaaa").toString());
+  }
+
+  public void testIndexIn_leftmostLongest() {
+    LiteralMatcher matcher = LiteralMatcher.of("bc", "abcd", "cde");
+    assertEquals(0, matcher.indexIn("abcde"));
+    assertEquals(1, matcher.indexIn("abce"));
+    assertEquals(1, matcher.indexIn("abcde", 1));
+    assertEquals(2, matcher.indexIn("abcde", 2));
+    assertEquals(-1, matcher.indexIn("abcde", 3));
+    assertEquals(-1, matcher.indexIn("abcde", 5));
+    try {
+      matcher.indexIn("abc", 4);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testReplaceFrom() {
+    LiteralMatcher matcher = LiteralMatcher.of("cat", "dog", "catalog");
+    assertEquals("hot *, *, *ue", matcher.replaceFrom("hot dog, cat, catalogue", "*"));
+    assertEquals("nothing", matcher.replaceFrom("nothing", "*"));
+    assertEquals("**", LiteralMatcher.of("ab", "b").replaceFrom("abb", "*"));
+  }
+
+  public void testReplaceFrom_function() {
+    LiteralMatcher matcher = LiteralMatcher.of("one", "two");
+    Function<String, String> upperCase = new Function<String, String>() {
+      @Override public String apply(String literal) {
+        return Ascii.toUpperCase(literal);
+      }
+    };
+    assertEquals("ONE, TWO, three", matcher.replaceFrom("one, two, three", upperCase));
+  }
+
+  public void testCountIn() {
+    LiteralMatcher matcher = LiteralMatcher.of("aa", "b");
+    assertEquals(3, matcher.countIn("aaabaa"));
+    assertEquals(0, matcher.countIn("ccc"));
+  }
+
+  public void testAgainstNaiveSearch() {
+    Random random = new Random(0);
+    for (int round = 0; round < 200; round++) {
+      String[] literals = new String[1 + random.nextInt(6)];
+      for (int i = 0; i < literals.length; i++) {
+        literals[i] = randomString(random, 1 + random.nextInt(4));
+      }
+      LiteralMatcher matcher = LiteralMatcher.of(literals);
+      String text = randomString(random, random.nextInt(30));
+      for (int from = 0; from <= text.length(); from++) {
+        assertEquals(naiveIndexIn(literals, text, from), matcher.indexIn(text, from));
+      }
+      int occurrences = 0;
+      for (String literal : matcher.literals()) {
+        for (int i = text.indexOf(literal); i >= 0; i = text.indexOf(literal, i + 1)) {
+          occurrences++;
+        }
+      }
+      assertEquals(occurrences, matcher.findAllIn(text).size());
+      assertEquals(occurrences > 0, matcher.foundIn(text));
+    }
+  }
+
+  private static int naiveIndexIn(String[] literals, String text, int from) {
+    int best = -1;
+    for (String literal : literals) {
+      int index = text.indexOf(literal, from);
+      if (index >= 0 && (best < 0 || index < best)) {
+        best = index;
+      }
+    }
+    return best;
+  }
+
+  private static String randomString(Random random, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(3));
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.Lists;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Unit test for {@link RefreshingSupplier}.
+ */
+public class RefreshingSupplierTest extends TestCase {
+  private final FakeTicker ticker = new FakeTicker();
+  private final QueueingExecutor executor = new QueueingExecutor();
+  private final CountingSupplier delegate = new CountingSupplier();
+  private final RefreshingSupplier<Integer> supplier =
+      new RefreshingSupplier<Integer>(delegate, 10, 20, SECONDS, executor, ticker);
+
+  public void testFirstGetLoads() {
+    assertEquals(-1, supplier.age(SECONDS));
+    assertEquals(1, (int) supplier.get());
+    assertEquals(1, (int) supplier.get());
+    assertEquals(1, delegate.calls);
+    assertEquals(1, supplier.blockingLoadCount());
+    assertEquals(0, supplier.age(SECONDS));
+    assertTrue(executor.tasks.isEmpty());
+  }
+
+  public void testRefreshAhead() {
+    supplier.get();
+    ticker.advance(10, SECONDS);
+    assertEquals(1, (int) supplier.get());
+    assertEquals(1, (int) supplier.get());
+    assertEquals(2, supplier.staleReadCount());
+    // Single flight: both stale reads submitted one refresh.
+    assertEquals(1, executor.tasks.size());
+    assertEquals(1, delegate.calls);
+
+    executor.runAll();
+    assertEquals(2, (int) supplier.get());
+    assertEquals(1, supplier.refreshCount());
+    assertEquals(1, supplier.blockingLoadCount());
+    assertEquals(0, supplier.age(SECONDS));
+
+    ticker.advance(10, SECONDS);
+    supplier.get();
+    assertEquals(1, executor.tasks.size());
+  }
+
+  public void testRefreshFailureKeepsValue() {
+    supplier.get();
+    ticker.advance(15, SECONDS);
+    delegate.failure = new IllegalStateException("down");
+    supplier.get();
+    executor.runAll();
+    assertEquals(1, (int) supplier.get());
+    assertEquals(1, supplier.refreshFailureCount());
+    assertSame(delegate.failure, supplier.lastRefreshFailure());
+    assertEquals(15, supplier.age(SECONDS));
+
+    // The failed refresh is retried by the next stale read.
+    delegate.failure = null;
+    assertEquals(1, executor.tasks.size());
+    executor.runAll();
+    assertEquals(3, (int) supplier.get());
+  }
+
+  public void testExpiredValueLoadsOnCallerThread() {
+    supplier.get();
+    ticker.advance(20, SECONDS);
+    assertEquals(2, (int) supplier.get());
+    assertEquals(2, supplier.blockingLoadCount());
+    assertEquals(0, supplier.staleReadCount());
+    assertTrue(executor.tasks.isEmpty());
+  }
+
+  public void testSlowRefreshDoesNotOverwriteNewerValue() {
+    supplier.get();
+    ticker.advance(10, SECONDS);
+    supplier.get();
+    // While the refresh is computing its value, the old one expires, and a
+    // read loads a newer value on the caller thread.
+    delegate.whileComputing = new Runnable() {
+      @Override public void run() {
+        delegate.whileComputing = null;
+        ticker.advance(10, SECONDS);
+        assertEquals(3, (int) supplier.get());
+      }
+    };
+    executor.runAll();
+    assertEquals(3, (int) supplier.get());
+    assertEquals(0, supplier.refreshCount());
+    assertEquals(2, supplier.blockingLoadCount());
+  }
+
+  public void testRejectedRefresh() {
+    supplier.get();
+    ticker.advance(10, SECONDS);
+    executor.reject = true;
+    assertEquals(1, (int) supplier.get());
+    assertTrue(supplier.lastRefreshFailure() instanceof RejectedExecutionException);
+    executor.reject = false;
+    supplier.get();
+    executor.runAll();
+    assertEquals(2, (int) supplier.get());
+    assertEquals(1, supplier.refreshFailureCount());
+  }
+
+  public void testExplicitRefresh() {
+    supplier.get();
+    supplier.refresh();
+    supplier.refresh();
+    assertEquals(1, executor.tasks.size());
+    executor.runAll();
+    assertEquals(2, (int) supplier.get());
+  }
+
+  public void testInvalidIntervals() {
+    try {
+      Suppliers.memoizeWithRefresh(delegate, 0, 1, SECONDS, executor);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      Suppliers.memoizeWithRefresh(delegate, 2, 2, SECONDS, executor);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() throws Exception {
+    NullPointerTester tester = new NullPointerTester();
+    tester.setDefault(Executor.class, executor);
+    tester.testAllPublicInstanceMethods(supplier);
+  }
+
+  private static class CountingSupplier implements Supplier<Integer> {
+    int calls;
+    RuntimeException failure;
+    Runnable whileComputing;
+
+    @Override public Integer get() {
+      int call = ++calls;
+      if (whileComputing != null) {
+        whileComputing.run();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return call;
+    }
+  }
+
+  private static class QueueingExecutor implements Executor {
+    final List<Runnable> tasks = Lists.newArrayList();
+    boolean reject;
+
+    @Override public void execute(Runnable task) {
+      if (reject) {
+        throw new RejectedExecutionException();
+      }
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.testing.NullPointerTester;
 
 import junit.framework.TestCase;
@@ -608,9 +609,112 @@ public class SplitterTest extends TestCase {
     }
   }
 
+  public void testLiteralMatcherSplit() {
+    Splitter splitter = Splitter.on(LiteralMatcher.of("\r\n", "\n", "\r"));
+    ASSERT.that(splitter.split("a\r\nb\nc\r\rd")).hasContentsInOrder("a", "b", "c", "", "d");
+    ASSERT.that(splitter.split("no separator")).hasContentsInOrder("no separator");
+  }
+
+  public void testLiteralMatcherSplit_trimOmitLimit() {
+    Splitter splitter = Splitter.on(LiteralMatcher.of(" and ", " or ", ","))
+        .trimResults().omitEmptyStrings().limit(3);
+    ASSERT.that(splitter.split("x and y,, z or w and v"))
+        .hasContentsInOrder("x", "y", "z or w and v");
+  }
+
+  public void testSplitToBounds() {
+    int[] bounds = new int[6];
+    assertEquals(3, COMMA_SPLITTER.split("a,,bc", bounds));
+    assertEquals(0, bounds[0]);
+    assertEquals(1, bounds[1]);
+    assertEquals(2, bounds[2]);
+    assertEquals(2, bounds[3]);
+    assertEquals(3, bounds[4]);
+    assertEquals(5, bounds[5]);
+  }
+
+  public void testSplitToBounds_trimOmitLimit() {
+    String text = " a , , b ,c ";
+    Splitter splitter = COMMA_SPLITTER.trimResults().omitEmptyStrings().limit(2);
+    int[] bounds = new int[4];
+    assertEquals(2, splitter.split(text, bounds));
+    assertEquals("a", text.substring(bounds[0], bounds[1]));
+    assertEquals("b ,c", text.substring(bounds[2], bounds[3]));
+  }
+
+  public void testSplitToBounds_tooSmall() {
+    int[] bounds = {-1, -1, -1};
+    assertEquals(3, COMMA_SPLITTER.split("a,b,c", bounds));
+    assertEquals(0, bounds[0]);
+    assertEquals(1, bounds[1]);
+    assertEquals(-1, bounds[2]);
+  }
+
+  public void testSplitToHandler() {
+    final StringBuilder seen = new StringBuilder();
+    Splitter splitter = Splitter.on("::").omitEmptyStrings();
+    int count = splitter.split("a::::b::c", new Splitter.ComponentHandler() {
+      @Override public boolean handle(CharSequence sequence, int start, int end) {
+        seen.append(sequence.subSequence(start, end)).append('|');
+        return true;
+      }
+    });
+    assertEquals(3, count);
+    assertEquals("a|b|c|", seen.toString());
+  }
+
+  public void testSplitToHandler_stop() {
+    final StringBuilder seen = new StringBuilder();
+    int count = COMMA_SPLITTER.split("a,b,c", new Splitter.ComponentHandler() {
+      @Override public boolean handle(CharSequence sequence, int start, int end) {
+        seen.append(sequence.subSequence(start, end));
+        return seen.length() < 2;
+      }
+    });
+    assertEquals(2, count);
+    assertEquals("ab", seen.toString());
+  }
+
+  public void testSplitReusingViews() {
+    Iterator<CharSequence> views =
+        Splitter.on('.').trimResults().splitReusingViews("x. yz .").iterator();
+    CharSequence first = views.next();
+    assertEquals("x", first.toString());
+    assertEquals(1, first.length());
+    CharSequence second = views.next();
+    assertSame(first, second);
+    assertEquals(2, second.length());
+    assertEquals('z', second.charAt(1));
+    assertEquals("y", second.subSequence(0, 1).toString());
+    assertEquals("yz", second.toString());
+    assertEquals(0, views.next().length());
+    assertFalse(views.hasNext());
+    try {
+      second.charAt(0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testSplitReusingViews_matchesSplit() {
+    Splitter splitter = Splitter.on(CharMatcher.anyOf(";,")).omitEmptyStrings().trimResults();
+    String text = " a;b,,c ; ;d";
+    List<String> fromViews = Lists.newArrayList();
+    for (CharSequence view : splitter.splitReusingViews(text)) {
+      fromViews.add(view.toString());
+    }
+    assertEquals(ImmutableList.copyOf(splitter.split(text)), fromViews);
+  }
+
   @GwtIncompatible("NullPointerTester")
   public void testNullPointers() throws Exception {
     NullPointerTester tester = new NullPointerTester();
+    tester.setDefault(int[].class, new int[0]);
+    tester.setDefault(Splitter.ComponentHandler.class, new Splitter.ComponentHandler() {
+      @Override public boolean handle(CharSequence sequence, int start, int end) {
+        return true;
+      }
+    });
     tester.testAllPublicStaticMethods(Splitter.class);
     tester.testAllPublicInstanceMethods(Splitter.on(","));
     tester.testAllPublicInstanceMethods(Splitter.on(",").trimResults());
@@ -22,12 +22,14 @@ import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.Lists;
 import com.google.common.testing.NullPointerTester;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import junit.framework.TestCase;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -394,6 +396,7 @@ public class SuppliersTest extends TestCase {
   @GwtIncompatible("NullPointerTest")
   public void testNullPointers() throws Exception {
     NullPointerTester tester = new NullPointerTester();
+    tester.setDefault(Executor.class, MoreExecutors.sameThreadExecutor());
     tester.testAllPublicStaticMethods(Suppliers.class);
   }
 }
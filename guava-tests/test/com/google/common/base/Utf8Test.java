@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import junit.framework.TestCase;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit test for {@link Utf8}.
+ */
+public class Utf8Test extends TestCase {
+  private static final String[] SAMPLES = {
+    "",
+    "abc",
+    "\u00e9t\u00e9",
+    "\u4e2d\u6587",
+    "\ud83d\ude00 smile",
+    "lone \ud800 high",
+    "lone \udc00 low",
+    "trailing \ud800",
+    "\udc00\ud800 reversed",
+    "\u007f\u0080\u07ff\u0800\uffff",
+  };
+
+  public void testEncode_samples() throws UnsupportedEncodingException {
+    for (String sample : SAMPLES) {
+      assertEncodes(sample);
+    }
+  }
+
+  public void testEncode_random() throws UnsupportedEncodingException {
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      assertEncodes(randomString(random, random.nextInt(2000)));
+    }
+  }
+
+  public void testEncode_stringBuilder() throws UnsupportedEncodingException {
+    StringBuilder builder = new StringBuilder("\u00e9\ud83d\ude00");
+    assertTrue(Arrays.equals(jdkEncode(builder.toString()), Utf8.encode(builder)));
+  }
+
+  public void testEncode_arrayTooSmall() {
+    byte[] bytes = new byte[5];
+    try {
+      Utf8.encode("\u00e9\u00e9\u00e9", bytes, 0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      Utf8.encode("abc", bytes, 3);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      Utf8.encode("", bytes, 6);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    assertTrue(Arrays.equals(new byte[5], bytes));
+    assertEquals(5, Utf8.encode("\u00e9\u00e9a", bytes, 0));
+  }
+
+  public void testEncode_bufferTooSmall() {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.position(1);
+    try {
+      Utf8.encode("\u00e9\u00e9", buffer);
+      fail();
+    } catch (BufferOverflowException expected) {
+    }
+    assertEquals(1, buffer.position());
+    Utf8.encode("\u00e9a", buffer);
+    assertEquals(4, buffer.position());
+  }
+
+  public void testDecode_samples() throws UnsupportedEncodingException {
+    for (String sample : SAMPLES) {
+      byte[] bytes = jdkEncode(sample);
+      assertEquals(jdkDecode(bytes, 0, bytes.length), Utf8.decode(bytes, 0, bytes.length));
+    }
+  }
+
+  public void testDecode_randomWellFormed() throws UnsupportedEncodingException {
+    Random random = new Random(2);
+    for (int i = 0; i < 1000; i++) {
+      String string = randomString(random, random.nextInt(2000));
+      byte[] bytes = jdkEncode(string);
+      assertEquals(jdkDecode(bytes, 0, bytes.length), Utf8.decode(bytes, 0, bytes.length));
+    }
+  }
+
+  public void testDecode_randomBytes() throws UnsupportedEncodingException {
+    Random random = new Random(3);
+    for (int i = 0; i < 10000; i++) {
+      byte[] bytes = new byte[random.nextInt(10)];
+      random.nextBytes(bytes);
+      int offset = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+      int length = bytes.length - offset;
+      assertEquals(jdkDecode(bytes, offset, length), Utf8.decode(bytes, offset, length));
+    }
+  }
+
+  public void testDecode_malformed() throws UnsupportedEncodingException {
+    byte[][] malformed = {
+      {(byte) 0xC0, (byte) 0x80},
+      {(byte) 0xE0, (byte) 0x80, (byte) 0x80},
+      {(byte) 0xED, (byte) 0xA0, (byte) 0x80},
+      {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80},
+      {(byte) 0xF0, (byte) 0x9F, (byte) 0x98},
+      {'a', (byte) 0x80, 'b'},
+    };
+    for (byte[] bytes : malformed) {
+      assertEquals(jdkDecode(bytes, 0, bytes.length), Utf8.decode(bytes, 0, bytes.length));
+    }
+  }
+
+  public void testDecode_invalidRange() {
+    try {
+      Utf8.decode(new byte[3], 2, 2);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  private static void assertEncodes(String string) throws UnsupportedEncodingException {
+    byte[] expected = jdkEncode(string);
+    assertEquals(expected.length, Utf8.encodedLength(string));
+    assertTrue(Arrays.equals(expected, Utf8.encode(string)));
+
+    byte[] bytes = new byte[expected.length + 2];
+    assertEquals(expected.length + 1, Utf8.encode(string, bytes, 1));
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], bytes[i + 1]);
+    }
+
+    ByteBuffer heap = ByteBuffer.allocate(expected.length + 1);
+    heap.put((byte) 1);
+    Utf8.encode(string, heap.slice());
+    Utf8.encode(string, heap);
+    assertFalse(heap.hasRemaining());
+    heap.position(1);
+    assertEquals(ByteBuffer.wrap(expected), heap);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+    Utf8.encode(string, direct);
+    assertFalse(direct.hasRemaining());
+    direct.flip();
+    assertEquals(ByteBuffer.wrap(expected), direct);
+  }
+
+  private static String randomString(Random random, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      switch (random.nextInt(5)) {
+        case 0:
+        case 1:
+          builder.append((char) random.nextInt(0x80));
+          break;
+        case 2:
+          builder.append((char) random.nextInt(0x800));
+          break;
+        case 3:
+          builder.append((char) random.nextInt(0x10000));
+          break;
+        default:
+          builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+          break;
+      }
+    }
+    return builder.toString();
+  }
+
+  private static byte[] jdkEncode(String string) throws UnsupportedEncodingException {
+    return string.getBytes("UTF-8");
+  }
+
+  private static String jdkDecode(byte[] bytes, int offset, int length)
+      throws UnsupportedEncodingException {
+    return new String(bytes, offset, length, "UTF-8");
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.base.Charsets;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit test for {@link StringInterner}.
+ */
+public class StringInternerTest extends TestCase {
+
+  public void testIntern() {
+    StringInterner interner = StringInterner.create();
+    String canonical = "abc";
+    assertSame(canonical, interner.intern(canonical));
+    assertSame(canonical, interner.intern(new String("abc")));
+    assertSame(canonical, interner.intern(new StringBuilder("xabcx"), 1, 4));
+    assertSame(canonical, interner.internUtf8("_abc".getBytes(Charsets.US_ASCII), 1, 3));
+    assertSame(canonical, interner.intern("-abc-", 1, 4));
+    assertEquals(1, interner.size());
+    assertEquals(4, interner.hitCount());
+    assertEquals(1, interner.missCount());
+    assertEquals(0.8, interner.hitRate(), 1e-9);
+  }
+
+  public void testIntern_createsStringOnMiss() {
+    StringInterner interner = StringInterner.create();
+    StringBuilder buffer = new StringBuilder("hello world");
+    String hello = interner.intern(buffer, 0, 5);
+    assertEquals("hello", hello);
+    buffer.setCharAt(0, 'j');
+    assertEquals("hello", hello);
+    assertSame(hello, interner.intern("hello"));
+    assertEquals("", interner.intern(buffer, 3, 3));
+  }
+
+  public void testInternUtf8_nonAscii() {
+    StringInterner interner = StringInterner.create();
+    String accented = "caf\u00e9";
+    assertSame(accented, interner.intern(accented));
+    byte[] bytes = accented.getBytes(Charsets.UTF_8);
+    assertSame(accented, interner.internUtf8(bytes, 0, bytes.length));
+    assertEquals("\ufffd", interner.internUtf8(new byte[] {(byte) 0xff}, 0, 1));
+  }
+
+  public void testInvalidRanges() {
+    StringInterner interner = StringInterner.create();
+    try {
+      interner.intern("abc", 2, 4);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      interner.internUtf8(new byte[3], 1, 3);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      StringInterner.withMaximumSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testGrowth() {
+    StringInterner interner = StringInterner.create();
+    Map<String, String> canonicals = Maps.newHashMap();
+    for (int i = 0; i < 10000; i++) {
+      String s = Integer.toString(i);
+      canonicals.put(s, interner.intern(s));
+    }
+    assertEquals(10000, interner.size());
+    for (int i = 0; i < 10000; i++) {
+      String s = new String(Integer.toString(i));
+      assertSame(canonicals.get(s), interner.intern(s));
+    }
+    assertEquals(0, interner.evictionCount());
+  }
+
+  public void testBounded() {
+    StringInterner interner = StringInterner.withMaximumSize(100);
+    String hot = interner.intern("hot");
+    String last = null;
+    for (int i = 0; i < 1000; i++) {
+      // Looking "hot" up keeps it from being evicted.
+      assertSame(hot, interner.intern(new String("hot")));
+      last = interner.intern(Integer.toString(i));
+      assertTrue(interner.size() <= 100);
+    }
+    assertEquals(100, interner.size());
+    assertEquals(1000 + 1 - 100, interner.evictionCount());
+    assertSame(last, interner.intern(new String("999")));
+    String evicted = new String("0");
+    assertSame(evicted, interner.intern(evicted));
+  }
+
+  public void testBounded_growsUpToMaximumSize() {
+    StringInterner interner = StringInterner.withMaximumSize(50000);
+    String hot = interner.intern("hot");
+    for (int i = 0; i < 40000; i++) {
+      interner.intern(Integer.toString(i));
+      if (i % 1000 == 0) {
+        assertSame(hot, interner.intern(new String("hot")));
+      }
+    }
+    assertEquals(40001, interner.size());
+    assertEquals(0, interner.evictionCount());
+    assertSame(hot, interner.intern(new String("hot")));
+  }
+
+  public void testBounded_hugeMaximumSize() {
+    StringInterner interner =
+        StringInterner.withMaximumSize(Integer.MAX_VALUE);
+    String s = interner.intern(new String("a"));
+    assertSame(s, interner.intern(new String("a")));
+    assertEquals(1, interner.size());
+    assertEquals(1, interner.hitCount());
+    assertEquals(1, interner.missCount());
+  }
+
+  public void testBounded_againstMap() {
+    Random random = new Random(0);
+    StringInterner interner = StringInterner.withMaximumSize(64);
+    for (int i = 0; i < 20000; i++) {
+      String s = Integer.toString(random.nextInt(200));
+      String canonical = interner.intern(s);
+      assertEquals(s, canonical);
+      assertSame(canonical, interner.intern(new String(s)));
+      assertTrue(interner.size() <= 64);
+    }
+  }
+
+  public void testConcurrentInterning() throws Exception {
+    final StringInterner interner = StringInterner.create();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String[]>> futures = Lists.newArrayList();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(new Callable<String[]>() {
+          @Override public String[] call() {
+            String[] results = new String[5000];
+            for (int i = 0; i < results.length; i++) {
+              results[i] = interner.intern(new String("s" + i));
+            }
+            return results;
+          }
+        }));
+      }
+      String[] first = futures.get(0).get();
+      for (Future<String[]> future : futures) {
+        String[] results = future.get();
+        for (int i = 0; i < results.length; i++) {
+          assertSame(first[i], results[i]);
+        }
+      }
+      assertEquals(5000, interner.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testNullPointers() throws Exception {
+    NullPointerTester tester = new NullPointerTester();
+    tester.setDefault(byte[].class, new byte[0]);
+    tester.testAllPublicStaticMethods(StringInterner.class);
+    tester.testAllPublicInstanceMethods(StringInterner.create());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Tests for {@link Escapers}, {@link CharEscaper} and {@link
+ * ArrayBasedCharEscaper}.
+ */
+@GwtCompatible(emulated = true)
+public class EscapersTest extends TestCase {
+  private static final Escaper BRACKETS = Escapers.builder()
+      .addEscape('<', "[lt]")
+      .addEscape('>', "[gt]")
+      .addEscape('x', "")
+      .setSafeRange(' ', '~')
+      .setUnsafeReplacement("?")
+      .build();
+
+  public void testNullEscaper() throws IOException {
+    Escaper escaper = Escapers.nullEscaper();
+    String string = "<tab>\t\u0000\uD800\uffff";
+    assertSame(string, escaper.escape(string));
+    StringBuilder out = new StringBuilder();
+    assertSame(out, escaper.escape(out));
+    assertEquals("a", escaper.asFunction().apply("a"));
+  }
+
+  public void testBuilder() {
+    assertEquals("[lt]a[gt] b?c?y", BRACKETS.escape("<a> b\tc\u00ffxy"));
+    assertEquals("", BRACKETS.escape("xxx"));
+  }
+
+  public void testBuilder_unchangedInputIsNotCopied() {
+    String string = "plain ASCII string";
+    assertSame(string, BRACKETS.escape(string));
+    assertSame(string, BRACKETS.asFunction().apply(string));
+  }
+
+  public void testBuilder_isSnapshot() {
+    Escapers.Builder builder = Escapers.builder().addEscape('a', "1");
+    Escaper first = builder.build();
+    builder.addEscape('a', "2").addEscape('b', "3");
+    assertEquals("1b", first.escape("ab"));
+    assertEquals("23", builder.build().escape("ab"));
+  }
+
+  public void testBuilder_emptySafeRange() {
+    Escaper escaper = Escapers.builder()
+        .setSafeRange('b', 'a')
+        .setUnsafeReplacement("_")
+        .build();
+    assertEquals("___", escaper.escape("abc"));
+  }
+
+  public void testEscapeSlow_growsBuffer() {
+    StringBuilder input = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      input.append("a<");
+      expected.append("a[lt]");
+    }
+    assertEquals(expected.toString(), BRACKETS.escape(input.toString()));
+  }
+
+  public void testAppendable() throws IOException {
+    StringBuilder out = new StringBuilder();
+    Appendable escaping = BRACKETS.escape(out);
+    escaping.append("<a>").append('\t').append('b').append("-<c>-", 1, 4);
+    escaping.append(null);
+    assertEquals("[lt]a[gt]?b[lt]c[gt]null", out.toString());
+  }
+
+  public void testAppendable_invalidRange() throws IOException {
+    Appendable escaping = BRACKETS.escape(new StringBuilder());
+    try {
+      escaping.append("abc", 2, 4);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  @GwtIncompatible("Writer")
+  public void testWriter() throws IOException {
+    StringWriter out = new StringWriter();
+    Writer writer = CharStreams.asWriter(BRACKETS.escape(out));
+    writer.write("1 < 2".toCharArray());
+    writer.write('>');
+    writer.close();
+    assertEquals("1 [lt] 2[gt]", out.toString());
+  }
+
+  public void testArrayBasedCharEscaper() {
+    ArrayBasedEscaperMap map =
+        ArrayBasedEscaperMap.create(ImmutableMap.of('\n', "\\n", '"', "\\\""));
+    CharEscaper escaper = new ArrayBasedCharEscaper(map, ' ', '~') {
+      @Override protected char[] escapeUnsafe(char c) {
+        return ("\\u" + Integer.toHexString(c | 0x10000).substring(1))
+            .toCharArray();
+      }
+    };
+    assertEquals("say \\\"hi\\\"\\n\\u00e9", escaper.escape("say \"hi\"\n\u00e9"));
+    assertEquals("\\u0000", escaper.escape("\u0000"));
+  }
+}
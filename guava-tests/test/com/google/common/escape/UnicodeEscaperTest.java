@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.collect.ImmutableMap;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Tests for {@link UnicodeEscaper} and {@link ArrayBasedUnicodeEscaper}.
+ */
+@GwtCompatible
+public class UnicodeEscaperTest extends TestCase {
+  /** Escapes code points above U+007F as {@code <hex>}, and 'z' as "Z". */
+  private static final UnicodeEscaper ESCAPER = new UnicodeEscaper() {
+    @Override protected char[] escape(int cp) {
+      if (cp == 'z') {
+        return new char[] {'Z'};
+      }
+      return (cp < 0x80) ? null : ("<" + Integer.toHexString(cp) + ">").toCharArray();
+    }
+  };
+
+  private static final String SMILEY = "\ud83d\ude00";
+
+  public void testEscape() {
+    assertEquals("a<e9>Z<1f600>b", ESCAPER.escape("a\u00e9z" + SMILEY + "b"));
+  }
+
+  public void testEscape_unchangedInputIsNotCopied() {
+    String string = "nothing to escape";
+    assertSame(string, ESCAPER.escape(string));
+  }
+
+  public void testEscape_badSurrogates() {
+    for (String bad : new String[] {"a\uD800", "\uDC00b", "\uD800x"}) {
+      try {
+        ESCAPER.escape(bad);
+        fail(bad);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  public void testEscape_growsBuffer() {
+    StringBuilder input = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append(SMILEY).append("ab");
+      expected.append("<1f600>ab");
+    }
+    assertEquals(expected.toString(), ESCAPER.escape(input.toString()));
+  }
+
+  public void testAppendable() throws IOException {
+    StringBuilder out = new StringBuilder();
+    Appendable escaping = ESCAPER.escape(out);
+    escaping.append("az").append('\u00e9').append("x" + SMILEY + "y", 1, 4);
+    assertEquals("aZ<e9><1f600>y", out.toString());
+  }
+
+  public void testAppendable_splitSurrogatePair() throws IOException {
+    StringBuilder out = new StringBuilder();
+    Appendable escaping = ESCAPER.escape(out);
+    escaping.append("a" + SMILEY.charAt(0));
+    assertEquals("a", out.toString());
+    escaping.append(SMILEY.charAt(1) + "b");
+    assertEquals("a<1f600>b", out.toString());
+    escaping.append(SMILEY.charAt(0)).append(SMILEY.charAt(1));
+    assertEquals("a<1f600>b<1f600>", out.toString());
+  }
+
+  public void testAppendable_badSurrogates() throws IOException {
+    Appendable escaping = ESCAPER.escape(new StringBuilder());
+    try {
+      escaping.append('\uDC00');
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    escaping.append('\uD800');
+    try {
+      escaping.append("x");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testArrayBasedUnicodeEscaper() {
+    UnicodeEscaper escaper = new ArrayBasedUnicodeEscaper(
+        ImmutableMap.of('&', "&amp;"), 0, 0xFFFF) {
+      @Override protected char[] escapeUnsafe(int cp) {
+        return ("&#" + cp + ";").toCharArray();
+      }
+    };
+    String safe = "\u00e9t\u00e9";
+    assertSame(safe, escaper.escape(safe));
+    assertEquals("a&amp;b&#128512;", escaper.escape("a&b" + SMILEY));
+  }
+
+  public void testArrayBasedUnicodeEscaper_safeRangeAboveSurrogates() {
+    UnicodeEscaper escaper = new ArrayBasedUnicodeEscaper(
+        ImmutableMap.<Character, String>of(), 0x10000, 0x1F5FF) {
+      @Override protected char[] escapeUnsafe(int cp) {
+        return new char[] {'?'};
+      }
+    };
+    assertEquals("?" + "\ud83c\udf00" + "?", escaper.escape("a\ud83c\udf00" + SMILEY));
+  }
+}
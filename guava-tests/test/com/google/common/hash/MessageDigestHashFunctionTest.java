@@ -2,6 +2,8 @@
 
 package com.google.common.hash;
 
+import com.google.common.base.Charsets;
+
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -25,6 +27,18 @@ public class MessageDigestHashFunctionTest extends TestCase {
     assertMessageDigestHashing(HashTestUtils.ascii("foobar"), "SHA1");
   }
 
+  public void testPutStringUtf8() throws Exception {
+    HashFunction md5 = new MessageDigestHashFunction("MD5");
+    HashFunction murmur = Hashing.murmur3_128();
+    for (String string : new String[] {"", "foobar", "\u00e9\u4e2d\ud83d\ude00", "\ud800"}) {
+      byte[] bytes = string.getBytes(Charsets.UTF_8.name());
+      assertEquals(md5.hashBytes(bytes),
+          md5.newHasher().putString(string, Charsets.UTF_8).hash());
+      assertEquals(murmur.hashBytes(bytes),
+          murmur.newHasher().putString(string, Charsets.UTF_8).hash());
+    }
+  }
+
   private static void assertMessageDigestHashing(byte[] input, String algorithmName) 
       throws NoSuchAlgorithmException {
     HashTestUtils.assertEqualHashes(
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.html;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.escape.Escaper;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link HtmlEscapers}.
+ */
+@GwtCompatible
+public class HtmlEscapersTest extends TestCase {
+
+  public void testHtmlEscaper() throws Exception {
+    Escaper escaper = HtmlEscapers.htmlEscaper();
+    assertEquals("xxx", escaper.escape("xxx"));
+    assertEquals("&quot;test&quot;", escaper.escape("\"test\""));
+    assertEquals("&#39;test&#39;", escaper.escape("'test'"));
+    assertEquals("test &amp; test &amp; test",
+        escaper.escape("test & test & test"));
+    assertEquals("test &lt;&lt; 1", escaper.escape("test << 1"));
+    assertEquals("test &gt;&gt; 1", escaper.escape("test >> 1"));
+    assertEquals("&lt;tab&gt;", escaper.escape("<tab>"));
+
+    // Test simple escape of '&'.
+    assertEquals("foo&amp;bar", escaper.escape("foo&bar"));
+
+    // If the string contains no escapes, it should return the arg.
+    // Note: assert<b>Same</b> for this implementation.
+    String s = "blah blah farhvergnugen";
+    assertSame(s, escaper.escape(s));
+
+    // Tests escapes at begin and end of string.
+    assertEquals("&lt;p&gt;", escaper.escape("<p>"));
+
+    // Tests multiple escapes.
+    assertEquals("a&quot;b&lt;c&gt;d&amp;", escaper.escape("a\"b<c>d&"));
+
+    // Test for non-ASCII characters, which are left alone.
+    assertEquals("caf\u00e9 \u2603", escaper.escape("caf\u00e9 \u2603"));
+  }
+}
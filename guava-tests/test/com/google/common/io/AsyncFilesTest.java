@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link AsyncFiles}.
+ */
+public class AsyncFilesTest extends IoTestCase {
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private File from;
+  private File to;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    from = File.createTempFile("AsyncFilesTest", ".from");
+    to = File.createTempFile("AsyncFilesTest", ".to");
+  }
+
+  @Override protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    from.delete();
+    to.delete();
+    super.tearDown();
+  }
+
+  public void testOperations() throws Exception {
+    AsyncFiles files = AsyncFiles.create(executor, 2);
+    byte[] bytes = newPreFilledByteArray(10000);
+    files.write(bytes, from).get(10, SECONDS);
+    assertTrue(Arrays.equals(bytes, Files.toByteArray(from)));
+    assertTrue(Arrays.equals(bytes, files.readFully(from).get(10, SECONDS)));
+    files.copy(from, to).get(10, SECONDS);
+    assertTrue(Arrays.equals(bytes, Files.toByteArray(to)));
+    assertEquals(Hashing.md5().hashBytes(bytes),
+        files.hash(from, Hashing.md5()).get(10, SECONDS));
+  }
+
+  public void testFailure() throws Exception {
+    AsyncFiles files = AsyncFiles.create(executor, 1);
+    try {
+      files.readFully(new File(from, "missing")).get(10, SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof FileNotFoundException);
+    }
+    // The slot is released just after the future completes.
+    long deadline = System.nanoTime() + SECONDS.toNanos(10);
+    while (files.getOutstandingCount() != 0) {
+      assertTrue(System.nanoTime() < deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  public void testCopySameFile() {
+    AsyncFiles files = AsyncFiles.create(executor, 1);
+    try {
+      files.copy(from, from);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testInvalidMaxOutstanding() {
+    try {
+      AsyncFiles.create(executor, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testBoundsOutstandingOperations() throws Exception {
+    ManualExecutor manual = new ManualExecutor();
+    AsyncFiles files = AsyncFiles.create(manual, 2);
+    ListenableFuture<byte[]> first = files.readFully(from);
+    ListenableFuture<byte[]> second = files.readFully(from);
+    ListenableFuture<byte[]> third = files.readFully(from);
+    ListenableFuture<byte[]> fourth = files.readFully(from);
+    assertEquals(2, manual.tasks.size());
+    assertEquals(2, files.getOutstandingCount());
+    assertEquals(2, files.getQueuedCount());
+
+    // A cancelled operation leaves the queue.
+    third.cancel(false);
+    assertEquals(1, files.getQueuedCount());
+
+    // The queued operation runs on the thread that completed the first one.
+    manual.runNext();
+    assertTrue(first.isDone());
+    assertTrue(fourth.isDone());
+    assertEquals(1, manual.tasks.size());
+    assertEquals(0, files.getQueuedCount());
+    assertEquals(1, files.getOutstandingCount());
+
+    manual.runNext();
+    assertTrue(second.isDone());
+    assertTrue(third.isCancelled());
+    assertEquals(0, files.getOutstandingCount());
+  }
+
+  public void testRejectedExecution() throws Exception {
+    Executor rejecting = new Executor() {
+      @Override public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    };
+    AsyncFiles files = AsyncFiles.create(rejecting, 1);
+    try {
+      files.readFully(from).get(10, SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof RejectedExecutionException);
+    }
+    assertEquals(0, files.getOutstandingCount());
+  }
+
+  public void testSameThreadExecutor() throws Exception {
+    AsyncFiles files =
+        AsyncFiles.create(MoreExecutors.sameThreadExecutor(), 1);
+    ListenableFuture<Void> write = files.write(new byte[] {1, 2, 3}, from);
+    assertTrue(write.isDone());
+    assertEquals(3, files.readFully(from).get().length);
+  }
+
+  public void testDirectExecutor_manyQueued() throws Exception {
+    // Holds the first operation back, and runs the others directly.
+    final List<Runnable> held = Lists.newArrayList();
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable command) {
+        if (held.isEmpty()) {
+          held.add(command);
+        } else {
+          command.run();
+        }
+      }
+    };
+    AsyncFiles files = AsyncFiles.create(executor, 1);
+    files.readFully(from);
+    List<ListenableFuture<byte[]>> reads = Lists.newArrayList();
+    for (int i = 0; i < 20000; i++) {
+      reads.add(files.readFully(from));
+    }
+    // Runs all the queued operations without deepening the stack.
+    held.get(0).run();
+    for (ListenableFuture<byte[]> read : reads) {
+      assertTrue(read.isDone());
+    }
+    assertEquals(0, files.getOutstandingCount());
+  }
+
+  public void testCancelWithInterruptionDoesNotAffectNextTask()
+      throws Exception {
+    Files.write(newPreFilledByteArray(1000), from);
+    ManualExecutor manual = new ManualExecutor();
+    AsyncFiles files = AsyncFiles.create(manual, 1);
+    final AtomicReference<Future<?>> running =
+        new AtomicReference<Future<?>>();
+    // Cancels the hash while it runs, which interrupts the running thread.
+    HashFunction cancelling = new ForwardingHashFunction(Hashing.md5()) {
+      @Override public Hasher newHasher() {
+        running.get().cancel(true);
+        return super.newHasher();
+      }
+    };
+    running.set(files.hash(from, cancelling));
+    ListenableFuture<Void> copy = files.copy(from, to);
+    try {
+      manual.runNext(); // runs the hash, then the queued copy
+      assertTrue(running.get().isCancelled());
+      assertNull(copy.get());
+      assertEquals(1000, to.length());
+      assertFalse(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  private static class ForwardingHashFunction implements HashFunction {
+    private final HashFunction delegate;
+
+    ForwardingHashFunction(HashFunction delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public Hasher newHasher() {
+      return delegate.newHasher();
+    }
+
+    @Override public Hasher newHasher(int expectedInputSize) {
+      return delegate.newHasher(expectedInputSize);
+    }
+
+    @Override public HashCode hashLong(long input) {
+      return delegate.hashLong(input);
+    }
+
+    @Override public HashCode hashBytes(byte[] input) {
+      return delegate.hashBytes(input);
+    }
+
+    @Override public HashCode hashBytes(byte[] input, int off, int len) {
+      return delegate.hashBytes(input, off, len);
+    }
+
+    @Override public HashCode hashString(CharSequence input) {
+      return delegate.hashString(input);
+    }
+
+    @Override public HashCode hashString(CharSequence input, Charset charset) {
+      return delegate.hashString(input, charset);
+    }
+
+    @Override public int bits() {
+      return delegate.bits();
+    }
+  }
+
+  private static class ManualExecutor implements Executor {
+    final List<Runnable> tasks = Lists.newArrayList();
+
+    @Override public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runNext() {
+      tasks.remove(0).run();
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for {@link BlobStore}.
+ */
+public class BlobStoreTest extends IoTestCase {
+  private File directory;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    directory = Files.createTempDir();
+  }
+
+  @Override protected void tearDown() throws Exception {
+    for (File file : directory.listFiles()) {
+      assertTrue(file.delete());
+    }
+    assertTrue(directory.delete());
+    super.tearDown();
+  }
+
+  public void testPutAndMap() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    byte[] bytes = newPreFilledByteArray(100);
+    HashCode key = store.put(bytes);
+    assertEquals(Hashing.md5().hashBytes(bytes), key);
+    assertTrue(store.contains(key));
+    assertEquals(ByteBuffer.wrap(bytes), store.map(key));
+    assertTrue(new File(directory, key.toString()).isFile());
+    assertEquals(1, directory.list().length);
+
+    assertNull(store.map(Hashing.md5().hashBytes(new byte[1])));
+    assertFalse(store.contains(Hashing.md5().hashBytes(new byte[1])));
+  }
+
+  public void testDeduplicates() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    HashCode first = store.put(newPreFilledByteArray(100));
+    HashCode second = store.put(ByteStreams.newInputStreamSupplier(
+        newPreFilledByteArray(100)));
+    assertEquals(first, second);
+    assertEquals(1, store.count());
+    assertEquals(100, store.size());
+    assertEquals(1, directory.list().length);
+  }
+
+  public void testEvictsLeastRecentlyUsed() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 300);
+    HashCode a = store.put(newPreFilledByteArray(0, 100));
+    HashCode b = store.put(newPreFilledByteArray(1, 100));
+    HashCode c = store.put(newPreFilledByteArray(2, 100));
+    store.map(a);
+    HashCode d = store.put(newPreFilledByteArray(3, 100));
+    assertTrue(store.contains(a));
+    assertFalse(store.contains(b));
+    assertTrue(store.contains(c));
+    assertTrue(store.contains(d));
+    assertEquals(300, store.size());
+    assertFalse(new File(directory, b.toString()).exists());
+
+    // A blob larger than the limit is kept until the next one is stored.
+    HashCode big = store.put(newPreFilledByteArray(500));
+    assertTrue(store.contains(big));
+    assertEquals(1, store.count());
+    store.put(newPreFilledByteArray(4, 10));
+    assertFalse(store.contains(big));
+    assertEquals(10, store.size());
+  }
+
+  public void testRemove() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    HashCode key = store.put(newPreFilledByteArray(10));
+    assertTrue(store.remove(key));
+    assertFalse(store.remove(key));
+    assertEquals(0, store.size());
+    assertEquals(0, directory.list().length);
+  }
+
+  public void testMapOfVanishedBlobReturnsNull() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    HashCode key = store.put(newPreFilledByteArray(10));
+    // As if another thread evicted the blob between the lookup and mapping.
+    assertTrue(new File(directory, key.toString()).delete());
+    assertNull(store.map(key));
+  }
+
+  public void testConcurrentPutAndRemove() throws Exception {
+    final BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    final byte[] bytes = newPreFilledByteArray(10);
+    final HashCode key = store.put(bytes);
+    Thread remover = new Thread() {
+      @Override public void run() {
+        for (int i = 0; i < 200; i++) {
+          store.remove(key);
+        }
+      }
+    };
+    remover.start();
+    for (int i = 0; i < 200; i++) {
+      store.put(bytes);
+    }
+    remover.join();
+    // The file is on disk exactly when the store says the blob is stored.
+    assertEquals(store.contains(key),
+        new File(directory, key.toString()).exists());
+    assertEquals(store.contains(key) ? 10 : 0, store.size());
+  }
+
+  public void testReload() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.sha1(), 1000);
+    HashCode key = store.put(newPreFilledByteArray(10));
+    Files.write(newPreFilledByteArray(5), new File(directory, "blob1.tmp"));
+    Files.write(newPreFilledByteArray(5), new File(directory, "unrelated"));
+
+    BlobStore reloaded = BlobStore.create(directory, Hashing.sha1(), 1000);
+    assertTrue(reloaded.contains(key));
+    assertEquals(1, reloaded.count());
+    assertEquals(10, reloaded.size());
+    assertFalse(new File(directory, "blob1.tmp").exists());
+    assertTrue(new File(directory, "unrelated").exists());
+
+    BlobStore smaller = BlobStore.create(directory, Hashing.sha1(), 5);
+    assertEquals(0, smaller.count());
+  }
+
+  public void testFailedPutStoresNothing() throws IOException {
+    BlobStore store = BlobStore.create(directory, Hashing.md5(), 1000);
+    try {
+      store.put(new InputSupplier<InputStream>() {
+        @Override public InputStream getInput() throws IOException {
+          throw new IOException("broken");
+        }
+      });
+      fail();
+    } catch (IOException expected) {
+    }
+    assertEquals(0, store.count());
+    assertEquals(0, directory.list().length);
+  }
+
+  public void testConcurrentWriters() throws Exception {
+    final BlobStore store =
+        BlobStore.create(directory, Hashing.md5(), 1000000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<HashCode>> futures = Lists.newArrayList();
+      for (int i = 0; i < 40; i++) {
+        final byte[] bytes = newPreFilledByteArray(i % 4, 10000);
+        futures.add(executor.submit(new Callable<HashCode>() {
+          @Override public HashCode call() throws IOException {
+            return store.put(bytes);
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        HashCode key = futures.get(i).get(10, SECONDS);
+        assertEquals(
+            ByteBuffer.wrap(newPreFilledByteArray(i % 4, 10000)),
+            store.map(key));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(4, store.count());
+    assertEquals(40000, store.size());
+    assertEquals(4, directory.list().length);
+  }
+
+  public void testInvalidMaxSize() throws IOException {
+    try {
+      BlobStore.create(directory, Hashing.md5(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
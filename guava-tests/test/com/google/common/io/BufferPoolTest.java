@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.collect.Lists;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link BufferPool}.
+ */
+public class BufferPoolTest extends IoTestCase {
+
+  public void testBytesAreRecycled() {
+    byte[] first = BufferPool.takeBytes();
+    assertEquals(BufferPool.BYTE_BUFFER_SIZE, first.length);
+    BufferPool.recycle(first);
+    long hits = BufferPool.hitCount();
+    assertSame(first, BufferPool.takeBytes());
+    assertEquals(hits + 1, BufferPool.hitCount());
+    BufferPool.recycle(first);
+  }
+
+  public void testDirectBuffersAreRecycledCleared() {
+    ByteBuffer first = BufferPool.takeDirect();
+    assertTrue(first.isDirect());
+    assertEquals(BufferPool.DIRECT_BUFFER_SIZE, first.capacity());
+    first.put((byte) 1).flip();
+    BufferPool.recycle(first);
+    ByteBuffer second = BufferPool.takeDirect();
+    assertSame(first, second);
+    assertEquals(0, second.position());
+    assertEquals(second.capacity(), second.limit());
+    BufferPool.recycle(second);
+  }
+
+  public void testNestedTakesMiss() {
+    byte[][] taken = new byte[BufferPool.BUFFERS_PER_THREAD + 1][];
+    for (int i = 0; i < taken.length; i++) {
+      taken[i] = BufferPool.takeBytes();
+    }
+    long misses = BufferPool.missCount();
+    byte[] extra = BufferPool.takeBytes();
+    assertEquals(misses + 1, BufferPool.missCount());
+    for (byte[] buf : taken) {
+      assertNotSame(buf, extra);
+      BufferPool.recycle(buf);
+    }
+    BufferPool.recycle(extra);
+
+    // Only BUFFERS_PER_THREAD buffers were kept.
+    for (int i = 0; i < BufferPool.BUFFERS_PER_THREAD; i++) {
+      taken[i] = BufferPool.takeBytes();
+    }
+    misses = BufferPool.missCount();
+    BufferPool.takeBytes();
+    assertEquals(misses + 1, BufferPool.missCount());
+  }
+
+  public void testCountsOfTerminatedThreadsAreKept() throws Exception {
+    long hits = BufferPool.hitCount();
+    long misses = BufferPool.missCount();
+    Thread thread = new Thread() {
+      @Override public void run() {
+        byte[] buf = BufferPool.takeBytes(); // miss
+        BufferPool.recycle(buf);
+        BufferPool.recycle(BufferPool.takeBytes()); // hit
+      }
+    };
+    thread.start();
+    thread.join();
+    assertEquals(hits + 1, BufferPool.hitCount());
+    assertEquals(misses + 1, BufferPool.missCount());
+    // Reading again doesn't count the retired thread twice.
+    assertEquals(hits + 1, BufferPool.hitCount());
+    assertEquals(misses + 1, BufferPool.missCount());
+  }
+
+  public void testFileComparisonsUsePool() throws IOException {
+    File file1 = File.createTempFile("BufferPoolTest", ".tmp");
+    File file2 = File.createTempFile("BufferPoolTest", ".tmp");
+    try {
+      byte[] bytes = newPreFilledByteArray(10000);
+      Files.write(bytes, file1);
+      Files.write(bytes, file2);
+      Files.equal(file1, file2);
+      long misses = BufferPool.missCount();
+      long hits = BufferPool.hitCount();
+      assertTrue(Files.equal(file1, file2));
+      assertTrue(Files.equal(file1, file2));
+      assertEquals(hits + 4, BufferPool.hitCount());
+      assertEquals(misses, BufferPool.missCount());
+      assertTrue(BufferPool.hitRate() > 0.0);
+    } finally {
+      file1.delete();
+      file2.delete();
+    }
+  }
+
+  public void testCallerStreamsDontSeePooledBuffers() throws IOException {
+    byte[] bytes = newPreFilledByteArray(10000);
+    final List<byte[]> seen = Lists.newArrayList();
+    OutputStream retaining = new ByteArrayOutputStream() {
+      @Override public void write(byte[] b, int off, int len) {
+        seen.add(b);
+        super.write(b, off, len);
+      }
+    };
+    ByteStreams.copy(new ByteArrayInputStream(bytes), retaining);
+    InputStream recording = new ByteArrayInputStream(bytes) {
+      @Override public int read(byte[] b, int off, int len) {
+        seen.add(b);
+        return super.read(b, off, len);
+      }
+    };
+    ByteStreams.toByteArray(recording);
+    ByteStreams.readBytes(ByteStreams.newInputStreamSupplier(bytes),
+        new ByteProcessor<Void>() {
+          @Override public boolean processBytes(byte[] buf, int off, int len) {
+            seen.add(buf);
+            return true;
+          }
+          @Override public Void getResult() {
+            return null;
+          }
+        });
+    byte[] first = BufferPool.takeBytes();
+    byte[] second = BufferPool.takeBytes();
+    for (byte[] buf : seen) {
+      assertNotSame(first, buf);
+      assertNotSame(second, buf);
+    }
+    BufferPool.recycle(second);
+    BufferPool.recycle(first);
+  }
+
+  public void testEqualIgnoresStaleBufferContents() throws IOException {
+    // Leave distinct garbage in the pooled buffers.
+    byte[] a = BufferPool.takeBytes();
+    byte[] b = BufferPool.takeBytes();
+    Arrays.fill(a, (byte) 1);
+    Arrays.fill(b, (byte) 2);
+    BufferPool.recycle(b);
+    BufferPool.recycle(a);
+    File file1 = File.createTempFile("BufferPoolTest", ".tmp");
+    File file2 = File.createTempFile("BufferPoolTest", ".tmp");
+    try {
+      byte[] bytes = newPreFilledByteArray(10);
+      Files.write(bytes, file1);
+      Files.write(bytes, file2);
+      assertTrue(Files.equal(file1, file2));
+    } finally {
+      file1.delete();
+      file2.delete();
+    }
+  }
+}
@@ -27,12 +27,21 @@ import com.google.common.testing.TestLogHandler;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -382,6 +391,15 @@ public class ByteStreamsTest extends IoTestCase {
     assertTrue(Arrays.equals(expected, out.toByteArray()));
   }
 
+  public void testToByteArray_sizes() throws IOException {
+    for (int size : new int[] {0, 1, 4095, 4096, 4097, 10000}) {
+      byte[] expected = newPreFilledByteArray(size);
+      byte[] actual = ByteStreams.toByteArray(new RandomAmountInputStream(
+          new ByteArrayInputStream(expected), new Random(size)));
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
   public void testCopyChannel() throws IOException {
     byte[] expected = newPreFilledByteArray(100);
     ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -393,6 +411,82 @@ public class ByteStreamsTest extends IoTestCase {
     assertTrue(Arrays.equals(expected, out.toByteArray()));
   }
 
+  public void testCopyFileStreams() throws IOException {
+    byte[] expected = newPreFilledByteArray(100000);
+    File from = createTempFile(expected);
+    File to = createTempFile(new byte[0]);
+    try {
+      FileInputStream in = new FileInputStream(from);
+      FileOutputStream out = new FileOutputStream(to);
+      try {
+        ByteStreams.skipFully(in, 10);
+        out.write(new byte[] {1, 2});
+        assertEquals(99990, ByteStreams.copy(in, out));
+        // Both stream positions have moved past the copied bytes.
+        assertEquals(-1, in.read());
+        out.write(3);
+      } finally {
+        in.close();
+        out.close();
+      }
+      byte[] actual = Files.toByteArray(to);
+      assertEquals(99993, actual.length);
+      assertEquals(1, actual[0]);
+      assertEquals(2, actual[1]);
+      for (int i = 10; i < 100000; i++) {
+        assertEquals(expected[i], actual[i - 8]);
+      }
+      assertEquals(3, actual[99992]);
+    } finally {
+      from.delete();
+      to.delete();
+    }
+  }
+
+  public void testCopyFileChannelToChannel() throws IOException {
+    byte[] expected = newPreFilledByteArray(100000);
+    File from = createTempFile(expected);
+    try {
+      FileInputStream in = new FileInputStream(from);
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100000,
+            ByteStreams.copy(in.getChannel(), Channels.newChannel(out)));
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+        assertEquals(100000, in.getChannel().position());
+      } finally {
+        in.close();
+      }
+    } finally {
+      from.delete();
+    }
+  }
+
+  public void testCopyChannelToFileChannel() throws IOException {
+    byte[] expected = newPreFilledByteArray(100000);
+    File to = createTempFile(new byte[0]);
+    try {
+      FileOutputStream out = new FileOutputStream(to);
+      try {
+        ReadableByteChannel in =
+            Channels.newChannel(new ByteArrayInputStream(expected));
+        assertEquals(100000, ByteStreams.copy(in, out.getChannel()));
+        assertEquals(100000, out.getChannel().position());
+      } finally {
+        out.close();
+      }
+      assertTrue(Arrays.equals(expected, Files.toByteArray(to)));
+    } finally {
+      to.delete();
+    }
+  }
+
+  private static File createTempFile(byte[] contents) throws IOException {
+    File file = File.createTempFile("ByteStreamsTest", ".tmp");
+    Files.write(contents, file);
+    return file;
+  }
+
   public void testReadFully() throws IOException {
     byte[] b = new byte[10];
 
@@ -725,6 +819,174 @@ public class ByteStreamsTest extends IoTestCase {
     assertEquals(BYTES, out.toByteArray());
   }
 
+  public void testByteBufferData_roundTrip() throws IOException {
+    File file = File.createTempFile("ByteStreamsTest", ".bin");
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      for (ByteOrder order : new ByteOrder[] {
+          ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+        assertByteBufferRoundTrip(ByteBuffer.allocate(1000).order(order));
+        assertByteBufferRoundTrip(
+            ByteBuffer.allocateDirect(1000).order(order));
+        assertByteBufferRoundTrip(raf.getChannel()
+            .map(FileChannel.MapMode.READ_WRITE, 0, 1000).order(order));
+      }
+    } finally {
+      raf.close();
+      file.delete();
+    }
+  }
+
+  private static void assertByteBufferRoundTrip(ByteBuffer buffer) {
+    int[] ints = {0, 1, -1, Integer.MIN_VALUE, 0x12345678};
+    long[] longs = {0, -1, Long.MAX_VALUE, 0x1234567876543210L};
+    double[] doubles = {0.0, -1.5, Double.NaN, Double.MAX_VALUE};
+    buffer.position(3);
+    ByteBufferDataOutput out = ByteStreams.newDataOutput(buffer);
+    out.writeBoolean(true);
+    out.writeByte(-2);
+    out.writeShort(-3);
+    out.writeChar('\u1234');
+    out.writeInt(0x12345678);
+    out.writeLong(0x1234567876543210L);
+    out.writeFloat(1.5f);
+    out.writeDouble(-2.5);
+    out.writeUTF("r\u00e9sum\u00e9");
+    out.writeInts(ints, 1, 4);
+    out.writeLongs(longs, 0, 4);
+    out.writeDoubles(doubles, 0, 4);
+    out.writeChars("ab");
+    out.write(new byte[] {5, 6, 7}, 1, 2);
+    assertEquals(buffer.remaining(), out.remaining());
+    buffer.flip();
+    buffer.position(3);
+
+    ByteBufferDataInput in = ByteStreams.newDataInput(buffer);
+    assertTrue(in.readBoolean());
+    assertEquals(-2, in.readByte());
+    assertEquals(0xFFFD, in.readUnsignedShort());
+    assertEquals('\u1234', in.readChar());
+    assertEquals(0x12345678, in.readInt());
+    assertEquals(0x1234567876543210L, in.readLong());
+    assertEquals(1.5f, in.readFloat());
+    assertEquals(-2.5, in.readDouble());
+    assertEquals("r\u00e9sum\u00e9", in.readUTF());
+    int[] readInts = new int[5];
+    in.readInts(readInts, 0, 4);
+    assertTrue(Arrays.equals(
+        new int[] {1, -1, Integer.MIN_VALUE, 0x12345678, 0}, readInts));
+    long[] readLongs = new long[4];
+    in.readLongs(readLongs, 0, 4);
+    assertTrue(Arrays.equals(longs, readLongs));
+    double[] readDoubles = new double[4];
+    in.readDoubles(readDoubles, 0, 4);
+    assertTrue(Arrays.equals(doubles, readDoubles));
+    assertEquals('a', in.readChar());
+    assertEquals('b', in.readChar());
+    assertEquals(2, in.remaining());
+    assertEquals(6, in.readUnsignedByte());
+    assertEquals(7, in.readUnsignedByte());
+    assertEquals(0, in.remaining());
+    assertEquals(0, in.skipBytes(1));
+  }
+
+  public void testByteBufferData_compatibleWithStreams() throws IOException {
+    ByteBuffer big = ByteBuffer.allocate(100);
+    ByteBufferDataOutput bigOut = ByteStreams.newDataOutput(big);
+    ByteArrayDataOutput expectedBig = ByteStreams.newDataOutput();
+    ByteBuffer little = ByteBuffer.allocate(100).order(ByteOrder.LITTLE_ENDIAN);
+    ByteBufferDataOutput littleOut = ByteStreams.newDataOutput(little);
+    ByteArrayOutputStream expectedLittle = new ByteArrayOutputStream();
+    LittleEndianDataOutputStream littleStream =
+        new LittleEndianDataOutputStream(expectedLittle);
+    for (DataOutput out : new DataOutput[] {
+        bigOut, expectedBig, littleOut, littleStream}) {
+      out.writeInt(0x12345678);
+      out.writeLong(0x1234567876543210L);
+      out.writeDouble(Math.PI);
+      out.writeUTF("\u00e9");
+      out.writeChars("xy");
+    }
+    bigOut.writeInts(new int[] {0x01020304}, 0, 1);
+    expectedBig.writeInt(0x01020304);
+    littleOut.writeInts(new int[] {0x01020304}, 0, 1);
+    littleStream.writeInt(0x01020304);
+    assertEquals(ByteBuffer.wrap(expectedBig.toByteArray()), big.flip());
+    assertEquals(ByteBuffer.wrap(expectedLittle.toByteArray()),
+        little.flip());
+
+    little.rewind();
+    ByteBufferDataInput littleIn = ByteStreams.newDataInput(little);
+    LittleEndianDataInputStream littleStreamIn =
+        new LittleEndianDataInputStream(
+            new ByteArrayInputStream(expectedLittle.toByteArray()));
+    assertEquals(littleStreamIn.readInt(), littleIn.readInt());
+    assertEquals(littleStreamIn.readLong(), littleIn.readLong());
+    assertEquals(littleStreamIn.readDouble(), littleIn.readDouble());
+    assertEquals(littleStreamIn.readUTF(), littleIn.readUTF());
+  }
+
+  public void testByteBufferData_limits() {
+    ByteBuffer buffer = ByteBuffer.allocate(6);
+    ByteBufferDataOutput out = ByteStreams.newDataOutput(buffer);
+    out.writeInt(1);
+    try {
+      out.writeInt(2);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      out.writeLongs(new long[1], 0, 1);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      out.writeInts(new int[1], 1, 1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    assertEquals(4, buffer.position());
+    buffer.flip();
+
+    ByteBufferDataInput in = ByteStreams.newDataInput(buffer);
+    in.readShort();
+    try {
+      in.readInts(new int[1], 0, 1);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      in.readLong();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(2, buffer.position());
+    assertEquals(2, in.skipBytes(5));
+  }
+
+  public void testByteBufferData_readOnly() {
+    try {
+      ByteStreams.newDataOutput(ByteBuffer.allocate(4).asReadOnlyBuffer());
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+    ByteBufferDataInput in = ByteStreams.newDataInput(
+        ByteBuffer.wrap(new byte[] {0, 0, 0, 7}).asReadOnlyBuffer());
+    int[] ints = new int[1];
+    in.readInts(ints, 0, 1);
+    assertEquals(7, ints[0]);
+  }
+
+  public void testByteBufferData_readLine() {
+    ByteBufferDataInput in = ByteStreams.newDataInput(
+        ByteBuffer.wrap("a\nb\r\nc\rd".getBytes()));
+    assertEquals("a", in.readLine());
+    assertEquals("b", in.readLine());
+    assertEquals("c", in.readLine());
+    assertEquals("d", in.readLine());
+    assertNull(in.readLine());
+  }
+
   public void testLength() throws IOException {
     lengthHelper(Long.MAX_VALUE);
     lengthHelper(7);
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.base.Charsets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for {@link CharsetCodecs}, and the methods of {@link Files} that use
+ * it.
+ */
+public class CharsetCodecsTest extends IoTestCase {
+  private static final Charset[] CHARSETS = {
+    Charsets.UTF_8, Charsets.US_ASCII, Charsets.ISO_8859_1, Charsets.UTF_16,
+  };
+
+  private static final String MIXED =
+      "a\u00e9\u0100\ud83d\ude00\ud800b\udc00" + I18N;
+
+  public void testEncode() throws IOException {
+    for (Charset charset : CHARSETS) {
+      for (String string : new String[] {"", ASCII, MIXED}) {
+        assertTrue(charset + ": " + string, Arrays.equals(
+            string.getBytes(charset.name()),
+            CharsetCodecs.encode(string, charset)));
+      }
+    }
+  }
+
+  public void testDecode() throws IOException {
+    Random random = new Random(0);
+    for (Charset charset : CHARSETS) {
+      for (int i = 0; i < 100; i++) {
+        byte[] bytes = new byte[random.nextInt(100) + 2];
+        random.nextBytes(bytes);
+        assertEquals(new String(bytes, 1, bytes.length - 2, charset.name()),
+            CharsetCodecs.decode(bytes, 1, bytes.length - 2, charset));
+      }
+    }
+  }
+
+  public void testFilesRoundTrip() throws IOException {
+    File file = File.createTempFile("CharsetCodecsTest", ".txt");
+    try {
+      for (Charset charset : CHARSETS) {
+        Files.write(MIXED, file, charset);
+        assertTrue(Arrays.equals(MIXED.getBytes(charset.name()),
+            Files.toByteArray(file)));
+        Files.append(ASCII, file, charset);
+        assertEquals(new String(Files.toByteArray(file), charset.name()),
+            Files.toString(file, charset));
+      }
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+}
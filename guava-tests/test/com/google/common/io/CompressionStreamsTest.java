@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Tests for {@link CompressionStreams}.
+ */
+public class CompressionStreamsTest extends IoTestCase {
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  @Override protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    super.tearDown();
+  }
+
+  public void testGzipSuppliers() throws IOException {
+    byte[] data = newPreFilledByteArray(100000);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputSupplier<GZIPOutputStream> out =
+        CompressionStreams.newGzipOutputStreamSupplier(supplierOf(compressed));
+    ByteStreams.write(data, out);
+    assertTrue(compressed.size() < data.length);
+
+    InputSupplier<GZIPInputStream> in =
+        CompressionStreams.newGzipInputStreamSupplier(
+            ByteStreams.newInputStreamSupplier(compressed.toByteArray()));
+    assertTrue(Arrays.equals(data, ByteStreams.toByteArray(in)));
+  }
+
+  public void testGzipInputSupplier_closesOnBadHeader() throws IOException {
+    CheckCloseSupplier.Input<InputStream> garbage =
+        new CheckCloseSupplier.Input<InputStream>(
+            ByteStreams.newInputStreamSupplier(new byte[] {1, 2, 3})) {
+          @Override protected InputStream wrap(InputStream object,
+              final Callback callback) {
+            return new FilterInputStream(object) {
+              @Override public void close() throws IOException {
+                callback.delegateClosed();
+                super.close();
+              }
+            };
+          }
+        };
+    try {
+      CompressionStreams.newGzipInputStreamSupplier(garbage).getInput();
+      fail();
+    } catch (IOException expected) {
+    }
+    assertTrue(garbage.areClosed());
+  }
+
+  public void testDeflaterSuppliers() throws IOException {
+    byte[] data = newPreFilledByteArray(100000);
+    for (int level : new int[] {
+        Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION,
+        Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION}) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      OutputSupplier<DeflaterOutputStream> out =
+          CompressionStreams.newDeflaterOutputStreamSupplier(
+              supplierOf(compressed), level);
+      ByteStreams.write(data, out);
+
+      InputSupplier<InflaterInputStream> in =
+          CompressionStreams.newInflaterInputStreamSupplier(
+              ByteStreams.newInputStreamSupplier(compressed.toByteArray()));
+      assertTrue(Arrays.equals(data, ByteStreams.toByteArray(in)));
+    }
+  }
+
+  public void testInvalidLevel() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      CompressionStreams.newDeflaterOutputStreamSupplier(supplierOf(out), 10);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CompressionStreams.newParallelGzipOutputStream(out, executor, 10, -2, 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testParallelGzip_invalidArguments() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      CompressionStreams.newParallelGzipOutputStream(out, executor, 0, 1, 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CompressionStreams.newParallelGzipOutputStream(out, executor, 1, 1, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testParallelGzip() throws IOException {
+    byte[] data = newPreFilledByteArray(50000);
+    for (int blockSize : new int[] {1, 777, 4096, 100000}) {
+      for (int maxPending : new int[] {1, 2, 16}) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = CompressionStreams.newParallelGzipOutputStream(
+            compressed, executor, blockSize, Deflater.BEST_SPEED, maxPending);
+        out.write(data, 0, 1000);
+        out.write(data[1000]);
+        out.write(data, 1001, data.length - 1001);
+        out.close();
+        assertTrue(Arrays.equals(data, gunzip(compressed.toByteArray())));
+      }
+    }
+  }
+
+  public void testParallelGzip_default() throws IOException {
+    byte[] data = newPreFilledByteArray(1000000);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream out =
+        CompressionStreams.newParallelGzipOutputStream(compressed, executor);
+    out.write(data);
+    out.close();
+    assertTrue(compressed.size() < data.length);
+    assertTrue(Arrays.equals(data, gunzip(compressed.toByteArray())));
+  }
+
+  public void testParallelGzip_empty() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressionStreams.newParallelGzipOutputStream(compressed, executor)
+        .close();
+    assertTrue(compressed.size() > 0);
+    assertEquals(0, gunzip(compressed.toByteArray()).length);
+  }
+
+  public void testParallelGzip_flush() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream out = CompressionStreams.newParallelGzipOutputStream(
+        compressed, MoreExecutors.sameThreadExecutor(), 1000,
+        Deflater.DEFAULT_COMPRESSION, 4);
+    out.write(newPreFilledByteArray(10));
+    assertEquals(0, compressed.size());
+    out.flush();
+    assertTrue(Arrays.equals(newPreFilledByteArray(10),
+        gunzip(compressed.toByteArray())));
+    out.write(newPreFilledByteArray(10, 5));
+    out.close();
+    assertTrue(Arrays.equals(newPreFilledByteArray(15),
+        gunzip(compressed.toByteArray())));
+  }
+
+  public void testParallelGzip_writeAfterClose() throws IOException {
+    OutputStream out = CompressionStreams.newParallelGzipOutputStream(
+        new ByteArrayOutputStream(), executor);
+    out.close();
+    out.close();
+    try {
+      out.write(1);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  private static byte[] gunzip(byte[] compressed) throws IOException {
+    return ByteStreams.toByteArray(
+        CompressionStreams.newGzipInputStreamSupplier(
+            ByteStreams.newInputStreamSupplier(compressed)));
+  }
+
+  private static OutputSupplier<OutputStream> supplierOf(
+      final OutputStream out) {
+    return new OutputSupplier<OutputStream>() {
+      @Override public OutputStream getOutput() {
+        return out;
+      }
+    };
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link Files#readLinesInParallel}.
+ */
+public class FilesReadLinesInParallelTest extends IoTestCase {
+  private static final Supplier<LineProcessor<List<String>>> COLLECTORS =
+      new Supplier<LineProcessor<List<String>>>() {
+        @Override public LineProcessor<List<String>> get() {
+          return new LineProcessor<List<String>>() {
+            final List<String> lines = Lists.newArrayList();
+
+            @Override public boolean processLine(String line) {
+              lines.add(line);
+              return true;
+            }
+
+            @Override public List<String> getResult() {
+              return lines;
+            }
+          };
+        }
+      };
+
+  private static final Function<List<List<String>>, List<String>> CONCAT =
+      new Function<List<List<String>>, List<String>>() {
+        @Override public List<String> apply(List<List<String>> chunks) {
+          return Lists.newArrayList(Iterables.concat(chunks));
+        }
+      };
+
+  private static final Function<List<List<String>>, Integer> CHUNK_COUNT =
+      new Function<List<List<String>>, Integer>() {
+        @Override public Integer apply(List<List<String>> chunks) {
+          return chunks.size();
+        }
+      };
+
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+  private File file;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("FilesReadLinesInParallelTest", ".txt");
+  }
+
+  @Override protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    file.delete();
+    super.tearDown();
+  }
+
+  public void testEmptyFile() throws Exception {
+    Files.write(new byte[0], file);
+    assertEquals(Lists.newArrayList(), readLines(Charsets.UTF_8, 10));
+    assertEquals(1, (int) Files.readLinesInParallel(file, Charsets.UTF_8,
+        COLLECTORS, CHUNK_COUNT, executor, 10).get(10, SECONDS));
+  }
+
+  public void testChunkBoundaries() throws Exception {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append(i % 7 == 0 ? I18N : "line" + i);
+      builder.append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    builder.append("last");
+    Files.write(builder.toString(), file, Charsets.UTF_8);
+    List<String> expected = Files.readLines(file, Charsets.UTF_8);
+    for (int chunkSize = 1; chunkSize < 40; chunkSize++) {
+      assertEquals("chunkSize: " + chunkSize,
+          expected, readLines(Charsets.UTF_8, chunkSize));
+    }
+    assertEquals(expected, Files.readLinesInParallel(file, Charsets.UTF_8,
+        COLLECTORS, CONCAT, executor).get(10, SECONDS));
+  }
+
+  public void testChunkCount() throws Exception {
+    Files.write("aaaa\nbbbb\ncccc\n", file, Charsets.UTF_8);
+    assertEquals(3, (int) Files.readLinesInParallel(file, Charsets.UTF_8,
+        COLLECTORS, CHUNK_COUNT, executor, 5).get(10, SECONDS));
+  }
+
+  public void testUnsupportedCharset() throws Exception {
+    Files.write("foo\nbar\r\nbaz", file, Charsets.UTF_16);
+    assertEquals(Lists.newArrayList("foo", "bar", "baz"),
+        readLines(Charsets.UTF_16, 2));
+    assertEquals(1, (int) Files.readLinesInParallel(file, Charsets.UTF_16,
+        COLLECTORS, CHUNK_COUNT, executor, 2).get(10, SECONDS));
+  }
+
+  public void testFailure() throws Exception {
+    Files.write("a\nb\nc\n", file, Charsets.UTF_8);
+    Supplier<LineProcessor<List<String>>> failing =
+        new Supplier<LineProcessor<List<String>>>() {
+          @Override public LineProcessor<List<String>> get() {
+            return new LineProcessor<List<String>>() {
+              @Override public boolean processLine(String line)
+                  throws IOException {
+                if (line.equals("b")) {
+                  throw new IOException("b");
+                }
+                return true;
+              }
+
+              @Override public List<String> getResult() {
+                return null;
+              }
+            };
+          }
+        };
+    try {
+      Files.readLinesInParallel(file, Charsets.UTF_8, failing, CONCAT,
+          executor, 2).get(10, SECONDS);
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof IOException);
+    }
+  }
+
+  public void testInvalidChunkSize() {
+    try {
+      Files.readLinesInParallel(
+          file, Charsets.UTF_8, COLLECTORS, CONCAT, executor, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private List<String> readLines(Charset charset, long chunkSize)
+      throws Exception {
+    return Files.readLinesInParallel(
+        file, charset, COLLECTORS, CONCAT, executor, chunkSize)
+        .get(10, SECONDS);
+  }
+}
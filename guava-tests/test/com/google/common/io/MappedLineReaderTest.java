@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Tests for {@link MappedLineReader} and {@link Files#readMappedLines}.
+ */
+public class MappedLineReaderTest extends IoTestCase {
+  private File file;
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("MappedLineReaderTest", ".txt");
+  }
+
+  @Override protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+  public void testLineTerminators() throws IOException {
+    assertLines("");
+    assertLines("\n");
+    assertLines("a");
+    assertLines("a\n");
+    assertLines("a\r");
+    assertLines("a\r\n");
+    assertLines("a\n\rb");
+    assertLines("a\r\r\nb\n\n");
+    assertLines("\r\n\r\n\n\r");
+    assertLines("foo\nbar\r\nbaz\rqux");
+  }
+
+  public void testNonAscii() throws IOException {
+    assertLines(I18N);
+    assertLines(I18N + "\n" + ASCII + "\r\n" + I18N + "\r" + I18N);
+    assertLines("\u00e9\n\ud83d\ude00\r\n\u4e2d\u6587");
+  }
+
+  public void testLongLines() throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < i; j++) {
+        builder.append(j % 2 == 0 ? 'x' : '\u00e9');
+      }
+      builder.append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    assertLines(builder.toString());
+  }
+
+  public void testLatin1() throws IOException {
+    byte[] bytes = {'a', (byte) 0xe9, '\n', (byte) 0xff};
+    Files.write(bytes, file);
+    assertEquals(Lists.newArrayList("a\u00e9", "\u00ff"),
+        readMappedLines(Charsets.ISO_8859_1, 3));
+  }
+
+  public void testMalformed() throws IOException {
+    byte[] bytes = {'a', (byte) 0xff, 'b', '\n', (byte) 0xc3};
+    Files.write(bytes, file);
+    assertEquals(Files.readLines(file, Charsets.UTF_8),
+        readMappedLines(Charsets.UTF_8, 2));
+    assertEquals(Files.readLines(file, Charsets.US_ASCII),
+        readMappedLines(Charsets.US_ASCII, 2));
+  }
+
+  public void testRegion() throws IOException {
+    Files.write("skip\nfoo\nbar\nskip", file, Charsets.UTF_8);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      MappedLineReader reader = new MappedLineReader(
+          raf.getChannel(), 5, 13, Charsets.UTF_8, 3);
+      assertEquals(Lists.newArrayList("foo", "bar"),
+          reader.readLines(new CollectingProcessor()));
+    } finally {
+      raf.close();
+    }
+  }
+
+  public void testStopEarly() throws IOException {
+    Files.write("a\nb\nc\n", file, Charsets.UTF_8);
+    List<String> result = Files.readMappedLines(file, Charsets.UTF_8,
+        new CharSequenceLineProcessor<List<String>>() {
+          final List<String> lines = Lists.newArrayList();
+
+          @Override public boolean processLine(CharSequence line) {
+            lines.add(line.toString());
+            return lines.size() < 2;
+          }
+
+          @Override public List<String> getResult() {
+            return lines;
+          }
+        });
+    assertEquals(Lists.newArrayList("a", "b"), result);
+  }
+
+  public void testUnsupportedCharset() throws IOException {
+    String text = "foo\r\nbar\n" + I18N;
+    Files.write(text, file, Charsets.UTF_16);
+    assertFalse(MappedLineReader.isSupported(Charsets.UTF_16));
+    assertEquals(Files.readLines(file, Charsets.UTF_16),
+        Files.readMappedLines(file, Charsets.UTF_16,
+            new CollectingProcessor()));
+  }
+
+  public void testCharSequenceView() throws IOException {
+    Files.write("abc\n\u00e9\u00e8\n", file, Charsets.UTF_8);
+    Files.readMappedLines(file, Charsets.UTF_8,
+        new CharSequenceLineProcessor<Void>() {
+          @Override public boolean processLine(CharSequence line) {
+            assertEquals(line.toString().substring(1),
+                line.subSequence(1, line.length()).toString());
+            assertEquals(line.toString().charAt(0), line.charAt(0));
+            try {
+              line.charAt(line.length());
+              fail();
+            } catch (IndexOutOfBoundsException expected) {
+            }
+            return true;
+          }
+
+          @Override public Void getResult() {
+            return null;
+          }
+        });
+  }
+
+  private void assertLines(String text) throws IOException {
+    Files.write(text, file, Charsets.UTF_8);
+    List<String> expected = Files.readLines(file, Charsets.UTF_8);
+    for (int windowSize = 1; windowSize <= 9; windowSize++) {
+      assertEquals("windowSize: " + windowSize,
+          expected, readMappedLines(Charsets.UTF_8, windowSize));
+    }
+    assertEquals(expected, Files.readMappedLines(file, Charsets.UTF_8,
+        new CollectingProcessor()));
+  }
+
+  private List<String> readMappedLines(Charset charset, int windowSize)
+      throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return new MappedLineReader(raf.getChannel(), 0, raf.length(), charset,
+          windowSize).readLines(new CollectingProcessor());
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static class CollectingProcessor
+      implements CharSequenceLineProcessor<List<String>> {
+    final List<String> lines = Lists.newArrayList();
+
+    @Override public boolean processLine(CharSequence line) {
+      lines.add(line.toString());
+      return true;
+    }
+
+    @Override public List<String> getResult() {
+      return lines;
+    }
+  }
+}
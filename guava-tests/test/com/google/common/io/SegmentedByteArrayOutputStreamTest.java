@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link SegmentedByteArrayOutputStream}.
+ */
+public class SegmentedByteArrayOutputStreamTest extends IoTestCase {
+
+  public void testEmpty() throws IOException {
+    SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream();
+    assertEquals(0, out.size());
+    assertEquals(0, out.toByteArray().length);
+    assertEquals(-1, out.getSupplier().getInput().read());
+    ByteBuffer[] buffers = out.toByteBuffers();
+    assertEquals(1, buffers.length);
+    assertFalse(buffers[0].hasRemaining());
+  }
+
+  public void testWrites() throws IOException {
+    for (int initialSize : new int[] {0, 1, 7, 100}) {
+      for (int maxSegmentSize : new int[] {1, 3, 16, 1000}) {
+        SegmentedByteArrayOutputStream out =
+            new SegmentedByteArrayOutputStream(initialSize, maxSegmentSize);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte[] data = newPreFilledByteArray(300);
+        for (int i = 0; i < 20; i++) {
+          out.write(i);
+          expected.write(i);
+          out.write(data, i, i * 7);
+          expected.write(data, i, i * 7);
+        }
+        assertEquals(expected.size(), out.size());
+        assertContents(expected.toByteArray(), out);
+      }
+    }
+  }
+
+  public void testInvalidArguments() {
+    try {
+      new SegmentedByteArrayOutputStream(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new SegmentedByteArrayOutputStream(10, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new SegmentedByteArrayOutputStream().write(new byte[2], 1, 2);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  public void testSupplierReadsSnapshot() throws IOException {
+    SegmentedByteArrayOutputStream out =
+        new SegmentedByteArrayOutputStream(2, 4);
+    out.write(newPreFilledByteArray(10));
+    InputStream in = out.getSupplier().getInput();
+    out.write(newPreFilledByteArray(10, 10));
+    assertTrue(Arrays.equals(newPreFilledByteArray(10),
+        ByteStreams.toByteArray(in)));
+    assertTrue(Arrays.equals(newPreFilledByteArray(20),
+        ByteStreams.toByteArray(out.getSupplier())));
+  }
+
+  public void testSkip() throws IOException {
+    SegmentedByteArrayOutputStream out =
+        new SegmentedByteArrayOutputStream(1, 3);
+    out.write(newPreFilledByteArray(20));
+    InputStream in = out.getSupplier().getInput();
+    assertEquals(0, in.read());
+    assertEquals(5, in.skip(5));
+    assertEquals(6, in.read());
+    assertEquals(13, in.available());
+    assertEquals(13, in.skip(100));
+    assertEquals(-1, in.read());
+    assertEquals(0, in.skip(1));
+  }
+
+  public void testReset() throws IOException {
+    SegmentedByteArrayOutputStream out =
+        new SegmentedByteArrayOutputStream(4, 4);
+    out.write(newPreFilledByteArray(10));
+    out.reset();
+    assertEquals(0, out.size());
+    out.write(newPreFilledByteArray(5, 6));
+    assertContents(newPreFilledByteArray(5, 6), out);
+  }
+
+  public void testByteBuffersAreReadOnly() {
+    SegmentedByteArrayOutputStream out = new SegmentedByteArrayOutputStream();
+    out.write(1);
+    assertTrue(out.toByteBuffers()[0].isReadOnly());
+  }
+
+  public void testNewDataOutputUsesSegments() {
+    ByteArrayDataOutput out = ByteStreams.newDataOutput(1);
+    for (int i = 0; i < 100000; i++) {
+      out.writeInt(i);
+    }
+    byte[] bytes = out.toByteArray();
+    assertEquals(400000, bytes.length);
+    ByteArrayDataInput in = ByteStreams.newDataInput(bytes);
+    for (int i = 0; i < 100000; i++) {
+      assertEquals(i, in.readInt());
+    }
+  }
+
+  private static void assertContents(byte[] expected,
+      SegmentedByteArrayOutputStream out) throws IOException {
+    assertTrue(Arrays.equals(expected, out.toByteArray()));
+    assertTrue(Arrays.equals(expected,
+        ByteStreams.toByteArray(out.getSupplier())));
+
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    out.writeTo(written);
+    assertTrue(Arrays.equals(expected, written.toByteArray()));
+
+    ByteArrayOutputStream gathered = new ByteArrayOutputStream();
+    for (ByteBuffer buffer : out.toByteBuffers()) {
+      while (buffer.hasRemaining()) {
+        gathered.write(buffer.get());
+      }
+    }
+    assertTrue(Arrays.equals(expected, gathered.toByteArray()));
+
+    InputStream in = out.getSupplier().getInput();
+    for (byte b : expected) {
+      assertEquals(b & 0xFF, in.read());
+    }
+    assertEquals(-1, in.read());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.net;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.escape.Escaper;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Tests for {@link UrlEscapers} and {@link PercentEscaper}.
+ */
+@GwtCompatible
+public class UrlEscapersTest extends TestCase {
+
+  public void testUrlFormParameterEscaper() {
+    Escaper escaper = UrlEscapers.urlFormParameterEscaper();
+    String safe = "abcXYZ019-_.*";
+    assertSame(safe, escaper.escape(safe));
+    assertEquals("a+b%2Bc%26d%3De", escaper.escape("a b+c&d=e"));
+    assertEquals("%2F%3F%23%25%7E", escaper.escape("/?#%~"));
+    // One-, two-, three- and four-byte UTF-8 sequences.
+    assertEquals("%00%C3%A9%E2%82%AC%F0%9F%98%80",
+        escaper.escape("\u0000\u00e9\u20ac\ud83d\ude00"));
+  }
+
+  public void testUrlPathSegmentEscaper() {
+    Escaper escaper = UrlEscapers.urlPathSegmentEscaper();
+    String safe = "a-._~!$'()*,;&=@:+b";
+    assertSame(safe, escaper.escape(safe));
+    assertEquals("a%20b%2Fc%3Fd%23", escaper.escape("a b/c?d#"));
+  }
+
+  public void testUrlFragmentEscaper() {
+    Escaper escaper = UrlEscapers.urlFragmentEscaper();
+    String safe = "a/b?c+d";
+    assertSame(safe, escaper.escape(safe));
+    assertEquals("a%20b%23%25", escaper.escape("a b#%"));
+  }
+
+  public void testAppendable() throws IOException {
+    StringBuilder out = new StringBuilder();
+    UrlEscapers.urlFormParameterEscaper().escape(out)
+        .append("q=")
+        .append('\ud83d')
+        .append('\ude00')
+        .append(" x");
+    assertEquals("q%3D%F0%9F%98%80+x", out.toString());
+  }
+
+  public void testPercentEscaper_invalidSafeChars() {
+    try {
+      new PercentEscaper("-a", false);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new PercentEscaper(" ", true);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testPercentEscaper_badSurrogates() {
+    try {
+      UrlEscapers.urlPathSegmentEscaper().escape("a\ud800");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
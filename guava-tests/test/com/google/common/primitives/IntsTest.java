@@ -291,6 +291,8 @@ public class IntsTest extends TestCase {
     assertEquals("1,2", Ints.join(",", (int) 1, (int) 2));
     assertEquals("123",
         Ints.join("", (int) 1, (int) 2, (int) 3));
+    assertEquals("-2147483648, 0, -7, 2147483647, 10",
+        Ints.join(", ", Integer.MIN_VALUE, 0, -7, Integer.MAX_VALUE, 10));
   }
 
   public void testLexicographicalComparator() {
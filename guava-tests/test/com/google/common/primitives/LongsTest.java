@@ -271,6 +271,8 @@ public class LongsTest extends TestCase {
     assertEquals("1,2", Longs.join(",", (long) 1, (long) 2));
     assertEquals("123",
         Longs.join("", (long) 1, (long) 2, (long) 3));
+    assertEquals("-9223372036854775808, 0, -7, 9223372036854775807, 10",
+        Longs.join(", ", Long.MIN_VALUE, 0, -7, Long.MAX_VALUE, 10));
   }
 
   public void testLexicographicalComparator() {
@@ -54,9 +54,12 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
 
@@ -1907,6 +1910,137 @@ public class FuturesTest extends TestCase {
     }
   }
 
+  public void testFirstCompletedOf_value() throws Exception {
+    SettableFuture<String> future1 = SettableFuture.create();
+    SettableFuture<String> future2 = SettableFuture.create();
+    @SuppressWarnings("unchecked") // array is never modified
+    ListenableFuture<String> first =
+        Futures.firstCompletedOf(future1, future2);
+    assertFalse(first.isDone());
+    future2.set(DATA2);
+    assertEquals(DATA2, first.get());
+    future1.set(DATA1);
+    assertEquals(DATA2, first.get());
+    assertFalse(future1.isCancelled());
+  }
+
+  public void testFirstCompletedOf_exception() throws Exception {
+    SettableFuture<String> future1 = SettableFuture.create();
+    SettableFuture<String> future2 = SettableFuture.create();
+    ListenableFuture<String> first =
+        Futures.firstCompletedOf(ImmutableList.of(future1, future2));
+    Throwable failure = new IOException();
+    future1.setException(failure);
+    future2.set(DATA2);
+    try {
+      first.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertSame(failure, expected.getCause());
+    }
+  }
+
+  public void testFirstCompletedOf_cancelled() throws Exception {
+    SettableFuture<String> future1 = SettableFuture.create();
+    SettableFuture<String> future2 = SettableFuture.create();
+    ListenableFuture<String> first =
+        Futures.firstCompletedOf(ImmutableList.of(future1, future2));
+    future1.cancel(true);
+    assertTrue(first.isCancelled());
+  }
+
+  public void testFirstCompletedOf_alreadyDone() throws Exception {
+    SettableFuture<String> pending = SettableFuture.create();
+    ListenableFuture<String> first = Futures.firstCompletedOf(
+        ImmutableList.of(immediateFuture(DATA1), pending));
+    assertEquals(DATA1, first.get());
+  }
+
+  public void testFirstCompletedOf_empty() {
+    try {
+      Futures.firstCompletedOf(
+          ImmutableList.<ListenableFuture<String>>of());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testWithTimeout_completesInTime() throws Exception {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    try {
+      SettableFuture<String> delegate = SettableFuture.create();
+      ListenableFuture<String> timed =
+          Futures.withTimeout(delegate, 10, SECONDS, executor);
+      delegate.set(DATA1);
+      assertEquals(DATA1, timed.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testWithTimeout_timesOut() throws Exception {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    try {
+      final SettableFuture<String> delegate = SettableFuture.create();
+      final CountDownLatch delegateDone = new CountDownLatch(1);
+      delegate.addListener(new Runnable() {
+        @Override public void run() {
+          delegateDone.countDown();
+        }
+      }, MoreExecutors.sameThreadExecutor());
+      ListenableFuture<String> timed =
+          Futures.withTimeout(delegate, 1, MILLISECONDS, executor);
+      try {
+        timed.get(10, SECONDS);
+        fail();
+      } catch (ExecutionException expected) {
+        assertTrue(expected.getCause() instanceof TimeoutException);
+      }
+      // The delegate is cancelled just after the timeout is reported.
+      assertTrue(delegateDone.await(10, SECONDS));
+      assertTrue(delegate.isCancelled());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testWithTimeout_cancelPropagates() throws Exception {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    try {
+      SettableFuture<String> delegate = SettableFuture.create();
+      ListenableFuture<String> timed =
+          Futures.withTimeout(delegate, 10, SECONDS, executor);
+      timed.cancel(false);
+      assertTrue(delegate.isCancelled());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testWithTimeout_cancelWithInterruptionPropagates()
+      throws Exception {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    try {
+      final AtomicBoolean interrupted = new AtomicBoolean();
+      AbstractFuture<String> delegate = new AbstractFuture<String>() {
+        @Override protected void interruptTask() {
+          interrupted.set(true);
+        }
+      };
+      ListenableFuture<String> timed =
+          Futures.withTimeout(delegate, 10, SECONDS, executor);
+      assertTrue(timed.cancel(true));
+      assertTrue(delegate.isCancelled());
+      assertTrue(interrupted.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   public void testNullArguments() throws Exception {
     NullPointerTester tester = new NullPointerTester();
     tester.setDefault(ListenableFuture.class, Futures.immediateFuture(DATA1));
@@ -1914,6 +2048,8 @@ public class FuturesTest extends TestCase {
         new ListenableFuture[] {Futures.immediateFuture(DATA1)});
     tester.setDefault(Future.class, Futures.immediateFuture(DATA1));
     tester.setDefault(Executor.class, MoreExecutors.sameThreadExecutor());
+    tester.setDefault(ScheduledExecutorService.class,
+        Executors.newSingleThreadScheduledExecutor());
     tester.setDefault(Callable.class, Callables.returning(null));
     tester.setDefault(AsyncFunction.class, new AsyncFunction() {
       @Override
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.util.concurrent.LogLinearHistogram.BUCKETS;
+import static com.google.common.util.concurrent.LogLinearHistogram.bucketIndex;
+import static com.google.common.util.concurrent.LogLinearHistogram.lowerBound;
+import static com.google.common.util.concurrent.LogLinearHistogram.upperBound;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Unit test for {@link LogLinearHistogram}.
+ */
+public class LogLinearHistogramTest extends TestCase {
+
+  public void testBucketsAreContiguous() {
+    assertEquals(0, lowerBound(0));
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      assertEquals(upperBound(i) + 1, lowerBound(i + 1));
+      assertEquals(i, bucketIndex(lowerBound(i)));
+      assertEquals(i, bucketIndex(upperBound(i)));
+    }
+    assertEquals(BUCKETS - 1, bucketIndex(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, upperBound(BUCKETS - 1));
+  }
+
+  public void testRelativeBucketWidth() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextLong() >>> (1 + random.nextInt(63));
+      int index = bucketIndex(value);
+      assertTrue(lowerBound(index) <= value && value <= upperBound(index));
+      if (value >= LogLinearHistogram.SUB_BUCKETS) {
+        long width = upperBound(index) - lowerBound(index) + 1;
+        assertTrue(width <= lowerBound(index) / LogLinearHistogram.SUB_BUCKETS);
+      }
+    }
+  }
+
+  public void testSnapshotSumsStripes() throws InterruptedException {
+    final LogLinearHistogram histogram = new LogLinearHistogram(4);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override public void run() {
+          for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    NamedTimer.Snapshot snapshot = histogram.snapshot();
+    assertEquals(4000, snapshot.count());
+    assertEquals(4 * 500500, snapshot.total(NANOSECONDS));
+    assertEquals(1, snapshot.min(NANOSECONDS));
+    assertEquals(1000, snapshot.max(NANOSECONDS));
+  }
+
+  public void testSnapshotDuringRecording() {
+    LogLinearHistogram histogram = new LogLinearHistogram(1);
+    // A value counted, but not yet reflected in the minimum and maximum.
+    histogram.countValue(1000);
+    NamedTimer.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1, snapshot.count());
+    assertEquals(lowerBound(bucketIndex(1000)), snapshot.min(NANOSECONDS));
+    assertTrue(snapshot.min(NANOSECONDS) <= snapshot.max(NANOSECONDS));
+    assertTrue(snapshot.percentile(50, NANOSECONDS)
+        <= snapshot.max(NANOSECONDS));
+
+    histogram.record(5);
+    histogram.countValue(100000);
+    snapshot = histogram.snapshot();
+    assertEquals(5, snapshot.min(NANOSECONDS));
+    assertTrue(snapshot.max(NANOSECONDS) >= 1000);
+    assertTrue(snapshot.percentile(100, NANOSECONDS)
+        <= snapshot.max(NANOSECONDS));
+  }
+}
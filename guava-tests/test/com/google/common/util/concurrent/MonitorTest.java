@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for guard dependencies and statistics of {@link Monitor}.
+ */
+public class MonitorTest extends TestCase {
+  private static final int A = 1 << 0;
+  private static final int B = 1 << 1;
+
+  private final Monitor monitor = new Monitor();
+  private int a;
+  private int b;
+
+  private final CountingGuard aPositive = new CountingGuard(A) {
+    @Override boolean evaluate() {
+      return a > 0;
+    }
+  };
+
+  private final CountingGuard bPositive = new CountingGuard(B) {
+    @Override boolean evaluate() {
+      return b > 0;
+    }
+  };
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @Override protected void tearDown() {
+    executor.shutdownNow();
+  }
+
+  public void testGuardWithoutDependencies() {
+    try {
+      new Monitor.Guard(monitor, 0) {
+        @Override public boolean isSatisfied() {
+          return true;
+        }
+      };
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testStateChangedRequiresOccupation() {
+    try {
+      monitor.stateChanged(A);
+      fail();
+    } catch (IllegalMonitorStateException expected) {
+    }
+  }
+
+  public void testUnaffectedGuardNotEvaluated() throws Exception {
+    Future<?> aWaiter = waitFor(aPositive);
+    Future<?> bWaiter = waitFor(bPositive);
+    awaitWaiters(aPositive, bPositive);
+    int aEvaluations = aPositive.evaluations;
+
+    monitor.enter();
+    try {
+      b++;
+      monitor.stateChanged(B);
+    } finally {
+      monitor.leave();
+    }
+    bWaiter.get(10, SECONDS);
+    assertEquals(aEvaluations, aPositive.evaluations);
+    assertFalse(aWaiter.isDone());
+
+    monitor.enter();
+    try {
+      a++;
+      monitor.stateChanged(A);
+    } finally {
+      monitor.leave();
+    }
+    aWaiter.get(10, SECONDS);
+  }
+
+  public void testUnreportedChangesEvaluateAllGuards() throws Exception {
+    Future<?> aWaiter = waitFor(aPositive);
+    Future<?> bWaiter = waitFor(bPositive);
+    awaitWaiters(aPositive, bPositive);
+
+    // Both conditions become true, but nothing is reported.
+    monitor.enter();
+    try {
+      a++;
+      b++;
+    } finally {
+      monitor.leave();
+    }
+    aWaiter.get(10, SECONDS);
+    bWaiter.get(10, SECONDS);
+  }
+
+  public void testPendingChangesSurviveSignal() throws Exception {
+    Future<?> aWaiter = waitFor(aPositive);
+    Future<?> bWaiter = waitFor(bPositive);
+    awaitWaiters(aPositive, bPositive);
+
+    // One leave makes both guards satisfied; only one waiter can be signaled
+    // by it, and the other must be signaled when the first leaves.
+    monitor.enter();
+    try {
+      a++;
+      b++;
+      monitor.stateChanged(A | B);
+    } finally {
+      monitor.leave();
+    }
+    aWaiter.get(10, SECONDS);
+    bWaiter.get(10, SECONDS);
+  }
+
+  public void testEntryAndWaitCounts() throws Exception {
+    assertEquals(0, monitor.getEntryCount());
+    monitor.enter();
+    monitor.enter();
+    monitor.leave();
+    monitor.leave();
+    assertEquals(2, monitor.getEntryCount());
+
+    assertFalse(monitor.enterWhen(aPositive, 1, MILLISECONDS));
+    assertEquals(1, monitor.getWaitCount());
+    assertEquals(0, monitor.getSpuriousWakeupCount());
+  }
+
+  public void testSpuriousWakeupCount() throws Exception {
+    Future<?> aWaiter = waitFor(aPositive);
+    awaitWaiters(aPositive);
+
+    // Claims to have changed A without making the guard true: the guard is
+    // evaluated by the leaving thread and found unsatisfied, so the waiter is
+    // not woken at all.
+    monitor.enter();
+    try {
+      monitor.stateChanged(A);
+    } finally {
+      monitor.leave();
+    }
+    assertEquals(0, monitor.getSpuriousWakeupCount());
+
+    monitor.enter();
+    try {
+      a++;
+      monitor.stateChanged(A);
+    } finally {
+      monitor.leave();
+    }
+    aWaiter.get(10, SECONDS);
+    assertEquals(0, monitor.getSpuriousWakeupCount());
+  }
+
+  private Future<?> waitFor(final Monitor.Guard guard) {
+    return executor.submit(new Callable<Void>() {
+      @Override public Void call() throws InterruptedException {
+        monitor.enterWhen(guard);
+        try {
+          monitor.stateChanged(0);
+        } finally {
+          monitor.leave();
+        }
+        return null;
+      }
+    });
+  }
+
+  private void awaitWaiters(Monitor.Guard... guards)
+      throws InterruptedException {
+    for (Monitor.Guard guard : guards) {
+      long deadline = System.nanoTime() + SECONDS.toNanos(10);
+      while (!monitor.hasWaiters(guard)) {
+        assertTrue(System.nanoTime() < deadline);
+        Thread.sleep(1);
+      }
+    }
+  }
+
+  private abstract class CountingGuard extends Monitor.Guard {
+    int evaluations;
+
+    CountingGuard(int dependencies) {
+      super(MonitorTest.this.monitor, dependencies);
+    }
+
+    abstract boolean evaluate();
+
+    @Override public boolean isSatisfied() {
+      evaluations++;
+      return evaluate();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit test for {@link NamedTimer}.
+ */
+public class NamedTimerTest extends TestCase {
+  private final FakeTicker ticker = new FakeTicker();
+  private final NamedTimer timer = new NamedTimer("test", ticker);
+
+  public void testStartStop() {
+    long start = timer.start();
+    ticker.advance(3, MILLISECONDS);
+    assertEquals(3000000, timer.stop(start));
+    start = timer.start();
+    ticker.advance(1, MILLISECONDS);
+    timer.stop(start);
+
+    NamedTimer.Snapshot snapshot = timer.snapshot();
+    assertEquals(2, snapshot.count());
+    assertEquals(4, snapshot.total(MILLISECONDS));
+    assertEquals(1, snapshot.min(MILLISECONDS));
+    assertEquals(3, snapshot.max(MILLISECONDS));
+    assertEquals(2, snapshot.mean(MILLISECONDS));
+    assertEquals(3000000, snapshot.percentile(100, NANOSECONDS));
+    long lowest = snapshot.percentile(0, NANOSECONDS);
+    assertTrue(lowest >= 1000000 && lowest <= 1000000 + 1000000 / 16);
+  }
+
+  public void testEmptySnapshot() {
+    NamedTimer.Snapshot snapshot = timer.snapshot();
+    assertEquals(0, snapshot.count());
+    assertEquals(0, snapshot.min(NANOSECONDS));
+    assertEquals(0, snapshot.max(NANOSECONDS));
+    assertEquals(0, snapshot.mean(NANOSECONDS));
+    assertEquals(0, snapshot.percentile(50, NANOSECONDS));
+  }
+
+  public void testRecord() {
+    timer.record(5, MICROSECONDS);
+    assertEquals(5000, timer.snapshot().max(NANOSECONDS));
+    try {
+      timer.record(-1, MICROSECONDS);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testPercentileAccuracy() {
+    Random random = new Random(0);
+    long[] durations = new long[10000];
+    for (int i = 0; i < durations.length; i++) {
+      durations[i] = (long) (Math.exp(random.nextGaussian() * 2 + 10));
+      timer.record(durations[i], NANOSECONDS);
+    }
+    Arrays.sort(durations);
+    NamedTimer.Snapshot snapshot = timer.snapshot();
+    for (double percent : new double[] {1, 25, 50, 90, 99, 99.9}) {
+      long exact = durations[(int) Math.ceil(percent / 100 * durations.length) - 1];
+      long estimate = snapshot.percentile(percent, NANOSECONDS);
+      assertTrue(estimate >= exact);
+      assertTrue(estimate - exact <= exact / LogLinearHistogram.SUB_BUCKETS);
+    }
+    assertEquals(durations[durations.length - 1], snapshot.percentile(100, NANOSECONDS));
+  }
+
+  public void testInvalidPercentile() {
+    try {
+      timer.snapshot().percentile(100.5, NANOSECONDS);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testToString() {
+    timer.record(7, NANOSECONDS);
+    assertEquals("test: Snapshot{count=1, meanNanos=7, p50Nanos=7, p99Nanos=7, maxNanos=7}",
+        timer.toString());
+  }
+
+  public void testNullPointers() throws Exception {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(timer);
+    tester.testAllPublicInstanceMethods(timer.snapshot());
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter.SleepingTicker;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Tests for {@link RateLimiter}.
+ */
+public class RateLimiterTest extends TestCase {
+  private static final double EPSILON = 1e-8;
+
+  private final FakeSleepingTicker ticker = new FakeSleepingTicker();
+
+  public void testSimple() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    limiter.acquire(); // R0.00, since it's the first request
+    limiter.acquire(); // R0.20
+    limiter.acquire(); // R0.20
+    assertEvents("R0.00", "R0.20", "R0.20");
+  }
+
+  public void testImmediateTryAcquire() {
+    RateLimiter limiter = RateLimiter.create(1.0);
+    assertTrue("Unable to acquire initial permit", limiter.tryAcquire());
+    assertFalse("Capable of acquiring secondary permit", limiter.tryAcquire());
+  }
+
+  public void testSimpleRateUpdate() {
+    RateLimiter limiter = RateLimiter.create(5.0, 5, SECONDS);
+    assertEquals(5.0, limiter.getRate());
+    limiter.setRate(10.0);
+    assertEquals(10.0, limiter.getRate());
+
+    try {
+      limiter.setRate(0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      limiter.setRate(-10.0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testSimpleWithWait() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    limiter.acquire();          // R0.00
+    ticker.sleepMillis(200);    // U0.20, we are ready for the next request...
+    limiter.acquire();          // R0.00, ...which is granted immediately
+    limiter.acquire();          // R0.20
+    assertEvents("R0.00", "U0.20", "R0.00", "R0.20");
+  }
+
+  public void testOneSecondBurst() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    ticker.sleepMillis(1000); // max capacity reached
+    ticker.sleepMillis(1000); // this makes no difference
+    limiter.acquire(1); // R0.00, since it's the first request
+
+    limiter.acquire(1); // R0.00, from capacity
+    limiter.acquire(3); // R0.00, from capacity
+    limiter.acquire(1); // R0.00, concluding a burst of 5 permits
+
+    limiter.acquire(); // R0.20, capacity exhausted
+    assertEvents("U1.00", "U1.00",
+        "R0.00", "R0.00", "R0.00", "R0.00", // first request and burst
+        "R0.20");
+  }
+
+  public void testWarmUp() {
+    RateLimiter limiter = RateLimiter.create(ticker, 2.0, 4000, MILLISECONDS);
+    for (int i = 0; i < 8; i++) {
+      limiter.acquire(); // #1
+    }
+    ticker.sleepMillis(500); // #2: to repay for the last acquire
+    ticker.sleepMillis(4000); // #3: becomes cold again
+    for (int i = 0; i < 8; i++) {
+      limiter.acquire(); // // #4
+    }
+    ticker.sleepMillis(500); // #5: to repay for the last acquire
+    ticker.sleepMillis(2000); // #6: didn't get cold! It would take another 2 seconds to go cold
+    for (int i = 0; i < 8; i++) {
+      limiter.acquire(); // #7
+    }
+    assertEvents(
+        "R0.00, R1.38, R1.13, R0.88, R0.63, R0.50, R0.50, R0.50", // #1
+        "U0.50", // #2
+        "U4.00", // #3
+        "R0.00, R1.38, R1.13, R0.88, R0.63, R0.50, R0.50, R0.50", // #4
+        "U0.50", // #5
+        "U2.00", // #6
+        "R0.00, R0.50, R0.50, R0.50, R0.50, R0.50, R0.50, R0.50"); // #7
+  }
+
+  public void testWarmUpAndUpdate() {
+    RateLimiter limiter = RateLimiter.create(ticker, 2.0, 4000, MILLISECONDS);
+    for (int i = 0; i < 8; i++) {
+      limiter.acquire(); // // #1
+    }
+    ticker.sleepMillis(4500); // #2: back to cold state (warmup period + repay last acquire)
+    for (int i = 0; i < 3; i++) { // only three steps, we're somewhere in the warmup period
+      limiter.acquire(); // #3
+    }
+
+    limiter.setRate(4.0); // double the rate!
+    limiter.acquire(); // #4, we repay the debt of the last acquire (imposed by the old rate)
+    for (int i = 0; i < 4; i++) {
+      limiter.acquire(); // #5
+    }
+    ticker.sleepMillis(4250); // #6, back to cold state (warmup period + repay last acquire)
+    for (int i = 0; i < 11; i++) {
+      limiter.acquire(); // #7, showing off the warmup starting from totally cold
+    }
+
+    // make sure the areas (times) remain the same, while permits are different
+    assertEvents(
+        "R0.00, R1.38, R1.13, R0.88, R0.63, R0.50, R0.50, R0.50", // #1
+        "U4.50", // #2
+        "R0.00, R1.38, R1.13", // #3, after that the rate changes
+        "R0.88", // #4, this is what the throttling would be with the old rate
+        "R0.34, R0.28, R0.25, R0.25", // #5
+        "U4.25", // #6
+        "R0.00, R0.72, R0.66, R0.59, R0.53, R0.47, R0.41", // #7
+        "R0.34, R0.28, R0.25, R0.25"); // #7 (cont.), note, this matches #5
+  }
+
+  public void testBurstyAndUpdate() {
+    RateLimiter rateLimiter = RateLimiter.create(ticker, 1.0);
+    rateLimiter.acquire(1); // no wait
+    rateLimiter.acquire(1); // R1.00, to repay previous
+
+    rateLimiter.setRate(2.0); // update the rate!
+
+    rateLimiter.acquire(1); // R1.00, to repay previous (the previous was under the old rate!)
+    rateLimiter.acquire(2); // R0.50, to repay previous (now the rate takes effect)
+    rateLimiter.acquire(4); // R1.00, to repay previous (the previous was a request for 2)
+    rateLimiter.acquire(1); // R2.00, to repay previous (the previous was a request for 4)
+    assertEvents("R0.00", "R1.00", "R1.00", "R0.50", "R1.00", "R2.00");
+  }
+
+  public void testTimeWrapping() {
+    ticker.instant = Long.MAX_VALUE - SECONDS.toNanos(1); // 1 second before max value
+    RateLimiter limiter = RateLimiter.create(ticker, 1.0);
+    for (int i = 0; i < 4; i++) {
+      limiter.acquire();
+    }
+    // Without protection from overflow, the last wait value would have been huge,
+    // because "now" would have wrapped into a value near MIN_VALUE, and the limiter would think
+    // that the next request should be admitted far into the future
+    assertEvents("R0.00", "R1.00", "R1.00", "R1.00");
+  }
+
+  public void testTryAcquire_noWaitAllowed() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    assertTrue(limiter.tryAcquire(0, SECONDS));
+    assertFalse(limiter.tryAcquire(0, SECONDS));
+    assertFalse(limiter.tryAcquire(0, SECONDS));
+    ticker.sleepMillis(100);
+    assertFalse(limiter.tryAcquire(0, SECONDS));
+  }
+
+  public void testTryAcquire_someWaitAllowed() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    assertTrue(limiter.tryAcquire(0, SECONDS));
+    assertTrue(limiter.tryAcquire(200, MILLISECONDS));
+    assertFalse(limiter.tryAcquire(100, MILLISECONDS));
+    ticker.sleepMillis(100);
+    assertTrue(limiter.tryAcquire(100, MILLISECONDS));
+  }
+
+  public void testTryAcquire_overflow() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    assertTrue(limiter.tryAcquire(0, MICROSECONDS));
+    ticker.sleepMillis(100);
+    assertTrue(limiter.tryAcquire(Long.MAX_VALUE, MICROSECONDS));
+  }
+
+  public void testTryAcquire_negative() {
+    RateLimiter limiter = RateLimiter.create(ticker, 5.0);
+    assertTrue(limiter.tryAcquire(5, 0, SECONDS));
+    ticker.sleepMillis(900);
+    assertFalse(limiter.tryAcquire(1, Long.MIN_VALUE, SECONDS));
+    ticker.sleepMillis(100);
+    assertTrue(limiter.tryAcquire(1, -1, SECONDS));
+  }
+
+  public void testAcquireParameterValidation() {
+    RateLimiter limiter = RateLimiter.create(ticker, 999);
+    try {
+      limiter.acquire(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      limiter.tryAcquire(0, 1, SECONDS);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testAcquireAsync() throws Exception {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    try {
+      RateLimiter limiter = RateLimiter.create(ticker, 100.0);
+      ListenableFuture<Double> first = limiter.acquireAsync(1, executor);
+      assertTrue(first.isDone());
+      assertEquals(0.0, first.get(), EPSILON);
+
+      ListenableFuture<Double> second = limiter.acquireAsync(1, executor);
+      assertEquals(0.01, second.get(10, SECONDS), EPSILON);
+      // Nothing slept on the caller's thread.
+      assertEvents();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testAcquireAsync_rejected() {
+    ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor();
+    executor.shutdown();
+    RateLimiter limiter = RateLimiter.create(ticker, 100.0);
+    limiter.acquire();
+    try {
+      limiter.acquireAsync(1, executor);
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+    // The rejected request's permit was given back.
+    limiter.acquire();
+    assertEvents("R0.00", "R0.01");
+  }
+
+  public void testToString() {
+    RateLimiter limiter = RateLimiter.create(ticker, 2.0);
+    assertEquals("RateLimiter[stableRate=2.0qps]", limiter.toString());
+  }
+
+  private void assertEvents(String... events) {
+    assertEquals(Joiner.on(", ").join(events), ticker.readEventsAndClear());
+  }
+
+  private static class FakeSleepingTicker extends SleepingTicker {
+    long instant = 0L;
+    final List<String> events = Lists.newArrayList();
+
+    @Override
+    public long read() {
+      return instant;
+    }
+
+    void sleepMillis(int millis) {
+      sleepMicros("U", MILLISECONDS.toMicros(millis));
+    }
+
+    void sleepMicros(String caption, long micros) {
+      instant += MICROSECONDS.toNanos(micros);
+      events.add(caption + String.format("%3.2f", (micros / 1000000.0)));
+    }
+
+    @Override
+    public void sleepMicrosUninterruptibly(long micros) {
+      sleepMicros("R", micros);
+    }
+
+    String readEventsAndClear() {
+      try {
+        return events.toString().replace("[", "").replace("]", "");
+      } finally {
+        events.clear();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return events.toString();
+    }
+  }
+}
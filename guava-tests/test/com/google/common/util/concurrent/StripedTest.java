@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.testing.GcFinalization;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Tests for {@link Striped}.
+ */
+public class StripedTest extends TestCase {
+  private static List<Striped<?>> strongImplementations() {
+    return ImmutableList.of(
+        Striped.readWriteLock(100),
+        Striped.readWriteLock(256),
+        Striped.lock(100),
+        Striped.lock(256),
+        Striped.semaphore(100, 1),
+        Striped.semaphore(256, 1));
+  }
+
+  private static List<Striped<?>> weakImplementations() {
+    return ImmutableList.<Striped<?>>of(
+        Striped.lazyWeakReadWriteLock(50),
+        Striped.lazyWeakReadWriteLock(64),
+        Striped.lazyWeakLock(50),
+        Striped.lazyWeakLock(64),
+        Striped.lazyWeakSemaphore(50, 2),
+        Striped.lazyWeakSemaphore(64, 2));
+  }
+
+  private static Iterable<Striped<?>> allImplementations() {
+    return Iterables.concat(strongImplementations(), weakImplementations());
+  }
+
+  public void testNull() throws Exception {
+    for (Striped<?> striped : allImplementations()) {
+      new NullPointerTester().testAllPublicInstanceMethods(striped);
+    }
+  }
+
+  public void testSizes() {
+    // not bothering testing all variations, since we know they share
+    // implementations
+    assertTrue(Striped.lock(100).size() >= 100);
+    assertTrue(Striped.lock(256).size() == 256);
+    assertTrue(Striped.lazyWeakLock(100).size() >= 100);
+    assertTrue(Striped.lazyWeakLock(256).size() == 256);
+  }
+
+  public void testInvalidStripes() {
+    try {
+      Striped.lock(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      Striped.lazyWeakLock(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testWeakImplementations() {
+    for (Striped<?> striped : weakImplementations()) {
+      WeakReference<Object> weakRef = new WeakReference<Object>(striped.get(new Object()));
+      GcFinalization.awaitClear(weakRef);
+    }
+  }
+
+  public void testStrongImplementations() {
+    for (Striped<?> striped : strongImplementations()) {
+      WeakReference<Object> weakRef = new WeakReference<Object>(striped.get(new Object()));
+      WeakReference<Object> garbage = new WeakReference<Object>(new Object());
+      GcFinalization.awaitClear(garbage);
+      assertNotNull(weakRef.get());
+    }
+  }
+
+  public void testMaximalWeakStripedLock() {
+    Striped<Lock> stripedLock = Striped.lazyWeakLock(Integer.MAX_VALUE);
+    for (int i = 0; i < 10000; i++) {
+      stripedLock.get(new Object()).lock();
+      // nothing special (e.g. an exception) happens
+    }
+  }
+
+  public void testBulkGetReturnsSorted() {
+    for (Striped<?> striped : allImplementations()) {
+      List<Object> objects = Lists.newArrayList();
+      for (int i = 0; i < 1000; i += 17) {
+        objects.add(i);
+      }
+      List<Integer> indexes = Lists.newArrayList();
+      for (Object lock : striped.bulkGet(objects)) {
+        indexes.add(indexOf(striped, lock));
+      }
+      for (int i = 1; i < indexes.size(); i++) {
+        assertTrue(indexes.get(i - 1) <= indexes.get(i));
+      }
+    }
+  }
+
+  public void testBasicInvariants() {
+    for (Striped<?> striped : allImplementations()) {
+      assertBasicInvariants(striped);
+    }
+  }
+
+  private static void assertBasicInvariants(Striped<?> striped) {
+    Set<Object> observed = Sets.newIdentityHashSet(); // for the sake of weakly referenced locks.
+    // this gets the stripes with #getAt(index)
+    for (int i = 0; i < striped.size(); i++) {
+      Object object = striped.getAt(i);
+      assertNotNull(object);
+      assertSame(object, striped.getAt(i)); // idempotent
+      observed.add(object);
+    }
+    assertTrue("All stripes observed", observed.size() == striped.size());
+
+    // this uses #get(key), makes sure an already observed stripe is returned
+    for (int i = 0; i < striped.size() * 100; i++) {
+      assertTrue(observed.contains(striped.get(new Object())));
+    }
+
+    try {
+      striped.getAt(-1);
+      fail();
+    } catch (RuntimeException expected) {}
+
+    try {
+      striped.getAt(striped.size());
+      fail();
+    } catch (RuntimeException expected) {}
+  }
+
+  public void testStripeKinds() {
+    assertTrue(Striped.lock(4).get("a") instanceof Lock);
+    assertTrue(Striped.readWriteLock(4).get("a") instanceof ReadWriteLock);
+    Semaphore semaphore = Striped.semaphore(4, 3).get("a");
+    assertEquals(3, semaphore.availablePermits());
+  }
+
+  public void testCeilToPowerOfTwo() {
+    assertEquals(1, Striped.ceilToPowerOfTwo(1));
+    assertEquals(2, Striped.ceilToPowerOfTwo(2));
+    assertEquals(4, Striped.ceilToPowerOfTwo(3));
+    assertEquals(128, Striped.ceilToPowerOfTwo(100));
+  }
+
+  private static int indexOf(Striped<?> striped, Object lock) {
+    for (int i = 0; i < striped.size(); i++) {
+      if (striped.getAt(i) == lock) {
+        return i;
+      }
+    }
+    throw new AssertionError("lock not found");
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+/**
+ * Unit test for {@link TimerRegistry}.
+ */
+public class TimerRegistryTest extends TestCase {
+
+  public void testTimer() {
+    TimerRegistry registry = new TimerRegistry();
+    NamedTimer timer = registry.timer("a");
+    assertEquals("a", timer.name());
+    assertSame(timer, registry.timer("a"));
+    assertNotSame(timer, registry.timer("b"));
+  }
+
+  public void testSnapshots() {
+    FakeTicker ticker = new FakeTicker();
+    TimerRegistry registry = new TimerRegistry(ticker);
+    NamedTimer b = registry.timer("b");
+    registry.timer("a");
+    long start = b.start();
+    ticker.advance(2, SECONDS);
+    b.stop(start);
+
+    Map<String, NamedTimer.Snapshot> snapshots = registry.snapshots();
+    assertEquals(ImmutableList.of("a", "b"), ImmutableList.copyOf(snapshots.keySet()));
+    assertEquals(0, snapshots.get("a").count());
+    assertEquals(2, snapshots.get("b").max(SECONDS));
+  }
+
+  public void testNullPointers() throws Exception {
+    NullPointerTester tester = new NullPointerTester();
+    tester.setDefault(Ticker.class, Ticker.systemTicker());
+    tester.testAllPublicConstructors(TimerRegistry.class);
+    tester.testAllPublicInstanceMethods(new TimerRegistry());
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link WorkStealingExecutorService}.
+ */
+public class WorkStealingExecutorServiceTest extends TestCase {
+
+  private WorkStealingExecutorService executor;
+
+  @Override protected void setUp() {
+    executor = MoreExecutors.newWorkStealingExecutorService(4);
+  }
+
+  @Override protected void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    assertTrue(executor.awaitTermination(10, SECONDS));
+  }
+
+  public void testInvalidParallelism() {
+    try {
+      MoreExecutors.newWorkStealingExecutorService(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSubmit() throws Exception {
+    ListenableFuture<String> future = executor.submit(new Callable<String>() {
+      @Override public String call() {
+        return "foo";
+      }
+    });
+    assertEquals("foo", future.get(10, SECONDS));
+  }
+
+  public void testManyTasks() throws Exception {
+    final AtomicInteger count = new AtomicInteger();
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      futures.add(executor.submit(new Runnable() {
+        @Override public void run() {
+          count.incrementAndGet();
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, SECONDS);
+    }
+    assertEquals(1000, count.get());
+    assertEquals(0, executor.getQueuedTaskCount());
+  }
+
+  public void testInvokeAll() throws Exception {
+    List<Callable<Integer>> tasks = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      final int value = i;
+      tasks.add(new Callable<Integer>() {
+        @Override public Integer call() {
+          return value;
+        }
+      });
+    }
+    List<Future<Integer>> futures = executor.invokeAll(tasks);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, futures.get(i).get().intValue());
+    }
+  }
+
+  public void testSubmitFromWorkerRunsOnSameWorker() throws Exception {
+    // With a single worker, nobody can steal, so the nested task must run on
+    // the submitting worker.
+    final WorkStealingExecutorService single =
+        MoreExecutors.newWorkStealingExecutorService(1);
+    try {
+      final AtomicReference<Thread> inner = new AtomicReference<Thread>();
+      ListenableFuture<Thread> outer = single.submit(new Callable<Thread>() {
+        @Override public Thread call() throws Exception {
+          single.submit(new Runnable() {
+            @Override public void run() {
+              inner.set(Thread.currentThread());
+            }
+          });
+          return Thread.currentThread();
+        }
+      });
+      Thread outerThread = outer.get(10, SECONDS);
+      single.shutdown();
+      assertTrue(single.awaitTermination(10, SECONDS));
+      assertSame(outerThread, inner.get());
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  public void testTransformChain() throws Exception {
+    ListenableFuture<Integer> start = executor.submit(new Callable<Integer>() {
+      @Override public Integer call() {
+        return 20;
+      }
+    });
+    ListenableFuture<Integer> result = Futures.transform(start,
+        new Function<Integer, Integer>() {
+          @Override public Integer apply(Integer input) {
+            return input + 1;
+          }
+        }, executor);
+    assertEquals(21, result.get(10, SECONDS).intValue());
+  }
+
+  public void testIdleWorkerSteals() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch nestedDone = new CountDownLatch(10);
+    executor.submit(new Callable<Void>() {
+      @Override public Void call() throws Exception {
+        for (int i = 0; i < 10; i++) {
+          executor.submit(new Runnable() {
+            @Override public void run() {
+              nestedDone.countDown();
+            }
+          });
+        }
+        // Block the submitting worker so that the others have to steal.
+        release.await();
+        return null;
+      }
+    });
+    assertTrue(nestedDone.await(10, SECONDS));
+    assertTrue(executor.getStealCount() >= 10);
+    release.countDown();
+  }
+
+  public void testCompletedTaskCount() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      executor.submit(new Runnable() {
+        @Override public void run() {}
+      }).get(10, SECONDS);
+    }
+    // The future completes before the worker updates its counter.
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, SECONDS));
+    assertEquals(5, executor.getCompletedTaskCount());
+    assertEquals(0, executor.getActiveCount());
+  }
+
+  public void testShutdownRunsQueuedTasks() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger count = new AtomicInteger();
+    for (int i = 0; i < executor.getParallelism(); i++) {
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+        }
+      });
+    }
+    for (int i = 0; i < 20; i++) {
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          count.incrementAndGet();
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.isShutdown());
+    assertFalse(executor.isTerminated());
+    try {
+      executor.execute(new Runnable() {
+        @Override public void run() {}
+      });
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+    release.countDown();
+    assertTrue(executor.awaitTermination(10, SECONDS));
+    assertTrue(executor.isTerminated());
+    assertEquals(20, count.get());
+  }
+
+  public void testShutdownNowReturnsQueuedTasks() throws Exception {
+    final CountDownLatch started = new CountDownLatch(executor.getParallelism());
+    for (int i = 0; i < executor.getParallelism(); i++) {
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          started.countDown();
+          try {
+            new CountDownLatch(1).await();
+          } catch (InterruptedException expected) {
+          }
+        }
+      });
+    }
+    assertTrue(started.await(10, SECONDS));
+    Runnable pending = new Runnable() {
+      @Override public void run() {}
+    };
+    executor.execute(pending);
+    List<Runnable> drained = executor.shutdownNow();
+    assertEquals(1, drained.size());
+    assertSame(pending, drained.get(0));
+    assertTrue(executor.awaitTermination(10, SECONDS));
+  }
+
+  public void testUncaughtExceptionDoesNotKillWorker() throws Exception {
+    WorkStealingExecutorService single =
+        MoreExecutors.newWorkStealingExecutorService(1,
+            new ThreadFactoryBuilder()
+                .setUncaughtExceptionHandler(
+                    new Thread.UncaughtExceptionHandler() {
+                      @Override
+                      public void uncaughtException(Thread t, Throwable e) {}
+                    })
+                .build());
+    try {
+      single.execute(new Runnable() {
+        @Override public void run() {
+          throw new RuntimeException();
+        }
+      });
+      assertEquals("ok", single.submit(new Callable<String>() {
+        @Override public String call() {
+          return "ok";
+        }
+      }).get(10, SECONDS));
+    } finally {
+      single.shutdownNow();
+    }
+  }
+}
@@ -403,17 +403,36 @@ public final class Ascii {
   public static final int MAX = 127;
 
   /**
-   * Returns a copy of the input string in which all {@linkplain #isUpperCase(char) uppercase ASCII
-   * characters} have been converted to lowercase. All other characters are copied without
-   * modification.
+   * Returns the input string with all {@linkplain #isUpperCase(char) uppercase ASCII characters}
+   * converted to lowercase, and all other characters unchanged. If the input contains no uppercase
+   * ASCII character, it may be returned unchanged.
    */
   public static String toLowerCase(String string) {
     int length = string.length();
-    StringBuilder builder = new StringBuilder(length);
     for (int i = 0; i < length; i++) {
-      builder.append(toLowerCase(string.charAt(i)));
+      if (isUpperCase(string.charAt(i))) {
+        char[] chars = string.toCharArray();
+        toLowerCase(chars, i, length);
+        return new String(chars);
+      }
+    }
+    return string;
+  }
+
+  /**
+   * Converts the {@linkplain #isUpperCase(char) uppercase ASCII characters} of {@code
+   * chars[start..end)} to lowercase, in place.
+   *
+   * @throws IndexOutOfBoundsException if {@code start} and {@code end} do not designate a valid
+   *     range of {@code chars}
+   * @since 12.0
+   */
+  @Beta
+  public static void toLowerCase(char[] chars, int start, int end) {
+    Preconditions.checkPositionIndexes(start, end, chars.length);
+    for (int i = start; i < end; i++) {
+      chars[i] = toLowerCase(chars[i]);
     }
-    return builder.toString();
   }
 
   /**
@@ -425,17 +444,36 @@ public final class Ascii {
   }
 
   /**
-   * Returns a copy of the input string in which all {@linkplain #isLowerCase(char) lowercase ASCII
-   * characters} have been converted to uppercase. All other characters are copied without
-   * modification.
+   * Returns the input string with all {@linkplain #isLowerCase(char) lowercase ASCII characters}
+   * converted to uppercase, and all other characters unchanged. If the input contains no lowercase
+   * ASCII character, it may be returned unchanged.
    */
   public static String toUpperCase(String string) {
     int length = string.length();
-    StringBuilder builder = new StringBuilder(length);
     for (int i = 0; i < length; i++) {
-      builder.append(toUpperCase(string.charAt(i)));
+      if (isLowerCase(string.charAt(i))) {
+        char[] chars = string.toCharArray();
+        toUpperCase(chars, i, length);
+        return new String(chars);
+      }
+    }
+    return string;
+  }
+
+  /**
+   * Converts the {@linkplain #isLowerCase(char) lowercase ASCII characters} of {@code
+   * chars[start..end)} to uppercase, in place.
+   *
+   * @throws IndexOutOfBoundsException if {@code start} and {@code end} do not designate a valid
+   *     range of {@code chars}
+   * @since 12.0
+   */
+  @Beta
+  public static void toUpperCase(char[] chars, int start, int end) {
+    Preconditions.checkPositionIndexes(start, end, chars.length);
+    for (int i = start; i < end; i++) {
+      chars[i] = toUpperCase(chars[i]);
     }
-    return builder.toString();
   }
 
   /**
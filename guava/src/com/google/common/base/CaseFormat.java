@@ -16,11 +16,20 @@
 
 package com.google.common.base;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 
 /**
  * Utility class for converting between various ASCII case formats.
  *
+ * <p>Besides {@link #to}, which returns a new string, conversions can append to a {@link
+ * StringBuilder} or write to a {@code char[]} supplied by the caller, and {@link
+ * #cachingConverterTo} remembers the conversions of frequently repeated strings.
+ *
  * @author Mike Bostock
  * @since 1.0
  */
@@ -63,6 +72,8 @@ public enum CaseFormat {
    * Converts the specified {@code String s} from this format to the specified {@code format}. A
    * "best effort" approach is taken; if {@code s} does not conform to the assumed format, then the
    * behavior of this method is undefined but we make a reasonable effort at converting anyway.
+   *
+   * <p>If the conversion leaves {@code s} unchanged, {@code s} may be returned.
    */
   public String to(CaseFormat format, String s) {
     if (format == null) {
@@ -72,93 +83,236 @@ public enum CaseFormat {
       throw new NullPointerException();
     }
 
-    if (format == this) {
+    if (format == this || convertsToItself(format, s)) {
       return s;
     }
+    StringBuilder builder = new StringBuilder(maxConvertedLength(format, s.length()));
+    return appendTo(format, s, builder).toString();
+  }
 
-    /* optimize cases where no camel conversion is required */
-    switch (this) {
-      case LOWER_HYPHEN:
-        switch (format) {
-          case LOWER_UNDERSCORE:
-            return s.replace('-', '_');
-          case UPPER_UNDERSCORE:
-            return Ascii.toUpperCase(s.replace('-', '_'));
+  /**
+   * Converts {@code s} from this format to the specified {@code format} as {@link #to(CaseFormat,
+   * String)} does, and appends the result to {@code builder}, without building intermediate
+   * strings.
+   *
+   * @return {@code builder}
+   * @since 12.0
+   */
+  @Beta
+  public StringBuilder appendTo(CaseFormat format, CharSequence s, StringBuilder builder) {
+    checkNotNull(format);
+    checkNotNull(builder);
+    if (format == this) {
+      return builder.append(s);
+    }
+    boolean keepCase = keepsCase(format);
+    boolean firstWord = true;
+    boolean firstChar = true;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (isBoundary(c, i)) {
+        builder.append(format.wordSeparator);
+        firstWord = false;
+        firstChar = true;
+        if (wordSeparator.length() > 0) {
+          continue;
         }
-        break;
-      case LOWER_UNDERSCORE:
-        switch (format) {
-          case LOWER_HYPHEN:
-            return s.replace('_', '-');
-          case UPPER_UNDERSCORE:
-            return Ascii.toUpperCase(s);
+      }
+      builder.append(keepCase ? c : format.normalize(c, firstWord, firstChar));
+      firstChar = false;
+    }
+    return builder;
+  }
+
+  /**
+   * Converts {@code s} from this format to the specified {@code format} as {@link #to(CaseFormat,
+   * String)} does, and writes the result to {@code dest}, starting at {@code offset}. The result is
+   * at most as long as {@code s}, or twice as long when converting from {@link #LOWER_CAMEL} or
+   * {@link #UPPER_CAMEL} to a format with word separators.
+   *
+   * @return the index in {@code dest} following the last character written
+   * @throws IndexOutOfBoundsException if {@code offset} is not a valid index of {@code dest}, or if
+   *     the result does not fit in {@code dest}; in that case, the characters that fit have been
+   *     written
+   * @since 12.0
+   */
+  @Beta
+  public int appendTo(CaseFormat format, CharSequence s, char[] dest, int offset) {
+    checkNotNull(format);
+    checkPositionIndex(offset, dest.length);
+    int length = s.length();
+    int position = offset;
+    if (format == this) {
+      for (int i = 0; i < length; i++) {
+        position = put(dest, position, s.charAt(i));
+      }
+      return position;
+    }
+    boolean keepCase = keepsCase(format);
+    boolean firstWord = true;
+    boolean firstChar = true;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (isBoundary(c, i)) {
+        if (format.wordSeparator.length() > 0) {
+          position = put(dest, position, format.wordSeparator.charAt(0));
         }
-        break;
-      case UPPER_UNDERSCORE:
-        switch (format) {
-          case LOWER_HYPHEN:
-            return Ascii.toLowerCase(s.replace('_', '-'));
-          case LOWER_UNDERSCORE:
-            return Ascii.toLowerCase(s);
+        firstWord = false;
+        firstChar = true;
+        if (wordSeparator.length() > 0) {
+          continue;
         }
-        break;
+      }
+      position = put(dest, position, keepCase ? c : format.normalize(c, firstWord, firstChar));
+      firstChar = false;
+    }
+    return position;
+  }
+
+  private static int put(char[] dest, int position, char c) {
+    if (position == dest.length) {
+      throw new IndexOutOfBoundsException("Result does not fit in the destination array");
+    }
+    dest[position] = c;
+    return position + 1;
+  }
+
+  /**
+   * Returns a function that converts strings from this format to the specified {@code format}, and
+   * remembers the results for up to {@code cacheSize} recently converted strings, so that
+   * converting them again returns the same instance without any work beyond a hash lookup. This
+   * suits the conversion of a small, frequently repeated set of identifiers, such as field names.
+   *
+   * <p>The cache is direct-mapped: each string has a single slot, chosen by its hash code, and
+   * evicts whatever string was there before. The returned function is thread-safe; threads may
+   * occasionally convert the same string more than once.
+   *
+   * @param cacheSize the number of cache slots, rounded up to a power of two
+   * @throws IllegalArgumentException if {@code cacheSize} is not positive, or is greater than
+   *     {@code 2^30}
+   * @since 12.0
+   */
+  @Beta
+  public Function<String, String> cachingConverterTo(CaseFormat format, int cacheSize) {
+    checkNotNull(format);
+    checkArgument(cacheSize > 0 && cacheSize <= 1 << 30,
+        "cacheSize must be between 1 and 2^30: %s", cacheSize);
+    int slots = Integer.highestOneBit(cacheSize);
+    return new CachingConverter(this, format, (slots == cacheSize) ? slots : slots << 1);
+  }
+
+  private static final class CachingConverter implements Function<String, String> {
+    private final CaseFormat sourceFormat;
+    private final CaseFormat targetFormat;
+
+    /*
+     * Entries are immutable, so a thread reading a slot while another writes it sees either entry
+     * whole, and never needs to synchronize.
+     */
+    private final CachedConversion[] cache;
+
+    CachingConverter(CaseFormat sourceFormat, CaseFormat targetFormat, int slots) {
+      this.sourceFormat = sourceFormat;
+      this.targetFormat = targetFormat;
+      this.cache = new CachedConversion[slots];
     }
 
-    // otherwise, deal with camel conversion
-    StringBuilder out = null;
-    int i = 0;
-    int j = -1;
-    while ((j = wordBoundary.indexIn(s, ++j)) != -1) {
-      if (i == 0) {
-        // include some extra space for separators
-        out = new StringBuilder(s.length() + 4 * wordSeparator.length());
-        out.append(format.normalizeFirstWord(s.substring(i, j)));
-      } else {
-        out.append(format.normalizeWord(s.substring(i, j)));
+    @Override public String apply(String input) {
+      int hash = input.hashCode();
+      int slot = (hash ^ (hash >>> 16)) & (cache.length - 1);
+      CachedConversion cached = cache[slot];
+      if (cached != null && cached.input.equals(input)) {
+        return cached.output;
       }
-      out.append(format.wordSeparator);
-      i = j + wordSeparator.length();
+      String output = sourceFormat.to(targetFormat, input);
+      cache[slot] = new CachedConversion(input, output);
+      return output;
     }
-    if (i == 0) {
-      return format.normalizeFirstWord(s);
+
+    @Override public String toString() {
+      return sourceFormat + ".cachingConverterTo(" + targetFormat + ", " + cache.length + ")";
     }
-    out.append(format.normalizeWord(s.substring(i)));
-    return out.toString();
   }
 
-  private String normalizeFirstWord(String word) {
-    switch (this) {
-      case LOWER_CAMEL:
-        return Ascii.toLowerCase(word);
-      default:
-        return normalizeWord(word);
+  private static final class CachedConversion {
+    final String input;
+    final String output;
+
+    CachedConversion(String input, String output) {
+      this.input = input;
+      this.output = output;
+    }
+  }
+
+  /**
+   * Returns whether the character {@code c}, at index {@code i} of a string in this format, starts
+   * a new word. A capital letter at the start of a camel-case string begins the first word.
+   */
+  private boolean isBoundary(char c, int i) {
+    return wordBoundary.matches(c) && (i > 0 || wordSeparator.length() > 0);
+  }
+
+  /**
+   * Returns whether converting from this format to {@code format} only changes the word separators,
+   * and keeps the case of every letter, as the conversions between {@link #LOWER_HYPHEN} and
+   * {@link #LOWER_UNDERSCORE} always have.
+   */
+  private boolean keepsCase(CaseFormat format) {
+    return (this == LOWER_HYPHEN && format == LOWER_UNDERSCORE)
+        || (this == LOWER_UNDERSCORE && format == LOWER_HYPHEN);
+  }
+
+  /** Returns whether converting {@code s} from this format to {@code format} leaves it as is. */
+  private boolean convertsToItself(CaseFormat format, String s) {
+    boolean sameSeparator = wordSeparator.equals(format.wordSeparator);
+    boolean keepCase = keepsCase(format);
+    boolean firstWord = true;
+    boolean firstChar = true;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (isBoundary(c, i)) {
+        if (!sameSeparator) {
+          return false;
+        }
+        firstWord = false;
+        firstChar = true;
+        if (wordSeparator.length() > 0) {
+          continue;
+        }
+      }
+      if (!keepCase && format.normalize(c, firstWord, firstChar) != c) {
+        return false;
+      }
+      firstChar = false;
     }
+    return true;
   }
 
-  private String normalizeWord(String word) {
+  /** Returns an upper bound of the length of a string of the given length converted to format. */
+  private int maxConvertedLength(CaseFormat format, int length) {
+    return (wordSeparator.length() == 0 && format.wordSeparator.length() > 0)
+        ? length * 2
+        : length;
+  }
+
+  /**
+   * Returns the character {@code c} as it appears in this format, given whether it belongs to the
+   * first word, and whether it is the first character of its word.
+   */
+  private char normalize(char c, boolean firstWord, boolean firstChar) {
     switch (this) {
       case LOWER_HYPHEN:
-        return Ascii.toLowerCase(word);
       case LOWER_UNDERSCORE:
-        return Ascii.toLowerCase(word);
+        return Ascii.toLowerCase(c);
       case LOWER_CAMEL:
-        return firstCharOnlyToUpper(word);
+        return (firstChar && !firstWord) ? Ascii.toUpperCase(c) : Ascii.toLowerCase(c);
       case UPPER_CAMEL:
-        return firstCharOnlyToUpper(word);
+        return firstChar ? Ascii.toUpperCase(c) : Ascii.toLowerCase(c);
       case UPPER_UNDERSCORE:
-        return Ascii.toUpperCase(word);
-    }
-    throw new RuntimeException("unknown case: " + this);
-  }
-
-  private static String firstCharOnlyToUpper(String word) {
-    int length = word.length();
-    if (length == 0) {
-      return word;
+        return Ascii.toUpperCase(c);
     }
-    return new StringBuilder(length)
-        .append(Ascii.toUpperCase(word.charAt(0)))
-        .append(Ascii.toLowerCase(word.substring(1)))
-        .toString();
+    throw new AssertionError("unknown case: " + this);
   }
 }
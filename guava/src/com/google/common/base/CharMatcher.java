@@ -661,23 +661,36 @@ public abstract class CharMatcher implements Predicate<Character> {
    * This is the actual implementation of {@link #precomputed}, but we bounce calls through a method
    * on {@link Platform} so that we can have different behavior in GWT.
    *
-   * <p>The default precomputation is to cache the configuration of the original matcher in an
-   * eight-kilobyte bit array. In some situations this produces a matcher which is faster to query
-   * than the original.
-   *
-   * <p>The default implementation creates a new bit array and passes it to {@link
-   * #setBits(LookupTable)}.
+   * <p>The default precomputation collects the matching characters in an eight-kilobyte bit array,
+   * by passing it to {@link #setBits(LookupTable)}, and then picks the most compact representation
+   * of the set: {@link #NONE} or {@link #ANY}, a single character, a 128-bit table if only ASCII
+   * characters match, a small sorted array, or the full bit array. A set matching nearly every
+   * character is represented as the negation of its complement.
    */
   CharMatcher precomputedInternal() {
-    final LookupTable table = new LookupTable();
+    LookupTable table = new LookupTable();
     setBits(table);
+    int count = table.cardinality();
+    if (count == 0) {
+      return NONE;
+    } else if (count == DISTINCT_CHARS) {
+      return ANY;
+    } else if (DISTINCT_CHARS - count <= MAX_SMALL_SET_SIZE) {
+      return precomputedNegation(table.complement(), DISTINCT_CHARS - count);
+    }
+    return precomputed(table, count);
+  }
 
+  private static CharMatcher precomputedNegation(LookupTable complement, int count) {
+    final CharMatcher negation = precomputed(complement, count);
     return new CharMatcher() {
       @Override public boolean matches(char c) {
-        return table.get(c);
+        return !negation.matches(c);
       }
 
-      // TODO(kevinb): make methods like negate() smart?
+      @Override public CharMatcher negate() {
+        return negation;
+      }
 
       @Override public CharMatcher precomputed() {
         return this;
@@ -685,6 +698,165 @@ public abstract class CharMatcher implements Predicate<Character> {
     };
   }
 
+  private static CharMatcher precomputed(LookupTable table, int count) {
+    if (count == 1) {
+      return is(table.chars()[0]);
+    } else if (table.isAscii()) {
+      return new BitSetMatcher(table.asciiData());
+    } else if (count <= MAX_SMALL_SET_SIZE) {
+      final char[] chars = table.chars();
+      return new CharMatcher() {
+        @Override public boolean matches(char c) {
+          // The array is sorted, so the scan can stop at the first larger character.
+          for (char match : chars) {
+            if (match >= c) {
+              return match == c;
+            }
+          }
+          return false;
+        }
+
+        @Override void setBits(LookupTable table) {
+          for (char c : chars) {
+            table.set(c);
+          }
+        }
+
+        @Override public CharMatcher precomputed() {
+          return this;
+        }
+      };
+    }
+    return new BitSetMatcher(table.data);
+  }
+
+  /** The number of distinct {@code char} values. */
+  private static final int DISTINCT_CHARS = Character.MAX_VALUE + 1;
+
+  /** The largest set of characters searched linearly by a precomputed matcher. */
+  private static final int MAX_SMALL_SET_SIZE = 8;
+
+  /**
+   * A precomputed matcher testing each character against a bit array, one bit per character, which
+   * may be shorter than the full range of characters; the characters beyond its end don't match.
+   *
+   * <p>The text processing routines are overridden with copies of the default loops. Since this
+   * class is final, they test the characters with an inlined array lookup rather than through the
+   * virtual, and usually megamorphic, call to {@link #matches} made by the default implementations.
+   */
+  private static final class BitSetMatcher extends CharMatcher {
+    private final int[] data;
+
+    BitSetMatcher(int[] data) {
+      this.data = data;
+    }
+
+    @Override public boolean matches(char c) {
+      int index = c >> 5;
+      return index < data.length && (data[index] & (1 << c)) != 0;
+    }
+
+    @Override public int indexIn(CharSequence sequence) {
+      int length = sequence.length();
+      for (int i = 0; i < length; i++) {
+        if (matches(sequence.charAt(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override public int indexIn(CharSequence sequence, int start) {
+      int length = sequence.length();
+      Preconditions.checkPositionIndex(start, length);
+      for (int i = start; i < length; i++) {
+        if (matches(sequence.charAt(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override public int lastIndexIn(CharSequence sequence) {
+      for (int i = sequence.length() - 1; i >= 0; i--) {
+        if (matches(sequence.charAt(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override public boolean matchesAllOf(CharSequence sequence) {
+      for (int i = sequence.length() - 1; i >= 0; i--) {
+        if (!matches(sequence.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override public boolean matchesNoneOf(CharSequence sequence) {
+      return indexIn(sequence) == -1;
+    }
+
+    @Override public int countIn(CharSequence sequence) {
+      int count = 0;
+      int length = sequence.length();
+      for (int i = 0; i < length; i++) {
+        if (matches(sequence.charAt(i))) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override public String removeFrom(CharSequence sequence) {
+      String string = sequence.toString();
+      int pos = indexIn(string);
+      if (pos == -1) {
+        return string;
+      }
+      char[] chars = string.toCharArray();
+      int kept = pos;
+      for (int i = pos + 1; i < chars.length; i++) {
+        char c = chars[i];
+        if (!matches(c)) {
+          chars[kept++] = c;
+        }
+      }
+      return new String(chars, 0, kept);
+    }
+
+    @Override public String trimFrom(CharSequence sequence) {
+      int len = sequence.length();
+      int first;
+      int last;
+
+      for (first = 0; first < len; first++) {
+        if (!matches(sequence.charAt(first))) {
+          break;
+        }
+      }
+      for (last = len - 1; last > first; last--) {
+        if (!matches(sequence.charAt(last))) {
+          break;
+        }
+      }
+
+      return sequence.subSequence(first, last + 1).toString();
+    }
+
+    @Override void setBits(LookupTable table) {
+      for (int i = 0; i < data.length; i++) {
+        table.data[i] |= data[i];
+      }
+    }
+
+    @Override public CharMatcher precomputed() {
+      return this;
+    }
+  }
+
   /**
    * For use by implementors; sets the bit corresponding to each character ('\0' to '{@literal
    * \}uFFFF') that matches this matcher in the given bit array, leaving all other bits untouched.
@@ -711,6 +883,9 @@ public abstract class CharMatcher implements Predicate<Character> {
    * simpler java.util.BitSet.
    */
   private static final class LookupTable {
+    /** The number of ints covering the ASCII characters. */
+    static final int ASCII_WORDS = 128 >> 5;
+
     int[] data = new int[2048];
 
     void set(char index) {
@@ -720,6 +895,49 @@ public abstract class CharMatcher implements Predicate<Character> {
     boolean get(char index) {
       return (data[index >> 5] & (1 << index)) != 0;
     }
+
+    int cardinality() {
+      int count = 0;
+      for (int word : data) {
+        count += Integer.bitCount(word);
+      }
+      return count;
+    }
+
+    boolean isAscii() {
+      for (int i = ASCII_WORDS; i < data.length; i++) {
+        if (data[i] != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    int[] asciiData() {
+      int[] ascii = new int[ASCII_WORDS];
+      System.arraycopy(data, 0, ascii, 0, ASCII_WORDS);
+      return ascii;
+    }
+
+    /** Returns the characters whose bits are set, in increasing order. */
+    char[] chars() {
+      char[] chars = new char[cardinality()];
+      int count = 0;
+      for (int i = 0; i < data.length; i++) {
+        for (int word = data[i]; word != 0; word &= word - 1) {
+          chars[count++] = (char) ((i << 5) + Integer.numberOfTrailingZeros(word));
+        }
+      }
+      return chars;
+    }
+
+    LookupTable complement() {
+      LookupTable complement = new LookupTable();
+      for (int i = 0; i < data.length; i++) {
+        complement.data[i] = ~data[i];
+      }
+      return complement;
+    }
   }
 
   // Text processing routines
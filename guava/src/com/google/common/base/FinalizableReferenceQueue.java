@@ -16,6 +16,11 @@
 
 package com.google.common.base;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.Beta;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.ref.Reference;
@@ -23,6 +28,7 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +40,12 @@ import java.util.logging.Logger;
  * finalized. If this object is garbage collected earlier, the backing thread will not invoke {@code
  * finalizeReferent()} on the remaining references.
  *
+ * <p>Each queue created by the constructor starts its own thread. Code that needs many queues can
+ * instead use the {@linkplain #sharedQueue shared queue}, whose single thread serves all its users,
+ * or a {@linkplain #newPolledQueue polled queue}, which has no thread at all: its owner finalizes
+ * references in batches by calling {@link #cleanUp(int)}, for example from a periodic maintenance
+ * task. There, {@link #backlog} reports how many references are waiting to be finalized.
+ *
  * @author Bob Lee
  * @since 2.0 (imported from Google Collections Library)
  */
@@ -96,6 +108,17 @@ public class FinalizableReferenceQueue {
    */
   final boolean threadStarted;
 
+  /**
+   * Whether references are only finalized by explicit calls to {@link #cleanUp(int)}.
+   */
+  private final boolean polled;
+
+  /**
+   * References taken off {@link #queue} by {@link #backlog} to count them, which are finalized
+   * before those still in the queue. Guarded by itself.
+   */
+  private final LinkedList<Reference<?>> pending = new LinkedList<Reference<?>>();
+
   /**
    * Constructs a new queue.
    */
@@ -118,30 +141,128 @@ public class FinalizableReferenceQueue {
 
     this.queue = queue;
     this.threadStarted = threadStarted;
+    this.polled = false;
+  }
+
+  /** Constructs a polled queue. */
+  private FinalizableReferenceQueue(ReferenceQueue<Object> queue) {
+    this.queue = queue;
+    this.threadStarted = false;
+    this.polled = true;
+  }
+
+  /**
+   * Returns a queue shared by all its users, created when this method is first called. It is an
+   * ordinary queue with its own background thread, the same as one created by the constructor,
+   * which finalizes references one at a time as they are enqueued. Unlike a queue created by the
+   * constructor, the shared queue needn't be kept reachable by its users: its thread runs until the
+   * class loader that loaded this class is reclaimed. Its {@link #backlog} is not tracked.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public static FinalizableReferenceQueue sharedQueue() {
+    return SharedQueueHolder.SHARED_QUEUE;
+  }
+
+  /** Creates the shared queue, and starts its thread, when it is first used. */
+  private static class SharedQueueHolder {
+    static final FinalizableReferenceQueue SHARED_QUEUE = new FinalizableReferenceQueue();
+  }
+
+  /**
+   * Returns a new queue with no background thread. References enqueued on it are finalized only
+   * when its owner calls {@link #cleanUp(int)}; until then they, and whatever their {@code
+   * finalizeReferent()} methods would release, stay in memory.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public static FinalizableReferenceQueue newPolledQueue() {
+    return new FinalizableReferenceQueue(new ReferenceQueue<Object>());
+  }
+
+  /**
+   * Dequeues up to {@code maxReferences} references and invokes {@link
+   * FinalizableReference#finalizeReferent()} on them, on the calling thread. Exceptions thrown by
+   * {@code finalizeReferent()} are logged, and do not stop the batch.
+   *
+   * @return the number of references finalized, which is less than {@code maxReferences} only if
+   *     the queue is now empty
+   * @throws IllegalStateException if this queue has a background thread
+   * @throws IllegalArgumentException if {@code maxReferences} is negative
+   * @since 12.0
+   */
+  @Beta
+  public int cleanUp(int maxReferences) {
+    checkState(!threadStarted, "This queue's references are finalized by its thread");
+    checkArgument(maxReferences >= 0, "maxReferences must not be negative: %s", maxReferences);
+    int finalized = 0;
+    Reference<?> reference;
+    while (finalized < maxReferences && (reference = poll()) != null) {
+      finalizeReference(reference);
+      finalized++;
+    }
+    return finalized;
+  }
+
+  /** Dequeues the next reference to finalize, or returns null if there is none. */
+  private Reference<?> poll() {
+    synchronized (pending) {
+      Reference<?> reference = pending.poll();
+      return (reference != null) ? reference : queue.poll();
+    }
+  }
+
+  /**
+   * Returns the number of references that the garbage collector has enqueued on this queue but that
+   * have not been finalized yet, or -1 if this queue's references are finalized by a background
+   * thread, like those of the {@linkplain #sharedQueue shared queue}. That thread dequeues
+   * references as soon as they are enqueued, so only queues finalized by {@link #cleanUp(int)}
+   * build up a backlog.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public int backlog() {
+    if (threadStarted) {
+      return -1;
+    }
+    synchronized (pending) {
+      Reference<?> reference;
+      while ((reference = queue.poll()) != null) {
+        pending.add(reference);
+      }
+      return pending.size();
+    }
   }
 
   /**
    * Repeatedly dequeues references from the queue and invokes {@link
    * FinalizableReference#finalizeReferent()} on them until the queue is empty. This method is a
-   * no-op if the background thread was created successfully.
+   * no-op if the background thread was created successfully, or if this is a polled queue.
    */
   void cleanUp() {
-    if (threadStarted) {
+    if (threadStarted || polled) {
       return;
     }
 
     Reference<?> reference;
-    while ((reference = queue.poll()) != null) {
-      /*
-       * This is for the benefit of phantom references. Weak and soft references will have already
-       * been cleared by this point.
-       */
-      reference.clear();
-      try {
-        ((FinalizableReference) reference).finalizeReferent();
-      } catch (Throwable t) {
-        logger.log(Level.SEVERE, "Error cleaning up after reference.", t);
-      }
+    while ((reference = poll()) != null) {
+      finalizeReference(reference);
+    }
+  }
+
+  private static void finalizeReference(Reference<?> reference) {
+    /*
+     * This is for the benefit of phantom references. Weak and soft references will have already
+     * been cleared by this point.
+     */
+    reference.clear();
+    try {
+      ((FinalizableReference) reference).finalizeReferent();
+    } catch (Throwable t) {
+      logger.log(Level.SEVERE, "Error cleaning up after reference.", t);
     }
   }
 
@@ -17,13 +17,18 @@
 package com.google.common.base;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.AbstractList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,7 +46,13 @@ import javax.annotation.Nullable;
  *   return joiner.join("Harry", null, "Ron", "Hermione");}</pre>
  *
  * This returns the string {@code "Harry; Ron; Hermione"}. Note that all input elements are
- * converted to strings using {@link Object#toString()} before being appended.
+ * converted to strings using {@link Object#toString()} before being appended, except for those
+ * that are already {@link CharSequence}s, which are appended as they are.
+ *
+ * <p>When joining an array or a {@link Collection} into a string, the length of the result is
+ * computed first, and the parts are copied directly into a character array of exactly that size.
+ * The {@link #appendTo(char[], int, Iterable)} and {@link #appendTo(ByteBuffer, Iterable)} methods
+ * write into caller-owned arrays and buffers without building a string at all.
  *
  * <p>If neither {@link #skipNulls()} nor {@link #useForNull(String)} is specified, the joining
  * methods will throw {@link NullPointerException} if any given element is null.
@@ -59,7 +70,7 @@ import javax.annotation.Nullable;
  * @author Kevin Bourrillion
  * @since 2.0 (imported from Google Collections Library)
  */
-@GwtCompatible
+@GwtCompatible(emulated = true)
 public class Joiner {
   /**
    * Returns a joiner which automatically places {@code separator} between consecutive elements.
@@ -204,6 +215,91 @@ public class Joiner {
     return appendTo(builder, iterable(first, second, rest));
   }
 
+  /**
+   * Writes the string representation of each of {@code parts}, using the previously configured
+   * separator between each, into {@code dest} starting at index {@code offset}, and returns the
+   * index following the last character written. No intermediate string is built for parts that
+   * are {@link CharSequence}s.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} is negative or greater than {@code
+   *     dest.length}, or if the result does not fit in {@code dest}; in the latter case, the
+   *     parts that fit have been written
+   * @since 12.0
+   */
+  @Beta
+  public final int appendTo(char[] dest, int offset, Iterable<?> parts) {
+    checkPositionIndex(offset, dest.length);
+    int position = offset;
+    boolean first = true;
+    for (Object part : parts) {
+      if (part == null && skipsNulls()) {
+        continue;
+      }
+      if (!first) {
+        position = copy(separator, dest, position);
+      }
+      position = copy(toString(part), dest, position);
+      first = false;
+    }
+    return position;
+  }
+
+  /**
+   * Writes the string representation of each of {@code parts}, using the previously configured
+   * separator between each, into {@code dest} starting at index {@code offset}, and returns the
+   * index following the last character written. Identical to {@link #appendTo(char[], int,
+   * Iterable)}.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public final int appendTo(char[] dest, int offset, Object[] parts) {
+    return appendTo(dest, offset, Arrays.asList(parts));
+  }
+
+  /**
+   * Writes the UTF-8 encoding of the string representation of each of {@code parts}, using the
+   * previously configured separator between each, into {@code buffer} starting at its position,
+   * and advances the position past the last byte written. Parts that are {@link CharSequence}s are
+   * encoded directly, without building an intermediate string (see {@link Utf8#encode(
+   * CharSequence, ByteBuffer)}).
+   *
+   * @return {@code buffer}
+   * @throws java.nio.BufferOverflowException if the result does not fit in the remaining bytes of
+   *     {@code buffer}; the parts that fit have been written
+   * @since 12.0
+   */
+  @Beta
+  @GwtIncompatible("java.nio.ByteBuffer")
+  public final ByteBuffer appendTo(ByteBuffer buffer, Iterable<?> parts) {
+    checkNotNull(buffer);
+    boolean first = true;
+    for (Object part : parts) {
+      if (part == null && skipsNulls()) {
+        continue;
+      }
+      if (!first) {
+        Utf8.encode(separator, buffer);
+      }
+      Utf8.encode(toString(part), buffer);
+      first = false;
+    }
+    return buffer;
+  }
+
+  /**
+   * Writes the UTF-8 encoding of the string representation of each of {@code parts}, using the
+   * previously configured separator between each, into {@code buffer}. Identical to {@link
+   * #appendTo(ByteBuffer, Iterable)}.
+   *
+   * @since 12.0
+   */
+  @Beta
+  @GwtIncompatible("java.nio.ByteBuffer")
+  public final ByteBuffer appendTo(ByteBuffer buffer, Object[] parts) {
+    return appendTo(buffer, Arrays.asList(parts));
+  }
+
   /**
    * <b>Deprecated.</b>
    *
@@ -223,9 +319,32 @@ public class Joiner {
    * previously configured separator between each.
    */
   public final String join(Iterable<?> parts) {
+    if (parts instanceof Collection) {
+      return join((Collection<?>) parts);
+    }
     return join(parts.iterator());
   }
 
+  /**
+   * Joins {@code parts}, which can be iterated twice, into a string of exactly the right size:
+   * converts them to character sequences while adding up their lengths, then copies them.
+   */
+  private String join(Collection<?> parts) {
+    CharSequence[] pieces = new CharSequence[parts.size()];
+    int count = 0;
+    for (Object part : parts) {
+      if (part == null && skipsNulls()) {
+        continue;
+      }
+      if (count == pieces.length) {
+        // The collection grew concurrently.
+        pieces = copyOf(pieces, 2 * count + 1);
+      }
+      pieces[count++] = toString(part);
+    }
+    return concat(pieces, count, separator, separator);
+  }
+
   /**
    * Returns a string containing the string representation of each of {@code parts}, using the
    * previously configured separator between each.
@@ -304,6 +423,10 @@ public class Joiner {
         return appendable;
       }
 
+      @Override boolean skipsNulls() {
+        return true;
+      }
+
       @Override public Joiner useForNull(String nullText) {
         checkNotNull(nullText); // weird: just to satisfy NullPointerTester.
         throw new UnsupportedOperationException("already specified skipNulls");
@@ -504,9 +627,29 @@ public class Joiner {
      */
     @Beta
     public String join(Iterable<? extends Entry<?, ?>> entries) {
+      if (entries instanceof Collection) {
+        return join((Collection<? extends Entry<?, ?>>) entries);
+      }
       return join(entries.iterator());
     }
 
+    /**
+     * Joins {@code entries}, which can be iterated twice, into a string of exactly the right size.
+     */
+    private String join(Collection<? extends Entry<?, ?>> entries) {
+      CharSequence[] pieces = new CharSequence[2 * entries.size()];
+      int count = 0;
+      for (Entry<?, ?> entry : entries) {
+        if (count == pieces.length) {
+          // The collection grew concurrently.
+          pieces = copyOf(pieces, 2 * count + 2);
+        }
+        pieces[count++] = joiner.toString(entry.getKey());
+        pieces[count++] = joiner.toString(entry.getValue());
+      }
+      return concat(pieces, count, keyValueSeparator, joiner.separator);
+    }
+
     /**
      * Returns a string containing the string representation of each entry in {@code entries}, using
      * the previously configured separator and key-value separator.
@@ -528,11 +671,67 @@ public class Joiner {
     }
   }
 
+  /** Returns whether this joiner skips null parts rather than converting them. */
+  boolean skipsNulls() {
+    return false;
+  }
+
   CharSequence toString(Object part) {
     checkNotNull(part);  // checkNotNull for GWT (do not optimize).
     return (part instanceof CharSequence) ? (CharSequence) part : part.toString();
   }
 
+  /**
+   * Returns the concatenation of the first {@code count} of {@code pieces}, with {@code afterEven}
+   * after each piece at an even index and {@code afterOdd} after each piece at an odd index, except
+   * the last. The result is assembled in a character array of exactly the right size.
+   */
+  private static String concat(
+      CharSequence[] pieces, int count, String afterEven, String afterOdd) {
+    if (count == 0) {
+      return "";
+    }
+    long length = (long) afterEven.length() * (count / 2)
+        + (long) afterOdd.length() * ((count - 1) / 2);
+    for (int i = 0; i < count; i++) {
+      length += pieces[i].length();
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new OutOfMemoryError("Joined string is too long: " + length);
+    }
+    char[] chars = new char[(int) length];
+    int position = copy(pieces[0], chars, 0);
+    for (int i = 1; i < count; i++) {
+      position = copy((i % 2 == 1) ? afterEven : afterOdd, chars, position);
+      position = copy(pieces[i], chars, position);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Copies {@code sequence} into {@code dest} at index {@code position}, and returns the index
+   * following the last character copied.
+   */
+  private static int copy(CharSequence sequence, char[] dest, int position) {
+    int length = sequence.length();
+    int end = position + length;
+    checkPositionIndexes(position, end, dest.length);
+    if (sequence instanceof String) {
+      ((String) sequence).getChars(0, length, dest, position);
+    } else {
+      for (int i = 0; i < length; i++) {
+        dest[position + i] = sequence.charAt(i);
+      }
+    }
+    return end;
+  }
+
+  private static CharSequence[] copyOf(CharSequence[] pieces, int length) {
+    CharSequence[] copy = new CharSequence[length];
+    System.arraycopy(pieces, 0, copy, 0, pieces.length);
+    return copy;
+  }
+
   private static Iterable<Object> iterable(
       final Object first, final Object second, final Object[] rest) {
     checkNotNull(rest);
@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A compiled set of literal strings, which finds occurrences of any of them in a character
+ * sequence in a single pass, however many there are. This is the multi-string counterpart of
+ * {@link CharMatcher}, and can be used as a separator with {@link Splitter#on(LiteralMatcher)}.
+ *
+ * <p>The literals are compiled into an Aho-Corasick automaton: a trie of the literals in which
+ * each node also links to the node for its longest proper suffix, so that a mismatch never
+ * causes the input to be read again. Searching takes time proportional to the length of the
+ * input plus the number of occurrences reported, rather than to the number of literals.
+ *
+ * <p>Except for {@link #findAllIn}, which reports every occurrence, the methods consider the
+ * <i>leftmost-longest</i> occurrences: the one that starts first, and the longest of those that
+ * start there. For example, with the literals {@code "ab"}, {@code "abc"} and {@code "bcd"},
+ * the first occurrence in {@code "abcd"} is {@code "abc"}.
+ *
+ * <p>Instances are immutable and thread-safe.
+ *
+ * @since 12.0
+ */
+@Beta
+@GwtCompatible
+public final class LiteralMatcher {
+  private final String[] literals;
+
+  /*
+   * The automaton. State 0 is the root; the transitions from state s are the characters
+   * labels[edgeStart[s] .. edgeStart[s + 1] - 1], sorted, leading to the states at the same
+   * indexes of targets.
+   */
+  private final int[] edgeStart;
+  private final char[] labels;
+  private final int[] targets;
+  /** The state for the longest proper suffix of each state that is a prefix of a literal. */
+  private final int[] failure;
+  /** The length of the prefix that each state stands for. */
+  private final int[] depth;
+  /** The index of the literal that each state stands for, or -1. */
+  private final int[] literalAt;
+  /** The state for the longest proper suffix of each state that is a literal, or -1. */
+  private final int[] outputLink;
+
+  private LiteralMatcher(String[] literals) {
+    this.literals = literals;
+
+    // Build the trie, with the transitions of each state in a sorted map.
+    List<TreeMap<Character, Integer>> trie = new ArrayList<TreeMap<Character, Integer>>();
+    List<Integer> depths = new ArrayList<Integer>();
+    trie.add(new TreeMap<Character, Integer>());
+    depths.add(0);
+    int[] literalStates = new int[literals.length];
+    for (int i = 0; i < literals.length; i++) {
+      int state = 0;
+      for (int j = 0; j < literals[i].length(); j++) {
+        Integer next = trie.get(state).get(literals[i].charAt(j));
+        if (next == null) {
+          next = trie.size();
+          trie.add(new TreeMap<Character, Integer>());
+          depths.add(j + 1);
+          trie.get(state).put(literals[i].charAt(j), next);
+        }
+        state = next;
+      }
+      literalStates[i] = state;
+    }
+
+    int stateCount = trie.size();
+    edgeStart = new int[stateCount + 1];
+    labels = new char[stateCount - 1];
+    targets = new int[stateCount - 1];
+    depth = new int[stateCount];
+    for (int state = 0, edge = 0; state < stateCount; state++) {
+      edgeStart[state] = edge;
+      depth[state] = depths.get(state);
+      for (Map.Entry<Character, Integer> entry : trie.get(state).entrySet()) {
+        labels[edge] = entry.getKey();
+        targets[edge] = entry.getValue();
+        edge++;
+      }
+    }
+    edgeStart[stateCount] = stateCount - 1;
+
+    literalAt = new int[stateCount];
+    Arrays.fill(literalAt, -1);
+    for (int i = 0; i < literals.length; i++) {
+      literalAt[literalStates[i]] = i;
+    }
+
+    // Compute the links breadth-first, so that those of shallower states are known first.
+    failure = new int[stateCount];
+    outputLink = new int[stateCount];
+    outputLink[0] = -1;
+    int[] queue = new int[stateCount];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = 0;
+    while (head < tail) {
+      int state = queue[head++];
+      for (int edge = edgeStart[state]; edge < edgeStart[state + 1]; edge++) {
+        int child = targets[edge];
+        failure[child] = (state == 0) ? 0 : step(failure[state], labels[edge]);
+        int suffix = failure[child];
+        outputLink[child] = (literalAt[suffix] >= 0) ? suffix : outputLink[suffix];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  /**
+   * Returns a matcher for the given literals. Duplicates are ignored.
+   *
+   * @throws IllegalArgumentException if there are no literals, or if one of them is empty
+   */
+  public static LiteralMatcher of(String... literals) {
+    return of(Arrays.asList(literals));
+  }
+
+  /**
+   * Returns a matcher for the given literals. Duplicates are ignored.
+   *
+   * @throws IllegalArgumentException if there are no literals, or if one of them is empty
+   */
+  public static LiteralMatcher of(Iterable<String> literals) {
+    Set<String> distinct = new LinkedHashSet<String>();
+    for (String literal : literals) {
+      checkArgument(literal.length() > 0, "The literals may not be empty");
+      distinct.add(literal);
+    }
+    checkArgument(!distinct.isEmpty(), "There must be at least one literal");
+    return new LiteralMatcher(distinct.toArray(new String[distinct.size()]));
+  }
+
+  /** Returns the literals of this matcher, in the order they were given, without duplicates. */
+  public List<String> literals() {
+    return Collections.unmodifiableList(Arrays.asList(literals));
+  }
+
+  /**
+   * Returns true if {@code sequence} contains an occurrence of any literal. This stops reading
+   * {@code sequence} at the end of the first occurrence.
+   */
+  public boolean foundIn(CharSequence sequence) {
+    int length = sequence.length();
+    for (int i = 0, state = 0; i < length; i++) {
+      state = step(state, sequence.charAt(i));
+      if (literalAt[state] >= 0 || outputLink[state] >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the index of the first occurrence of any literal in {@code sequence}, or -1 if there
+   * is none.
+   */
+  public int indexIn(CharSequence sequence) {
+    return indexIn(sequence, 0);
+  }
+
+  /**
+   * Returns the index of the first occurrence of any literal in {@code sequence} that starts at
+   * or after {@code start}, or -1 if there is none.
+   *
+   * @throws IndexOutOfBoundsException if {@code start} is negative or greater than {@code
+   *     sequence.length()}
+   */
+  public int indexIn(CharSequence sequence, int start) {
+    checkPositionIndex(start, sequence.length());
+    long match = find(sequence, start);
+    return (match < 0) ? -1 : matchStart(match);
+  }
+
+  /**
+   * Returns the number of leftmost-longest, non-overlapping occurrences of the literals in
+   * {@code sequence}, which is the number replaced by {@link #replaceFrom}.
+   */
+  public int countIn(CharSequence sequence) {
+    int count = 0;
+    for (long match = find(sequence, 0); match >= 0; match = find(sequence, matchEnd(match))) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Returns every occurrence of every literal in {@code sequence}, including overlapping ones,
+   * in the order of their end indexes; occurrences that end at the same index are ordered from
+   * the longest to the shortest.
+   */
+  public List<Occurrence> findAllIn(CharSequence sequence) {
+    List<Occurrence> occurrences = new ArrayList<Occurrence>();
+    int length = sequence.length();
+    for (int i = 0, state = 0; i < length; i++) {
+      state = step(state, sequence.charAt(i));
+      int match = (literalAt[state] >= 0) ? state : outputLink[state];
+      while (match >= 0) {
+        occurrences.add(new Occurrence(literals[literalAt[match]], i + 1 - depth[match]));
+        match = outputLink[match];
+      }
+    }
+    return occurrences;
+  }
+
+  /**
+   * Returns a string copy of {@code sequence}, with each leftmost-longest, non-overlapping
+   * occurrence of the literals replaced by {@code replacement}. For example, with the literals
+   * {@code "cat"} and {@code "dog"}, {@code replaceFrom("hot dog, cat", "*")} returns {@code
+   * "hot *, *"}.
+   */
+  public String replaceFrom(CharSequence sequence, CharSequence replacement) {
+    checkNotNull(replacement);
+    return replaceFrom(sequence, Functions.constant(replacement));
+  }
+
+  /**
+   * Returns a string copy of {@code sequence}, with each leftmost-longest, non-overlapping
+   * occurrence of a literal replaced by the result of applying {@code replacer} to it.
+   */
+  public String replaceFrom(
+      CharSequence sequence, Function<? super String, ? extends CharSequence> replacer) {
+    checkNotNull(replacer);
+    long match = find(sequence, 0);
+    if (match < 0) {
+      return sequence.toString();
+    }
+    StringBuilder builder = new StringBuilder(sequence.length());
+    int copied = 0;
+    do {
+      int start = matchStart(match);
+      int end = matchEnd(match);
+      builder.append(sequence, copied, start);
+      builder.append(replacer.apply(sequence.subSequence(start, end).toString()));
+      copied = end;
+      match = find(sequence, end);
+    } while (match >= 0);
+    return builder.append(sequence, copied, sequence.length()).toString();
+  }
+
+  /**
+   * Returns the leftmost-longest occurrence that starts at or after {@code from}, with its start
+   * index in the high 32 bits and its end index in the low 32 bits; or -1 if there is none.
+   * The input is read no further than the longest literal past the start of the occurrence.
+   */
+  long find(CharSequence sequence, int from) {
+    int length = sequence.length();
+    int bestStart = -1;
+    int bestEnd = -1;
+    for (int i = from, state = 0; i < length; i++) {
+      state = step(state, sequence.charAt(i));
+      // Any occurrence ending here or later starts at i + 1 - depth[state] or after.
+      if (bestStart >= 0 && i + 1 - depth[state] > bestStart) {
+        break;
+      }
+      int match = (literalAt[state] >= 0) ? state : outputLink[state];
+      if (match >= 0) {
+        int start = i + 1 - depth[match];
+        // An occurrence with the same start but a later end is longer.
+        if (bestStart < 0 || start <= bestStart) {
+          bestStart = start;
+          bestEnd = i + 1;
+        }
+      }
+    }
+    return (bestStart < 0) ? -1 : ((long) bestStart << 32) | bestEnd;
+  }
+
+  static int matchStart(long match) {
+    return (int) (match >>> 32);
+  }
+
+  static int matchEnd(long match) {
+    return (int) match;
+  }
+
+  /** Returns the state reached from {@code state} by reading {@code c}. */
+  private int step(int state, char c) {
+    while (true) {
+      int low = edgeStart[state];
+      int high = edgeStart[state + 1] - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        char label = labels[mid];
+        if (label < c) {
+          low = mid + 1;
+        } else if (label > c) {
+          high = mid - 1;
+        } else {
+          return targets[mid];
+        }
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = failure[state];
+    }
+  }
+
+  @Override public String toString() {
+    return "LiteralMatcher.of(" + literals.length + " literals)";
+  }
+
+  /**
+   * An occurrence of a literal in a character sequence, as returned by {@link
+   * LiteralMatcher#findAllIn}.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public static final class Occurrence {
+    private final String literal;
+    private final int start;
+
+    Occurrence(String literal, int start) {
+      this.literal = literal;
+      this.start = start;
+    }
+
+    /** Returns the literal that occurs. */
+    public String literal() {
+      return literal;
+    }
+
+    /** Returns the index of the first character of the occurrence. */
+    public int start() {
+      return start;
+    }
+
+    /** Returns the index following the last character of the occurrence. */
+    public int end() {
+      return start + literal.length();
+    }
+
+    @Override public String toString() {
+      return literal + "@" + start;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * A memoizing supplier that replaces its value in the background before the
+ * value expires. Instances are obtained from {@link
+ * Suppliers#memoizeWithRefresh}.
+ *
+ * <p>Once a value has been loaded, {@link #get} never takes a lock: it reads
+ * the current value and its load time, and returns the value. A read that
+ * finds the value older than the refresh interval still returns it, but also
+ * submits a refresh to the executor, unless one is already in flight; at most
+ * one refresh runs at a time, however many threads read the stale value. The
+ * refreshed value replaces the old one when the delegate returns. A refresh
+ * that throws leaves the old value in place, and the next read past the
+ * refresh interval tries again.
+ *
+ * <p>Only the first load, and a read that finds the value older than the
+ * expiration interval (which happens only when refreshes have been failing
+ * or falling behind for that long), call the delegate on the reading thread.
+ * Concurrent readers wait for that load rather than starting their own.
+ *
+ * <p>The {@linkplain #blockingLoadCount counters} and {@link #age} describe
+ * how fresh the served values have been, and can be exported as metrics.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class RefreshingSupplier<T> implements Supplier<T> {
+  private final Supplier<T> delegate;
+  private final long refreshNanos;
+  private final long expireNanos;
+  private final Executor executor;
+  private final Ticker ticker;
+
+  private final AtomicReference<Loaded<T>> current =
+      new AtomicReference<Loaded<T>>();
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  private final AtomicLong staleReads = new AtomicLong();
+  private final AtomicLong blockingLoads = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong refreshFailures = new AtomicLong();
+  private volatile Throwable lastRefreshFailure;
+
+  private final Runnable refreshTask = new Runnable() {
+    @Override public void run() {
+      try {
+        long loadNanos = ticker.read();
+        if (install(delegate.get(), loadNanos)) {
+          refreshes.incrementAndGet();
+        }
+      } catch (RuntimeException e) {
+        recordFailure(e);
+      } finally {
+        refreshing.set(false);
+      }
+    }
+  };
+
+  RefreshingSupplier(Supplier<T> delegate, long refreshAfter,
+      long expireAfter, TimeUnit unit, Executor executor, Ticker ticker) {
+    this.delegate = checkNotNull(delegate);
+    this.executor = checkNotNull(executor);
+    this.ticker = checkNotNull(ticker);
+    this.refreshNanos = unit.toNanos(refreshAfter);
+    this.expireNanos = unit.toNanos(expireAfter);
+    checkArgument(refreshAfter > 0,
+        "refreshAfter must be positive: %s", refreshAfter);
+    checkArgument(expireAfter > refreshAfter,
+        "expireAfter (%s) must be greater than refreshAfter (%s)",
+        expireAfter, refreshAfter);
+  }
+
+  /** A value together with the time its load started. */
+  private static final class Loaded<T> {
+    final T value;
+    final long loadNanos;
+
+    Loaded(T value, long loadNanos) {
+      this.value = value;
+      this.loadNanos = loadNanos;
+    }
+  }
+
+  @Override
+  public T get() {
+    Loaded<T> loaded = current.get();
+    if (loaded != null) {
+      long age = ticker.read() - loaded.loadNanos;
+      if (age < refreshNanos) {
+        return loaded.value;
+      }
+      if (age < expireNanos) {
+        staleReads.incrementAndGet();
+        refresh();
+        return loaded.value;
+      }
+    }
+    return load();
+  }
+
+  private synchronized T load() {
+    // Recheck: another thread may have loaded while we waited for the lock.
+    long loadNanos = ticker.read();
+    Loaded<T> loaded = current.get();
+    if (loaded != null && loadNanos - loaded.loadNanos < expireNanos) {
+      return loaded.value;
+    }
+    T value = delegate.get();
+    blockingLoads.incrementAndGet();
+    install(value, loadNanos);
+    return value;
+  }
+
+  /**
+   * Installs {@code value} unless the current value was loaded later, which
+   * happens when a blocking load overtakes a slow refresh. Returns whether
+   * {@code value} was installed.
+   */
+  private boolean install(T value, long loadNanos) {
+    Loaded<T> replacement = new Loaded<T>(value, loadNanos);
+    while (true) {
+      Loaded<T> loaded = current.get();
+      if (loaded != null && loaded.loadNanos - loadNanos > 0) {
+        return false;
+      }
+      if (current.compareAndSet(loaded, replacement)) {
+        return true;
+      }
+    }
+  }
+
+  private void recordFailure(Throwable t) {
+    lastRefreshFailure = t;
+    refreshFailures.incrementAndGet();
+  }
+
+  /**
+   * Submits a refresh of the value to the executor, unless one is already in
+   * flight, and returns without waiting for it. Reads keep returning the
+   * current value until the refresh completes.
+   */
+  public void refresh() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.execute(refreshTask);
+    } catch (RuntimeException e) {
+      // Typically a RejectedExecutionException; the next read retries.
+      refreshing.set(false);
+      recordFailure(e);
+    }
+  }
+
+  /**
+   * Returns the time elapsed since the load of the current value started, in
+   * the given unit, or -1 if no value has been loaded yet.
+   */
+  public long age(TimeUnit unit) {
+    checkNotNull(unit);
+    Loaded<T> loaded = current.get();
+    return (loaded == null)
+        ? -1
+        : unit.convert(ticker.read() - loaded.loadNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the number of reads that returned a value older than the refresh
+   * interval, because its refresh had not completed yet.
+   */
+  public long staleReadCount() {
+    return staleReads.get();
+  }
+
+  /**
+   * Returns the number of times a reading thread called the delegate itself:
+   * once for the first load, and once for each read that found the value
+   * expired.
+   */
+  public long blockingLoadCount() {
+    return blockingLoads.get();
+  }
+
+  /** Returns the number of background refreshes that replaced the value. */
+  public long refreshCount() {
+    return refreshes.get();
+  }
+
+  /**
+   * Returns the number of background refreshes that failed, either because
+   * the delegate threw or because the executor rejected the refresh.
+   */
+  public long refreshFailureCount() {
+    return refreshFailures.get();
+  }
+
+  /**
+   * Returns the exception thrown by the most recent failed refresh, or
+   * {@code null} if no refresh has failed.
+   */
+  @Nullable public Throwable lastRefreshFailure() {
+    return lastRefreshFailure;
+  }
+}
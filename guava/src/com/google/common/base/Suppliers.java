@@ -18,9 +18,11 @@ package com.google.common.base;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 
 import java.io.Serializable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
@@ -35,7 +37,7 @@ import javax.annotation.Nullable;
  * @author Harry Heymann
  * @since 2.0 (imported from Google Collections Library)
  */
-@GwtCompatible
+@GwtCompatible(emulated = true)
 public final class Suppliers {
   private Suppliers() {}
 
@@ -186,6 +188,42 @@ public final class Suppliers {
     private static final long serialVersionUID = 0;
   }
 
+  /**
+   * Returns a supplier that caches the instance supplied by the delegate, and
+   * replaces it in the background once it is older than {@code refreshAfter},
+   * so that callers keep getting the cached value while the new one is
+   * computed. Unlike {@link #memoizeWithExpiration}, the returned supplier
+   * takes no lock once a value is cached, and its callers do not wait for
+   * the delegate unless the value is older than {@code expireAfter}.
+   *
+   * <p>The refresh runs on {@code executor}, and at most one refresh is in
+   * flight at any time. A refresh that throws keeps the old value, and is
+   * retried by the next call to {@code get()}. See {@link RefreshingSupplier}
+   * for the details and for the counters describing how stale the returned
+   * values have been.
+   *
+   * <p>The returned supplier is thread-safe. It is not serializable.
+   *
+   * @param refreshAfter the age of the cached value after which {@code get()}
+   *     starts a refresh
+   * @param expireAfter the age of the cached value after which {@code get()}
+   *     no longer returns it, but calls the delegate itself
+   * @param unit the unit that {@code refreshAfter} and {@code expireAfter} are
+   *     expressed in
+   * @param executor the executor that runs the refreshes
+   * @throws IllegalArgumentException if {@code refreshAfter} is not positive,
+   *     or {@code expireAfter} is not greater than {@code refreshAfter}
+   * @since 12.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.Executor")
+  public static <T> RefreshingSupplier<T> memoizeWithRefresh(
+      Supplier<T> delegate, long refreshAfter, long expireAfter,
+      TimeUnit unit, Executor executor) {
+    return new RefreshingSupplier<T>(delegate, refreshAfter, expireAfter,
+        unit, executor, Ticker.systemTicker());
+  }
+
   /**
    * Returns a supplier that always supplies {@code instance}.
    */
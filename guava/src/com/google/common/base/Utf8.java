@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.base;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.annotations.Beta;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Static methods for encoding character sequences to, and decoding them from, the UTF-8
+ * character encoding, without the intermediate copies and the {@link
+ * java.nio.charset.CharsetEncoder} of {@link String#getBytes(String)}.
+ *
+ * <p>The methods produce exactly the same results as the JDK's UTF-8 {@link
+ * java.nio.charset.Charset}: when encoding, an unpaired surrogate is replaced by {@code '?'};
+ * when decoding, a malformed byte sequence is replaced by the replacement character U+FFFD.
+ * Runs of ASCII characters, which dominate most text, are handled by a tight loop.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class Utf8 {
+  private Utf8() {}
+
+  /** The most bytes that a single character can take when encoded. */
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  /** The number of characters encoded at a time into a buffer without an array. */
+  private static final int CHUNK_SIZE = 512;
+
+  /**
+   * Returns the number of bytes in the UTF-8 encoding of {@code sequence}. This is the length of
+   * {@code sequence.toString().getBytes(Charsets.UTF_8)}, computed without encoding it.
+   *
+   * @throws IllegalArgumentException if the encoding is longer than {@link Integer#MAX_VALUE}
+   *     bytes
+   */
+  public static int encodedLength(CharSequence sequence) {
+    long length = encodedLength(sequence, 0, sequence.length());
+    checkArgument(length <= Integer.MAX_VALUE,
+        "UTF-8 length does not fit in int: %s", length);
+    return (int) length;
+  }
+
+  private static long encodedLength(CharSequence sequence, int start, int end) {
+    long length = end - start;
+    int i = start;
+    // Skip the ASCII prefix, which takes one byte per character.
+    while (i < end && sequence.charAt(i) < 0x80) {
+      i++;
+    }
+    for (; i < end; i++) {
+      char c = sequence.charAt(i);
+      if (c < 0x80) {
+        continue;
+      } else if (c < 0x800) {
+        length++;
+      } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < end
+          && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+        // Four bytes for two characters.
+        length += 2;
+        i++;
+      }
+      // An unpaired surrogate is replaced by a single '?'.
+    }
+    return length;
+  }
+
+  /**
+   * Returns the UTF-8 encoding of {@code sequence}. Equivalent to {@code
+   * sequence.toString().getBytes(Charsets.UTF_8)}.
+   */
+  public static byte[] encode(CharSequence sequence) {
+    byte[] bytes = new byte[encodedLength(sequence)];
+    encodeUnchecked(sequence, 0, sequence.length(), bytes, 0);
+    return bytes;
+  }
+
+  /**
+   * Encodes {@code sequence} in UTF-8 into {@code bytes}, starting at index {@code offset}, and
+   * returns the index following the last byte written. This allows a single array to be reused
+   * for many sequences; {@link #encodedLength} tells how large it must be.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} is negative, or if the encoding doesn't
+   *     fit between {@code offset} and the end of {@code bytes}; nothing is written in that case
+   */
+  public static int encode(CharSequence sequence, byte[] bytes, int offset) {
+    checkPositionIndex(offset, bytes.length);
+    int length = sequence.length();
+    if ((long) length * MAX_BYTES_PER_CHAR > bytes.length - offset) {
+      checkPositionIndexes(offset, offset + encodedLength(sequence), bytes.length);
+    }
+    return encodeUnchecked(sequence, 0, length, bytes, offset);
+  }
+
+  /**
+   * Encodes {@code sequence} in UTF-8 into {@code buffer}, starting at its position, and advances
+   * the position past the last byte written. Buffers with an accessible array are written
+   * directly; others, such as direct and memory-mapped buffers, are written in bulk from a small
+   * scratch array.
+   *
+   * @throws BufferOverflowException if the encoding is longer than the remaining bytes of {@code
+   *     buffer}; nothing is written in that case
+   * @throws java.nio.ReadOnlyBufferException if {@code buffer} is read-only
+   */
+  public static void encode(CharSequence sequence, ByteBuffer buffer) {
+    int length = sequence.length();
+    if ((long) length * MAX_BYTES_PER_CHAR > buffer.remaining()
+        && encodedLength(sequence) > buffer.remaining()) {
+      throw new BufferOverflowException();
+    }
+    if (buffer.hasArray()) {
+      int start = buffer.arrayOffset() + buffer.position();
+      int end = encodeUnchecked(sequence, 0, length, buffer.array(), start);
+      buffer.position(buffer.position() + end - start);
+      return;
+    }
+    byte[] chunk = new byte[Math.min(length, CHUNK_SIZE) * MAX_BYTES_PER_CHAR];
+    for (int i = 0; i < length; ) {
+      int end = Math.min(i + CHUNK_SIZE, length);
+      // Keep surrogate pairs within one chunk.
+      if (end < length && Character.isHighSurrogate(sequence.charAt(end - 1))) {
+        end--;
+      }
+      buffer.put(chunk, 0, encodeUnchecked(sequence, i, end, chunk, 0));
+      i = end;
+    }
+  }
+
+  /**
+   * Encodes the characters of {@code sequence} between {@code start} and {@code end} at {@code
+   * offset} in {@code bytes}, which must be large enough, and returns the index following the
+   * last byte written.
+   */
+  private static int encodeUnchecked(
+      CharSequence sequence, int start, int end, byte[] bytes, int offset) {
+    int i = start;
+    int j = offset;
+    for (char c; i < end && (c = sequence.charAt(i)) < 0x80; i++) {
+      bytes[j++] = (byte) c;
+    }
+    for (; i < end; i++) {
+      char c = sequence.charAt(i);
+      if (c < 0x80) {
+        bytes[j++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[j++] = (byte) (0xC0 | (c >>> 6));
+        bytes[j++] = (byte) (0x80 | (c & 0x3F));
+      } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+        bytes[j++] = (byte) (0xE0 | (c >>> 12));
+        bytes[j++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+        bytes[j++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < end
+          && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, sequence.charAt(++i));
+        bytes[j++] = (byte) (0xF0 | (codePoint >>> 18));
+        bytes[j++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+        bytes[j++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+        bytes[j++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else {
+        bytes[j++] = '?';
+      }
+    }
+    return j;
+  }
+
+  /**
+   * Decodes {@code length} bytes of UTF-8 from {@code bytes}, starting at index {@code offset}.
+   * Equivalent to {@code new String(bytes, offset, length, Charsets.UTF_8)}.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} and {@code length} don't denote a range
+   *     of {@code bytes}
+   */
+  public static String decode(byte[] bytes, int offset, int length) {
+    checkPositionIndexes(offset, offset + length, bytes.length);
+    // A UTF-8 sequence never decodes to more characters than it has bytes.
+    char[] chars = new char[length];
+    int n = decodeWellFormed(bytes, offset, offset + length, chars);
+    if (n < 0) {
+      // Leave the replacement of malformed sequences to the JDK.
+      try {
+        return new String(bytes, offset, length, Charsets.UTF_8.name());
+      } catch (UnsupportedEncodingException impossible) {
+        throw new AssertionError(impossible);
+      }
+    }
+    return new String(chars, 0, n);
+  }
+
+  /**
+   * Decodes the bytes between {@code start} and {@code end} into {@code chars}, and returns the
+   * number of characters, or -1 if the bytes are not well-formed UTF-8.
+   */
+  private static int decodeWellFormed(byte[] bytes, int start, int end, char[] chars) {
+    int i = start;
+    int n = 0;
+    while (i < end && bytes[i] >= 0) {
+      chars[n++] = (char) bytes[i++];
+    }
+    while (i < end) {
+      int b = bytes[i++];
+      if (b >= 0) {
+        chars[n++] = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        // Lead bytes 0xC0 and 0xC1 could only start overlong encodings.
+        if ((b & 0xFF) < 0xC2 || i >= end || !isContinuation(bytes[i])) {
+          return -1;
+        }
+        chars[n++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+      } else if ((b & 0xF0) == 0xE0) {
+        if (i + 1 >= end || !isContinuation(bytes[i]) || !isContinuation(bytes[i + 1])) {
+          return -1;
+        }
+        int c = ((b & 0x0F) << 12) | ((bytes[i] & 0x3F) << 6) | (bytes[i + 1] & 0x3F);
+        if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+          return -1;
+        }
+        chars[n++] = (char) c;
+        i += 2;
+      } else if ((b & 0xF8) == 0xF0) {
+        if (i + 2 >= end || !isContinuation(bytes[i]) || !isContinuation(bytes[i + 1])
+            || !isContinuation(bytes[i + 2])) {
+          return -1;
+        }
+        int codePoint = ((b & 0x07) << 18) | ((bytes[i] & 0x3F) << 12)
+            | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F);
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+            || codePoint > Character.MAX_CODE_POINT) {
+          return -1;
+        }
+        n += Character.toChars(codePoint, chars, n);
+        i += 3;
+      } else {
+        return -1;
+      }
+    }
+    return n;
+  }
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+}
@@ -27,6 +27,9 @@ import java.util.concurrent.ConcurrentMap;
 /**
  * Contains static methods pertaining to instances of {@link Interner}.
  *
+ * <p>To intern large numbers of strings, consider {@link StringInterner}, which stores them more
+ * compactly and can intern characters and bytes without first creating a {@code String}.
+ *
  * @author Kevin Bourrillion
  * @since 3.0
  */
@@ -0,0 +1,481 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe {@link Interner} specialized for strings, which stores the
+ * canonical strings compactly and can intern text that is not yet a {@code
+ * String}.
+ *
+ * <p>Canonical strings are kept in open-addressed hash tables: an array of
+ * references and an array of their hash codes, with no entry object per
+ * string, so that each interned string costs about 12 bytes on top of the
+ * string itself. {@link Interners#newStrongInterner} allocates a map entry
+ * of several times that size per string.
+ *
+ * <p>{@link #intern(CharSequence, int, int)} and {@link #internUtf8} look up
+ * a range of characters or bytes, and only create a {@code String} when the
+ * text has not been interned before, which makes them suitable for
+ * deduplicating tokens straight out of a parser's buffer. Lookups take no
+ * lock; adding a string locks one of several segments of the interner.
+ *
+ * <p>An interner created by {@link #withMaximumSize} holds at most that many
+ * strings. When full, it evicts strings with the CLOCK algorithm, an
+ * approximation of least-recently-used eviction. Interning a string equal
+ * to an evicted one then returns a new canonical instance, so a bounded
+ * interner deduplicates most, but not necessarily all, equal strings.
+ *
+ * <p>{@link #hitCount}, {@link #missCount} and {@link #evictionCount} tell
+ * how effective the interner is.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class StringInterner implements Interner<String> {
+  private static final int MAX_SEGMENTS = 16;
+  private static final int SEGMENT_SHIFT = 28; // Integer.SIZE - log2(MAX_SEGMENTS)
+  private static final int MIN_BOUNDED_SEGMENT_SIZE = 64;
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final HitCounter hits = new HitCounter();
+
+  private StringInterner(int segmentCount, int segmentMaximumSize) {
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(segmentMaximumSize, hits);
+    }
+    segmentMask = segmentCount - 1;
+  }
+
+  /** Creates an interner that retains every string it interns. */
+  public static StringInterner create() {
+    return new StringInterner(MAX_SEGMENTS, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates an interner that retains at most {@code maximumSize} strings,
+   * evicting the ones used least recently to make room for new ones.
+   *
+   * @throws IllegalArgumentException if {@code maximumSize} is not positive
+   */
+  public static StringInterner withMaximumSize(int maximumSize) {
+    checkArgument(maximumSize > 0, "maximumSize must be positive: %s",
+        maximumSize);
+    int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(
+        Math.max(1, maximumSize / MIN_BOUNDED_SEGMENT_SIZE)));
+    return new StringInterner(segmentCount, maximumSize / segmentCount);
+  }
+
+  /**
+   * Returns the canonical string equal to {@code sample}, which is {@code
+   * sample} itself if no equal string has been interned before.
+   */
+  @Override public String intern(String sample) {
+    int hash = sample.hashCode();
+    Segment segment = segmentFor(hash);
+    String canonical = segment.find(hash, sample, 0, sample.length());
+    return (canonical != null)
+        ? canonical
+        : segment.add(hash, sample, 0, sample.length(), sample);
+  }
+
+  /**
+   * Returns the canonical string equal to {@code chars.subSequence(start,
+   * end)}. A new {@code String} is only created if no equal string has been
+   * interned before.
+   *
+   * @throws IndexOutOfBoundsException if {@code start} and {@code end} do not
+   *     designate a valid range of {@code chars}
+   */
+  public String intern(CharSequence chars, int start, int end) {
+    checkPositionIndexes(start, end, chars.length());
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    Segment segment = segmentFor(hash);
+    String canonical = segment.find(hash, chars, start, end);
+    return (canonical != null)
+        ? canonical
+        : segment.add(hash, chars, start, end, null);
+  }
+
+  /**
+   * Returns the canonical string equal to the UTF-8 decoding of {@code
+   * length} bytes of {@code bytes}, starting at {@code offset}. If the bytes
+   * are all ASCII, a new {@code String} is only created if no equal string
+   * has been interned before; otherwise the bytes are decoded first, with
+   * malformed input replaced as by {@link
+   * java.nio.charset.Charset#decode}.
+   *
+   * @throws IndexOutOfBoundsException if {@code offset} and {@code length} do
+   *     not designate a valid range of {@code bytes}
+   */
+  public String internUtf8(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    checkPositionIndexes(offset, end, bytes.length);
+    int hash = 0;
+    for (int i = offset; i < end; i++) {
+      byte b = bytes[i];
+      if (b < 0) {
+        return intern(Charsets.UTF_8.decode(
+            ByteBuffer.wrap(bytes, offset, length)).toString());
+      }
+      hash = 31 * hash + b;
+    }
+    Segment segment = segmentFor(hash);
+    String canonical = segment.find(hash, bytes, offset, end);
+    return (canonical != null)
+        ? canonical
+        : segment.add(hash, bytes, offset, end, null);
+  }
+
+  /** Returns the number of strings this interner currently retains. */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of times an intern method found an equal string
+   * already interned.
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of times an intern method added a new canonical
+   * string.
+   */
+  public long missCount() {
+    long misses = 0;
+    for (Segment segment : segments) {
+      misses += segment.misses.get();
+    }
+    return misses;
+  }
+
+  /**
+   * Returns the ratio of {@linkplain #hitCount hits} to intern calls, or
+   * {@code 1.0} if there has been no call yet.
+   */
+  public double hitRate() {
+    long hits = hitCount();
+    long requests = hits + missCount();
+    return (requests == 0) ? 1.0 : (double) hits / requests;
+  }
+
+  /**
+   * Returns the number of strings evicted to keep the size of this interner
+   * within its maximum size.
+   */
+  public long evictionCount() {
+    long evictions = 0;
+    for (Segment segment : segments) {
+      evictions += segment.evictions.get();
+    }
+    return evictions;
+  }
+
+  private Segment segmentFor(int hash) {
+    // Fibonacci hashing: short strings have hash codes with zero high bits.
+    return segments[((hash * 0x9E3779B9) >>> SEGMENT_SHIFT) & segmentMask];
+  }
+
+  /**
+   * Returns whether {@code candidate} equals the characters of {@code
+   * source}, a {@code CharSequence} or an array of ASCII bytes, in the range
+   * {@code [start, end)}.
+   */
+  static boolean matches(String candidate, Object source, int start,
+      int end) {
+    int length = end - start;
+    if (candidate.length() != length) {
+      return false;
+    }
+    if (source instanceof String) {
+      return candidate.regionMatches(0, (String) source, start, length);
+    }
+    if (source instanceof byte[]) {
+      byte[] bytes = (byte[]) source;
+      for (int i = 0; i < length; i++) {
+        if (candidate.charAt(i) != bytes[start + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    CharSequence chars = (CharSequence) source;
+    for (int i = 0; i < length; i++) {
+      if (candidate.charAt(i) != chars.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Creates a string holding a copy of the given range of {@code source}. */
+  static String newString(Object source, int start, int end) {
+    char[] chars = new char[end - start];
+    if (source instanceof byte[]) {
+      byte[] bytes = (byte[]) source;
+      for (int i = start; i < end; i++) {
+        chars[i - start] = (char) bytes[i];
+      }
+    } else if (source instanceof String) {
+      ((String) source).getChars(start, end, chars, 0);
+    } else {
+      CharSequence sequence = (CharSequence) source;
+      for (int i = start; i < end; i++) {
+        chars[i - start] = sequence.charAt(i);
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Counts hits in cells striped by thread, so that threads looking up
+   * strings concurrently rarely write to the same cache line.
+   */
+  private static final class HitCounter {
+    /** The distance between cells, in longs: one 128-byte line apart. */
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    HitCounter() {
+      int processors = Runtime.getRuntime().availableProcessors();
+      int stripes = Math.min(64, Integer.highestOneBit(processors) * 2);
+      cells = new AtomicLongArray(stripes * PADDING);
+      mask = stripes - 1;
+    }
+
+    void increment() {
+      int stripe = (int) Thread.currentThread().getId() & mask;
+      cells.incrementAndGet(stripe * PADDING);
+    }
+
+    long sum() {
+      long sum = 0;
+      for (int i = 0; i < cells.length(); i += PADDING) {
+        sum += cells.get(i);
+      }
+      return sum;
+    }
+  }
+
+  /**
+   * The strings and hash codes of a segment. A table is replaced as a whole
+   * when the segment grows, so that lookups see consistent arrays.
+   */
+  private static final class Table {
+    final int[] hashes;
+    final String[] strings;
+    /** CLOCK reference bits; null if the segment is unbounded. */
+    final boolean[] referenced;
+
+    Table(int capacity, boolean bounded) {
+      hashes = new int[capacity];
+      strings = new String[capacity];
+      referenced = bounded ? new boolean[capacity] : null;
+    }
+  }
+
+  /**
+   * A linear-probing hash table of canonical strings. Lookups read the
+   * current table without locking: a string found there is a valid result
+   * even if it was being moved or evicted concurrently, and a lookup that
+   * misses such a string is repeated under the lock before anything is
+   * added.
+   */
+  private static final class Segment {
+    final int maximumSize;
+    volatile Table table;
+    /** The number of strings in the table; written only under the lock. */
+    volatile int size;
+    /** The next slot the CLOCK hand examines for eviction. */
+    int hand;
+
+    final HitCounter hits;
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty segment. The table starts small, in bounded segments
+     * too, and grows as strings are added, until the segment holds {@code
+     * maximumSize} strings.
+     */
+    Segment(int maximumSize, HitCounter hits) {
+      this.maximumSize = maximumSize;
+      this.hits = hits;
+      table = new Table(INITIAL_SEGMENT_CAPACITY,
+          maximumSize != Integer.MAX_VALUE);
+    }
+
+    String find(int hash, Object source, int start, int end) {
+      Table table = this.table;
+      String[] strings = table.strings;
+      int mask = strings.length - 1;
+      int index = Hashing.smear(hash) & mask;
+      for (int probes = 0; probes <= mask; probes++) {
+        String candidate = strings[index];
+        if (candidate == null) {
+          return null;
+        }
+        if (table.hashes[index] == hash
+            && matches(candidate, source, start, end)) {
+          // Only write the CLOCK bit if needed, to keep hot lines shared.
+          boolean[] referenced = table.referenced;
+          if (referenced != null && !referenced[index]) {
+            referenced[index] = true;
+          }
+          hits.increment();
+          return candidate;
+        }
+        index = (index + 1) & mask;
+      }
+      return null;
+    }
+
+    /**
+     * Adds the string equal to the given range of {@code source}, unless
+     * another thread has added one, and returns the canonical string.
+     *
+     * @param sample the string to add, or null to create one from {@code
+     *     source}
+     */
+    synchronized String add(int hash, Object source, int start, int end,
+        String sample) {
+      String canonical = find(hash, source, start, end);
+      if (canonical != null) {
+        return canonical;
+      }
+      if (size >= maximumSize) {
+        evict();
+      } else if (size + 1 > table.strings.length / 4 * 3) {
+        expand();
+      }
+      canonical = (sample != null) ? sample : newString(source, start, end);
+      Table table = this.table;
+      int mask = table.strings.length - 1;
+      int index = Hashing.smear(hash) & mask;
+      while (table.strings[index] != null) {
+        index = (index + 1) & mask;
+      }
+      table.hashes[index] = hash;
+      table.strings[index] = canonical;
+      size++;
+      misses.incrementAndGet();
+      return canonical;
+    }
+
+    /** Doubles the capacity of the table. Called with the lock held. */
+    void expand() {
+      Table old = table;
+      if (old.strings.length == MAXIMUM_CAPACITY) {
+        return; // Can't grow; the table becomes fuller instead.
+      }
+      int capacity = old.strings.length * 2;
+      Table grown = new Table(capacity, old.referenced != null);
+      int mask = capacity - 1;
+      for (int i = 0; i < old.strings.length; i++) {
+        String string = old.strings[i];
+        if (string != null) {
+          int index = Hashing.smear(old.hashes[i]) & mask;
+          while (grown.strings[index] != null) {
+            index = (index + 1) & mask;
+          }
+          grown.hashes[index] = old.hashes[i];
+          grown.strings[index] = string;
+          if (old.referenced != null) {
+            grown.referenced[index] = old.referenced[i];
+          }
+        }
+      }
+      table = grown;
+    }
+
+    /**
+     * Removes the first string past the CLOCK hand that has not been looked
+     * up since the hand last passed it. Called with the lock held.
+     */
+    void evict() {
+      Table table = this.table;
+      int mask = table.strings.length - 1;
+      while (true) {
+        int index = hand;
+        hand = (hand + 1) & mask;
+        if (table.strings[index] == null) {
+          continue;
+        }
+        if (table.referenced[index]) {
+          table.referenced[index] = false;
+          continue;
+        }
+        remove(table, index);
+        size--;
+        evictions.incrementAndGet();
+        return;
+      }
+    }
+
+    /**
+     * Empties the slot at {@code index}, and moves back the strings that
+     * follow it in the same probe run, so that no lookup stops short of
+     * them at the emptied slot.
+     */
+    private static void remove(Table table, int index) {
+      int mask = table.strings.length - 1;
+      int empty = index;
+      for (int i = (index + 1) & mask; table.strings[i] != null;
+          i = (i + 1) & mask) {
+        int home = Hashing.smear(table.hashes[i]) & mask;
+        // Move the string back unless its home slot lies in (empty, i].
+        boolean stays = (empty <= i)
+            ? (empty < home && home <= i)
+            : (empty < home || home <= i);
+        if (!stays) {
+          table.hashes[empty] = table.hashes[i];
+          table.strings[empty] = table.strings[i];
+          table.referenced[empty] = table.referenced[i];
+          empty = i;
+        }
+      }
+      table.strings[empty] = null;
+      table.referenced[empty] = false;
+    }
+  }
+}
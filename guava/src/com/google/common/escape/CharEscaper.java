@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.io.IOException;
+
+/**
+ * An object that converts literal text into a format safe for inclusion in a
+ * particular context (such as an XML document), one {@code char} at a time.
+ * Characters are escaped independently of each other, so this class is not
+ * suitable for escapers that must handle supplementary code points as a
+ * whole; see {@link UnicodeEscaper} for those.
+ *
+ * <p>Subclasses implement {@link #escape(char)}, which returns the
+ * replacement for a character, or null if it needs no escaping. {@link
+ * #escape(String)} scans for the first character needing escaping, and
+ * returns the input unchanged if there is none; otherwise it copies the
+ * input into a reusable buffer, growing it only when needed.
+ *
+ * @since 12.0
+ */
+@Beta
+@GwtCompatible
+public abstract class CharEscaper extends Escaper {
+  /** Constructor for use by subclasses. */
+  protected CharEscaper() {}
+
+  /** The multiplier for padding to use when growing the escape buffer. */
+  private static final int DEST_PAD_MULTIPLIER = 2;
+
+  /**
+   * Returns the escaped form of a given literal string.
+   *
+   * @param string the literal string to be escaped
+   * @return the escaped form of {@code string}
+   * @throws NullPointerException if {@code string} is null
+   */
+  @Override public String escape(String string) {
+    checkNotNull(string);
+    // Inlineable fast-path loop which hands off to escapeSlow() only if needed
+    int length = string.length();
+    for (int index = 0; index < length; index++) {
+      if (escape(string.charAt(index)) != null) {
+        return escapeSlow(string, index);
+      }
+    }
+    return string;
+  }
+
+  /**
+   * Returns the escaped form of a given literal string, starting at the given
+   * index. This method is called by the {@link #escape(String)} method when
+   * it discovers that escaping is required. It is protected to allow
+   * subclasses to override the fastpath escaping function to inline their
+   * escaping test.
+   *
+   * @param s the literal string to be escaped
+   * @param index the index to start escaping from
+   * @return the escaped form of {@code string}
+   * @throws NullPointerException if {@code string} is null
+   */
+  protected final String escapeSlow(String s, int index) {
+    int slen = s.length();
+
+    // Get a destination buffer and setup some loop variables.
+    char[] dest = Platform.charBufferFromThreadLocal();
+    int destSize = dest.length;
+    int destIndex = 0;
+    int lastEscape = 0;
+
+    // Loop through the rest of the string, replacing when needed into the
+    // destination buffer, which gets grown as needed as well.
+    for (; index < slen; index++) {
+
+      // Get a replacement for the current character.
+      char[] r = escape(s.charAt(index));
+
+      // If no replacement is needed, just continue.
+      if (r == null) {
+        continue;
+      }
+
+      int rlen = r.length;
+      int charsSkipped = index - lastEscape;
+
+      // This is the size needed to add the replacement, not the full size
+      // needed by the string. We only regrow when we absolutely must, and
+      // when we do grow, grow enough to avoid excessive regrowing.
+      int sizeNeeded = destIndex + charsSkipped + rlen;
+      if (destSize < sizeNeeded) {
+        destSize = sizeNeeded + DEST_PAD_MULTIPLIER * (slen - index);
+        dest = growBuffer(dest, destIndex, destSize);
+      }
+
+      // If we have skipped any characters, we need to copy them now.
+      if (charsSkipped > 0) {
+        s.getChars(lastEscape, index, dest, destIndex);
+        destIndex += charsSkipped;
+      }
+
+      // Copy the replacement string into the dest buffer as needed.
+      if (rlen > 0) {
+        System.arraycopy(r, 0, dest, destIndex, rlen);
+        destIndex += rlen;
+      }
+      lastEscape = index + 1;
+    }
+
+    // Copy leftover characters if there are any.
+    int charsLeft = slen - lastEscape;
+    if (charsLeft > 0) {
+      int sizeNeeded = destIndex + charsLeft;
+      if (destSize < sizeNeeded) {
+
+        // Regrow and copy, expensive! No padding as this is the final copy.
+        dest = growBuffer(dest, destIndex, sizeNeeded);
+      }
+      s.getChars(lastEscape, slen, dest, destIndex);
+      destIndex = sizeNeeded;
+    }
+    return new String(dest, 0, destIndex);
+  }
+
+  /**
+   * Returns an {@code Appendable} instance which automatically escapes all
+   * text appended to it before passing the resulting text to an underlying
+   * {@code Appendable}.
+   *
+   * @param out the underlying {@code Appendable} to append escaped output to
+   * @return an {@code Appendable} which passes text to {@code out} after
+   *     escaping it
+   */
+  @Override public Appendable escape(final Appendable out) {
+    checkNotNull(out);
+
+    return new Appendable() {
+      @Override public Appendable append(CharSequence csq) throws IOException {
+        csq = (csq == null) ? "null" : csq;
+        return append(csq, 0, csq.length());
+      }
+
+      @Override public Appendable append(CharSequence csq, int start, int end)
+          throws IOException {
+        csq = (csq == null) ? "null" : csq;
+        checkPositionIndexes(start, end, csq.length());
+        int unescaped = start;
+        for (int index = start; index < end; index++) {
+          char[] r = escape(csq.charAt(index));
+          if (r != null) {
+            if (index > unescaped) {
+              out.append(csq, unescaped, index);
+            }
+            outputChars(out, r);
+            unescaped = index + 1;
+          }
+        }
+        if (end > unescaped) {
+          out.append(csq, unescaped, end);
+        }
+        return this;
+      }
+
+      @Override public Appendable append(char c) throws IOException {
+        char[] r = escape(c);
+        if (r == null) {
+          out.append(c);
+        } else {
+          outputChars(out, r);
+        }
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Returns the escaped form of a given character, or {@code null} if this
+   * character does not need to be escaped. If an empty array is returned,
+   * this effectively strips the input character from the resulting text.
+   *
+   * <p>If the character does not need to be escaped, this method should
+   * return {@code null}, rather than a one-character array containing the
+   * character itself. This enables the escaping algorithm to perform more
+   * efficiently.
+   *
+   * <p>An escaper is expected to be able to deal with any {@code char} value,
+   * so this method should not throw any exceptions.
+   *
+   * @param c the character to escape if necessary
+   * @return the replacement characters, or {@code null} if no escaping was
+   *     needed
+   */
+  protected abstract char[] escape(char c);
+
+  static void outputChars(Appendable out, char[] chars) throws IOException {
+    for (char c : chars) {
+      out.append(c);
+    }
+  }
+
+  /**
+   * Helper method to grow the character buffer as needed, this only happens
+   * once in a while so it's ok if it's in a method call. If the index passed
+   * in is 0 then no copying will be done.
+   */
+  static char[] growBuffer(char[] dest, int index, int size) {
+    char[] copy = new char[size];
+    if (index > 0) {
+      System.arraycopy(dest, 0, copy, 0, index);
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.base.Function;
+
+/**
+ * An object that converts literal text into a format safe for inclusion in a
+ * particular context (such as an XML document). Typically (but not always),
+ * the inverse process of "unescaping" the text is performed automatically by
+ * the relevant parser.
+ *
+ * <p>For example, an XML escaper would convert the literal string {@code
+ * "Foo<Bar>"} into {@code "Foo&lt;Bar&gt;"} to prevent {@code "<Bar>"} from
+ * being confused with an XML tag. When the resulting XML document is parsed,
+ * the parser API will return this text as the original literal string {@code
+ * "Foo<Bar>"}.
+ *
+ * <p>An {@code Escaper} instance is required to be stateless, and safe when
+ * used concurrently by multiple threads. The {@link Appendable} returned by
+ * {@link #escape(Appendable)} is not thread-safe.
+ *
+ * <p>Several popular escapers are defined as constants in classes like {@link
+ * com.google.common.html.HtmlEscapers}, {@link
+ * com.google.common.xml.XmlEscapers} and {@link
+ * com.google.common.net.UrlEscapers}. To create your own escapers, use {@link
+ * Escapers#builder}, or extend {@link CharEscaper} or {@link UnicodeEscaper}.
+ *
+ * @since 12.0
+ */
+@Beta
+@GwtCompatible
+public abstract class Escaper {
+  /** Constructor for use by subclasses. */
+  protected Escaper() {}
+
+  /**
+   * Returns the escaped form of a given literal string. If no character of
+   * {@code string} needs escaping, {@code string} itself is returned, without
+   * copying it.
+   *
+   * @param string the literal string to be escaped
+   * @return the escaped form of {@code string}
+   * @throws NullPointerException if {@code string} is null
+   * @throws IllegalArgumentException if {@code string} contains badly formed
+   *     UTF-16 or cannot be escaped for any other reason
+   */
+  public abstract String escape(String string);
+
+  /**
+   * Returns an {@code Appendable} instance which automatically escapes all
+   * text appended to it before passing the resulting text to an underlying
+   * {@code Appendable}. Runs of characters that need no escaping are passed
+   * on in bulk, without copying them.
+   *
+   * <p>To escape into a {@link java.io.Writer}, pass it as {@code out}; to
+   * obtain a {@code Writer}, wrap the result with {@link
+   * com.google.common.io.CharStreams#asWriter}.
+   *
+   * @param out the underlying {@code Appendable} to append escaped output to
+   * @return an {@code Appendable} which passes text to {@code out} after
+   *     escaping it
+   * @throws NullPointerException if {@code out} is null
+   */
+  public abstract Appendable escape(Appendable out);
+
+  private final Function<String, String> asFunction =
+      new Function<String, String>() {
+        @Override
+        public String apply(String from) {
+          return escape(from);
+        }
+      };
+
+  /**
+   * Returns a {@link Function} that invokes {@link #escape(String)} on this
+   * escaper.
+   */
+  public final Function<String, String> asFunction() {
+    return asFunction;
+  }
+}
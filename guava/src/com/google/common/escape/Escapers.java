@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Static utility methods pertaining to {@link Escaper} instances.
+ *
+ * @since 12.0
+ */
+@Beta
+@GwtCompatible
+public final class Escapers {
+  private Escapers() {}
+
+  /**
+   * Returns an {@link Escaper} that does no escaping, passing all character
+   * data through unchanged.
+   */
+  public static Escaper nullEscaper() {
+    return NULL_ESCAPER;
+  }
+
+  // An Escaper that efficiently performs no escaping.
+  private static final Escaper NULL_ESCAPER = new CharEscaper() {
+    @Override public String escape(String string) {
+      return checkNotNull(string);
+    }
+
+    @Override public Appendable escape(Appendable out) {
+      return checkNotNull(out);
+    }
+
+    @Override protected char[] escape(char c) {
+      return null;
+    }
+  };
+
+  /**
+   * Returns a builder for creating simple, fast escapers. A builder instance
+   * can be reused and each escaper that is created will be a snapshot of the
+   * current builder state. Builders are not thread safe.
+   *
+   * <p>The initial state of the builder is such that:
+   * <ul>
+   * <li>There are no replacement mappings</li>
+   * <li>{@code safeMin == Character.MIN_VALUE}</li>
+   * <li>{@code safeMax == Character.MAX_VALUE}</li>
+   * <li>{@code unsafeReplacement == null}</li>
+   * </ul>
+   * <p>For performance reasons escapers created by this builder are not
+   * Unicode aware and will not validate the well-formedness of their input.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for simple, fast escapers.
+   *
+   * <p>Typically an escaper needs to deal with the escaping of high valued
+   * characters or code points. In these cases it is necessary to extend
+   * either {@link ArrayBasedCharEscaper} or {@link ArrayBasedUnicodeEscaper}
+   * to provide the desired behavior. However this builder is suitable for
+   * creating escapers that replace a relative small set of characters.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public static final class Builder {
+    private final Map<Character, String> replacementMap =
+        new HashMap<Character, String>();
+    private char safeMin = Character.MIN_VALUE;
+    private char safeMax = Character.MAX_VALUE;
+    private String unsafeReplacement = null;
+
+    // The constructor is exposed via the builder() method above.
+    private Builder() {}
+
+    /**
+     * Sets the safe range of characters for the escaper. Characters in this
+     * range that have no explicit replacement are considered 'safe' and
+     * remain unescaped in the output. If {@code safeMax < safeMin} then the
+     * safe range is empty.
+     *
+     * @param safeMin the lowest 'safe' character
+     * @param safeMax the highest 'safe' character
+     * @return the builder instance
+     */
+    public Builder setSafeRange(char safeMin, char safeMax) {
+      this.safeMin = safeMin;
+      this.safeMax = safeMax;
+      return this;
+    }
+
+    /**
+     * Sets the replacement string for any characters outside the 'safe'
+     * range that have no explicit replacement. If {@code unsafeReplacement}
+     * is {@code null} then no replacement will occur, if it is {@code ""}
+     * then the unsafe characters are removed from the output.
+     *
+     * @param unsafeReplacement the string to replace unsafe characters
+     * @return the builder instance
+     */
+    public Builder setUnsafeReplacement(@Nullable String unsafeReplacement) {
+      this.unsafeReplacement = unsafeReplacement;
+      return this;
+    }
+
+    /**
+     * Adds a replacement string for the given input character. The specified
+     * character will be replaced by the given string whenever it occurs in
+     * the input, irrespective of whether it lies inside or outside the 'safe'
+     * range.
+     *
+     * @param c the character to be replaced
+     * @param replacement the string to replace the given character
+     * @return the builder instance
+     * @throws NullPointerException if {@code replacement} is null
+     */
+    public Builder addEscape(char c, String replacement) {
+      checkNotNull(replacement);
+      // This can replace an existing character (the builder is re-usable).
+      replacementMap.put(c, replacement);
+      return this;
+    }
+
+    /**
+     * Returns a new escaper based on the current state of the builder.
+     */
+    public Escaper build() {
+      return new ArrayBasedCharEscaper(replacementMap, safeMin, safeMax) {
+        private final char[] replacementChars =
+            unsafeReplacement != null ? unsafeReplacement.toCharArray() : null;
+
+        @Override protected char[] escapeUnsafe(char c) {
+          return replacementChars;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.escape;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.io.IOException;
+
+/**
+ * An {@link Escaper} that converts literal text into a format safe for
+ * inclusion in a particular context (such as an XML document), one Unicode
+ * code point at a time. Unlike {@link CharEscaper}, a supplementary code
+ * point is escaped as a whole rather than as two surrogate characters.
+ *
+ * <p>Subclasses implement {@link #escape(int)}, which returns the
+ * replacement for a code point, or null if it needs no escaping, and may
+ * override {@link #nextEscapeIndex} with a faster scan for the first
+ * character that might need escaping. Input that needs no escaping is
+ * returned unchanged, without copying.
+ *
+ * <p>Text given to {@link #escape(String)} must be well-formed UTF-16: an
+ * unpaired surrogate causes an {@link IllegalArgumentException}. The {@link
+ * Appendable} returned by {@link #escape(Appendable)} accepts a surrogate
+ * pair split across two calls, and defers the high surrogate until the
+ * second.
+ *
+ * @since 12.0
+ */
+@Beta
+@GwtCompatible
+public abstract class UnicodeEscaper extends Escaper {
+  /** The amount of padding (chars) to use when growing the escape buffer. */
+  private static final int DEST_PAD = 32;
+
+  /** Constructor for use by subclasses. */
+  protected UnicodeEscaper() {}
+
+  /**
+   * Returns the escaped form of the given Unicode code point, or {@code null}
+   * if this code point does not need to be escaped. When called as part of an
+   * escaping operation, the given code point is guaranteed to be in the range
+   * {@code 0 <= cp <= Character#MAX_CODE_POINT}.
+   *
+   * <p>If an empty array is returned, this effectively strips the input
+   * character from the resulting text. If the character does not need to be
+   * escaped, this method should return {@code null}, rather than an array
+   * containing the character representation of the code point.
+   *
+   * @param cp the Unicode code point to escape if necessary
+   * @return the replacement characters, or {@code null} if no escaping was
+   *     needed
+   */
+  protected abstract char[] escape(int cp);
+
+  /**
+   * Scans a sub-sequence of characters from a given {@link CharSequence},
+   * returning the index of the next character that requires escaping, or
+   * {@code end} if there is none.
+   *
+   * <p>The default implementation looks at each code point in turn.
+   * Subclasses are encouraged to override it with a tighter loop that only
+   * inspects {@code char} values, since the code point of a character that
+   * is not a surrogate is the character itself.
+   *
+   * @param csq a sequence of characters
+   * @param start the index of the first character to be scanned
+   * @param end the index immediately after the last character to be scanned
+   * @throws IllegalArgumentException if the scanned sub-sequence of {@code
+   *     csq} contains invalid surrogate pairs
+   */
+  protected int nextEscapeIndex(CharSequence csq, int start, int end) {
+    int index = start;
+    while (index < end) {
+      int cp = codePointAt(csq, index, end);
+      if (cp < 0 || escape(cp) != null) {
+        break;
+      }
+      index += Character.isSupplementaryCodePoint(cp) ? 2 : 1;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the escaped form of a given literal string.
+   *
+   * @param string the literal string to be escaped
+   * @return the escaped form of {@code string}
+   * @throws NullPointerException if {@code string} is null
+   * @throws IllegalArgumentException if invalid surrogate characters are
+   *     encountered
+   */
+  @Override public String escape(String string) {
+    checkNotNull(string);
+    int end = string.length();
+    int index = nextEscapeIndex(string, 0, end);
+    return index == end ? string : escapeSlow(string, index);
+  }
+
+  /**
+   * Returns the escaped form of a given literal string, starting at the given
+   * index. This method is called by the {@link #escape(String)} method when
+   * it discovers that escaping is required.
+   *
+   * @param s the literal string to be escaped
+   * @param index the index to start escaping from
+   * @return the escaped form of {@code string}
+   * @throws IllegalArgumentException if invalid surrogate characters are
+   *     encountered
+   */
+  protected final String escapeSlow(String s, int index) {
+    int end = s.length();
+
+    // Get a destination buffer and setup some loop variables.
+    char[] dest = Platform.charBufferFromThreadLocal();
+    int destIndex = 0;
+    int unescapedChunkStart = 0;
+
+    while (index < end) {
+      int cp = codePointAt(s, index, end);
+      if (cp < 0) {
+        throw new IllegalArgumentException(
+            "Trailing high surrogate at end of input");
+      }
+      // It is possible for this to return null because nextEscapeIndex() may
+      // (for performance reasons) yield some false positives but it must
+      // never give false negatives.
+      char[] escaped = escape(cp);
+      int nextIndex = index + (Character.isSupplementaryCodePoint(cp) ? 2 : 1);
+      if (escaped != null) {
+        int charsSkipped = index - unescapedChunkStart;
+
+        // This is the size needed to add the replacement, not the full
+        // size needed by the string. We only regrow when we absolutely must.
+        int sizeNeeded = destIndex + charsSkipped + escaped.length;
+        if (dest.length < sizeNeeded) {
+          int destLength = sizeNeeded + (end - index) + DEST_PAD;
+          dest = CharEscaper.growBuffer(dest, destIndex, destLength);
+        }
+        // If we have skipped any characters, we need to copy them now.
+        if (charsSkipped > 0) {
+          s.getChars(unescapedChunkStart, index, dest, destIndex);
+          destIndex += charsSkipped;
+        }
+        if (escaped.length > 0) {
+          System.arraycopy(escaped, 0, dest, destIndex, escaped.length);
+          destIndex += escaped.length;
+        }
+        // If we dealt with an escaped character, reset the unescaped range.
+        unescapedChunkStart = nextIndex;
+      }
+      index = nextEscapeIndex(s, nextIndex, end);
+    }
+
+    // Process trailing unescaped characters - no need to account for escaped
+    // length or padding the allocation.
+    int charsSkipped = end - unescapedChunkStart;
+    if (charsSkipped > 0) {
+      int endIndex = destIndex + charsSkipped;
+      if (dest.length < endIndex) {
+        dest = CharEscaper.growBuffer(dest, destIndex, endIndex);
+      }
+      s.getChars(unescapedChunkStart, end, dest, destIndex);
+      destIndex = endIndex;
+    }
+    return new String(dest, 0, destIndex);
+  }
+
+  /**
+   * Returns an {@code Appendable} instance which automatically escapes all
+   * text appended to it before passing the resulting text to an underlying
+   * {@code Appendable}.
+   *
+   * <p>Unlike {@link #escape(String)}, a high surrogate at the end of the
+   * text given to one call is not an error: it is held until the next call,
+   * which must begin with the matching low surrogate.
+   *
+   * @param out the underlying {@code Appendable} to append escaped output to
+   * @return an {@code Appendable} which passes text to {@code out} after
+   *     escaping it
+   * @throws IllegalArgumentException from the returned {@code Appendable} if
+   *     invalid surrogate characters are appended
+   */
+  @Override public Appendable escape(final Appendable out) {
+    checkNotNull(out);
+
+    return new Appendable() {
+      /** A high surrogate appended last, waiting for its low surrogate. */
+      char pendingHighSurrogate;
+
+      @Override public Appendable append(CharSequence csq) throws IOException {
+        csq = (csq == null) ? "null" : csq;
+        return append(csq, 0, csq.length());
+      }
+
+      @Override public Appendable append(CharSequence csq, int start, int end)
+          throws IOException {
+        csq = (csq == null) ? "null" : csq;
+        checkPositionIndexes(start, end, csq.length());
+        int index = start;
+        if (index < end && pendingHighSurrogate != 0) {
+          append(csq.charAt(index++));
+        }
+        while (index < end) {
+          int unescaped = index;
+          index = nextEscapeIndex(csq, index, end);
+          if (index > unescaped) {
+            out.append(csq, unescaped, index);
+          }
+          if (index == end) {
+            break;
+          }
+          int cp = codePointAt(csq, index, end);
+          if (cp < 0) {
+            // A trailing high surrogate: wait for the next call.
+            pendingHighSurrogate = csq.charAt(index);
+            break;
+          }
+          outputCodePoint(cp);
+          index += Character.isSupplementaryCodePoint(cp) ? 2 : 1;
+        }
+        return this;
+      }
+
+      @Override public Appendable append(char c) throws IOException {
+        if (pendingHighSurrogate != 0) {
+          if (!Character.isLowSurrogate(c)) {
+            throw new IllegalArgumentException(
+                "Expected low surrogate character but got '" + c
+                + "' with value " + (int) c);
+          }
+          outputCodePoint(Character.toCodePoint(pendingHighSurrogate, c));
+          pendingHighSurrogate = 0;
+        } else if (Character.isHighSurrogate(c)) {
+          pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+          throw new IllegalArgumentException(
+              "Unexpected low surrogate character '" + c
+              + "' with value " + (int) c);
+        } else {
+          outputCodePoint(c);
+        }
+        return this;
+      }
+
+      private void outputCodePoint(int cp) throws IOException {
+        char[] escaped = escape(cp);
+        if (escaped != null) {
+          CharEscaper.outputChars(out, escaped);
+        } else if (Character.isSupplementaryCodePoint(cp)) {
+          CharEscaper.outputChars(out, Character.toChars(cp));
+        } else {
+          out.append((char) cp);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the Unicode code point of the character at the given index.
+   *
+   * <p>Unlike {@link Character#codePointAt(CharSequence, int)}, this method
+   * will never fail silently when encountering an invalid surrogate pair:
+   * an unpaired low surrogate, or a high surrogate followed by something else
+   * than a low surrogate, causes an {@code IllegalArgumentException}. A high
+   * surrogate at {@code end - 1} is reported as the negated value of the
+   * surrogate, so that callers can handle input split in arbitrary places.
+   *
+   * @param seq the sequence of characters from which to decode the code point
+   * @param index the index of the first character to decode
+   * @param end the index beyond the last valid character to decode
+   * @return the Unicode code point for the given index or the negated value
+   *     of the trailing high surrogate character at the end of the sequence
+   */
+  protected static int codePointAt(CharSequence seq, int index, int end) {
+    char c1 = seq.charAt(index++);
+    if (c1 < Character.MIN_HIGH_SURROGATE || c1 > Character.MAX_LOW_SURROGATE) {
+      // Fast path (first test is probably all we need to do)
+      return c1;
+    } else if (c1 <= Character.MAX_HIGH_SURROGATE) {
+      // If the high surrogate was the last character, return its inverse
+      if (index == end) {
+        return -c1;
+      }
+      // Otherwise look for the low surrogate following it
+      char c2 = seq.charAt(index);
+      if (Character.isLowSurrogate(c2)) {
+        return Character.toCodePoint(c1, c2);
+      }
+      throw new IllegalArgumentException(
+          "Expected low surrogate but got char '" + c2
+          + "' with value " + (int) c2 + " at index " + index);
+    } else {
+      throw new IllegalArgumentException(
+          "Unexpected low surrogate character '" + c1
+          + "' with value " + (int) c1 + " at index " + (index - 1));
+    }
+  }
+}
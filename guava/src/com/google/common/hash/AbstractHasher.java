@@ -15,6 +15,7 @@
 package com.google.common.hash;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Utf8;
 
 import java.nio.charset.Charset;
 
@@ -44,6 +45,9 @@ abstract class AbstractHasher implements Hasher {
   }
 
   @Override public Hasher putString(CharSequence charSequence, Charset charset) {
+    if (charset.equals(Charsets.UTF_8)) {
+      return putBytes(Utf8.encode(charSequence));
+    }
     try {
       return putBytes(charSequence.toString().getBytes(charset.name()));
     } catch (java.io.UnsupportedEncodingException impossible) {
@@ -17,6 +17,8 @@ package com.google.common.hash;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Preconditions.checkPositionIndexes;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Utf8;
 import com.google.common.primitives.Chars;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
@@ -148,6 +150,9 @@ final class MessageDigestHashFunction extends AbstractStreamingHashFunction {
     }
 
     @Override public Hasher putString(CharSequence charSequence, Charset charset) {
+      if (charset.equals(Charsets.UTF_8)) {
+        return putBytes(Utf8.encode(charSequence));
+      }
       try {
         return putBytes(charSequence.toString().getBytes(charset.name()));
       } catch (java.io.UnsupportedEncodingException impossible) {
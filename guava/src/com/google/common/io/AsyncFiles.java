@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Runs file operations asynchronously on an {@link Executor}, returning a
+ * {@link ListenableFuture} for each, so that callers can overlap I/O with
+ * other work and compose the results with {@link
+ * com.google.common.util.concurrent.Futures#transform}.
+ *
+ * <p>At most a fixed number of operations are outstanding on the executor at
+ * any time. Further operations are queued, without blocking the caller, and
+ * run as earlier ones complete, on the executor thread that completed them.
+ * This keeps a burst of requests from occupying every thread of a shared
+ * executor, or from issuing more concurrent I/O than the disk handles well.
+ *
+ * <p>Cancelling a returned future removes the operation if it has not
+ * started. Cancelling with interruption interrupts the thread performing an
+ * operation that has started; an interrupted operation on a file channel
+ * fails with {@link java.nio.channels.ClosedByInterruptException}.
+ *
+ * <p>The operations are implemented with the blocking methods of {@link
+ * Files}, so, for example, {@link #copy} transfers the bytes within the
+ * operating system where possible.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class AsyncFiles {
+  private final Executor executor;
+  private final int maxOutstanding;
+
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private int outstanding;
+  @GuardedBy("lock")
+  private final Queue<IoTask<?>> queue = new LinkedList<IoTask<?>>();
+
+  private AsyncFiles(Executor executor, int maxOutstanding) {
+    this.executor = checkNotNull(executor);
+    this.maxOutstanding = maxOutstanding;
+  }
+
+  /**
+   * Returns an instance that performs operations on {@code executor}, with at
+   * most {@code maxOutstanding} of them submitted to it at a time.
+   *
+   * @throws IllegalArgumentException if {@code maxOutstanding} is not
+   *     positive
+   */
+  public static AsyncFiles create(Executor executor, int maxOutstanding) {
+    checkArgument(maxOutstanding > 0,
+        "maxOutstanding must be positive: %s", maxOutstanding);
+    return new AsyncFiles(executor, maxOutstanding);
+  }
+
+  /**
+   * Reads all bytes of a file, as by {@link Files#toByteArray}.
+   */
+  public ListenableFuture<byte[]> readFully(final File file) {
+    checkNotNull(file);
+    return submit(new Callable<byte[]>() {
+      @Override public byte[] call() throws IOException {
+        return Files.toByteArray(file);
+      }
+    });
+  }
+
+  /**
+   * Overwrites a file with the contents of a byte array, as by {@link
+   * Files#write(byte[], File)}. The array must not be modified until the
+   * returned future completes.
+   */
+  public ListenableFuture<Void> write(final byte[] from, final File to) {
+    checkNotNull(from);
+    checkNotNull(to);
+    return submit(new Callable<Void>() {
+      @Override public Void call() throws IOException {
+        Files.write(from, to);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Copies all the bytes from one file to another, as by {@link
+   * Files#copy(File, File)}.
+   *
+   * @throws IllegalArgumentException if {@code from.equals(to)}
+   */
+  public ListenableFuture<Void> copy(final File from, final File to) {
+    checkArgument(!from.equals(to),
+        "Source %s and destination %s must be different", from, to);
+    return submit(new Callable<Void>() {
+      @Override public Void call() throws IOException {
+        Files.copy(from, to);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Computes the hash code of the contents of a file with {@code
+   * hashFunction}.
+   */
+  public ListenableFuture<HashCode> hash(final File file,
+      final HashFunction hashFunction) {
+    checkNotNull(file);
+    checkNotNull(hashFunction);
+    return submit(new Callable<HashCode>() {
+      @Override public HashCode call() throws IOException {
+        final Hasher hasher = hashFunction.newHasher();
+        return Files.readBytes(file, new ByteProcessor<HashCode>() {
+          @Override public boolean processBytes(byte[] buf, int off, int len) {
+            hasher.putBytes(buf, off, len);
+            return true;
+          }
+
+          @Override public HashCode getResult() {
+            return hasher.hash();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Returns the number of operations that have been submitted to the
+   * executor and have not completed.
+   */
+  public int getOutstandingCount() {
+    synchronized (lock) {
+      return outstanding;
+    }
+  }
+
+  /**
+   * Returns the number of operations waiting to be submitted to the
+   * executor.
+   */
+  public int getQueuedCount() {
+    synchronized (lock) {
+      return queue.size();
+    }
+  }
+
+  private <T> ListenableFuture<T> submit(Callable<T> callable) {
+    IoTask<T> task = new IoTask<T>(callable);
+    synchronized (lock) {
+      if (outstanding == maxOutstanding) {
+        queue.add(task);
+        return task;
+      }
+      outstanding++;
+    }
+    dispatch(task);
+    return task;
+  }
+
+  /** Submits a task, for which a slot has been reserved, to the executor. */
+  private void dispatch(IoTask<?> task) {
+    while (task != null) {
+      try {
+        executor.execute(task);
+        return;
+      } catch (RejectedExecutionException e) {
+        task.setException(e);
+        task = nextTask();
+      }
+    }
+  }
+
+  /**
+   * Releases the slot of a completed task, and returns the next queued task
+   * to run in that slot, if any, which the caller must run.
+   */
+  private IoTask<?> nextTask() {
+    synchronized (lock) {
+      IoTask<?> next;
+      do {
+        next = queue.poll();
+      } while (next != null && next.isDone());
+      if (next == null) {
+        outstanding--;
+      }
+      return next;
+    }
+  }
+
+  private final class IoTask<T> extends AbstractFuture<T> implements Runnable {
+    private final Callable<T> callable;
+    @GuardedBy("this")
+    private Thread runner;
+
+    IoTask(Callable<T> callable) {
+      this.callable = callable;
+    }
+
+    /**
+     * Runs this task, then the queued tasks that take over its slot, in a
+     * loop rather than by dispatching each to the executor from the previous
+     * one, which would recurse with a direct executor.
+     */
+    @Override public void run() {
+      IoTask<?> task = this;
+      do {
+        task.call();
+        task = nextTask();
+      } while (task != null);
+    }
+
+    private void call() {
+      if (isDone()) {
+        return;
+      }
+      synchronized (this) {
+        runner = Thread.currentThread();
+      }
+      try {
+        set(callable.call());
+      } catch (Throwable t) {
+        setException(t);
+      } finally {
+        synchronized (this) {
+          runner = null;
+          if (isCancelled()) {
+            // Clear the interrupt of cancel(true), which would otherwise
+            // fail the next task run on this thread, or reach the caller of
+            // a direct executor.
+            Thread.interrupted();
+          }
+        }
+      }
+    }
+
+    /** Removes a task cancelled before it started from the queue. */
+    @Override public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      synchronized (lock) {
+        queue.remove(this);
+      }
+      return true;
+    }
+
+    @Override protected synchronized void interruptTask() {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    // Visible to the enclosing class.
+    @Override protected boolean setException(Throwable throwable) {
+      return super.setException(throwable);
+    }
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.CharMatcher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A store of immutable blobs in a local directory, each addressed by the hash
+ * code of its contents, so that storing the same contents twice keeps a
+ * single copy. Each blob is a file named after the hexadecimal form of its
+ * hash code (see {@link HashCode#toString}).
+ *
+ * <p>A blob is first written to a temporary file in the directory, hashing
+ * its contents on the way, and then moved into place with {@link
+ * Files#move}. Readers therefore never see a partially written blob, and
+ * concurrent writers in the same process may store the same or different
+ * contents: the first to finish wins, and the others discard their copies.
+ * The store must not be shared with other processes.
+ *
+ * <p>The store's lock only guards its bookkeeping: files are moved, mapped
+ * and deleted without holding it. A writer storing contents whose blob is
+ * being moved into place or deleted by another thread waits for that thread
+ * to finish, so that the two file operations don't interleave.
+ *
+ * <p>The total size of the blobs is kept under a limit by deleting the least
+ * recently stored or read blobs. Blobs already in the directory when the
+ * store is created are adopted, oldest first; leftover temporary files are
+ * deleted.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class BlobStore {
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File directory;
+  private final HashFunction hashFunction;
+  private final long maxSize;
+
+  private final Object lock = new Object();
+  /** Maps the name of each blob to its size, in access order. */
+  @GuardedBy("lock")
+  private final LinkedHashMap<String, Long> blobs =
+      new LinkedHashMap<String, Long>(16, 0.75f, true);
+  @GuardedBy("lock")
+  private long size;
+  /** The names of the blobs being moved into place or deleted. */
+  @GuardedBy("lock")
+  private final Set<String> busy = new HashSet<String>();
+
+  private BlobStore(File directory, HashFunction hashFunction, long maxSize) {
+    this.directory = directory;
+    this.hashFunction = hashFunction;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns a store keeping its blobs in {@code directory}, which is created
+   * if necessary, and addressing them with {@code hashFunction}.
+   *
+   * @param maxSize the maximum total size of the blobs, in bytes
+   * @throws IllegalArgumentException if {@code maxSize} is negative
+   * @throws IOException if the directory can't be created or listed
+   */
+  public static BlobStore create(File directory, HashFunction hashFunction,
+      long maxSize) throws IOException {
+    checkArgument(maxSize >= 0, "maxSize must not be negative: %s", maxSize);
+    BlobStore store = new BlobStore(checkNotNull(directory),
+        checkNotNull(hashFunction), maxSize);
+    store.load();
+    return store;
+  }
+
+  private void load() throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory " + directory);
+    }
+    File[] files = directory.listFiles();
+    if (files == null) {
+      throw new IOException("Unable to list directory " + directory);
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override public int compare(File a, File b) {
+        long difference = a.lastModified() - b.lastModified();
+        return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+      }
+    });
+    List<String> evicted;
+    synchronized (lock) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.endsWith(TEMP_SUFFIX)) {
+          file.delete();
+        } else if (isBlobName(name) && file.isFile()) {
+          blobs.put(name, file.length());
+          size += file.length();
+        }
+      }
+      evicted = evict(null);
+    }
+    delete(evicted);
+  }
+
+  private boolean isBlobName(String name) {
+    return name.length() == hashFunction.bits() / 4
+        && CharMatcher.anyOf("0123456789abcdef").matchesAllOf(name);
+  }
+
+  /**
+   * Stores the bytes supplied by {@code from}, unless a blob with the same
+   * contents is already stored, and returns the hash code addressing them.
+   *
+   * @throws IOException if an I/O error occurs, in which case nothing is
+   *     stored
+   */
+  public HashCode put(InputSupplier<? extends InputStream> from)
+      throws IOException {
+    File temp = File.createTempFile("blob", TEMP_SUFFIX, directory);
+    boolean stored = false;
+    try {
+      final Hasher hasher = hashFunction.newHasher();
+      final OutputStream out = new FileOutputStream(temp);
+      long length;
+      boolean threw = true;
+      try {
+        length = ByteStreams.readBytes(from, new ByteProcessor<Long>() {
+          long count;
+
+          @Override public boolean processBytes(byte[] buf, int off, int len)
+              throws IOException {
+            out.write(buf, off, len);
+            hasher.putBytes(buf, off, len);
+            count += len;
+            return true;
+          }
+
+          @Override public Long getResult() {
+            return count;
+          }
+        });
+        threw = false;
+      } finally {
+        Closeables.close(out, threw);
+      }
+      HashCode key = hasher.hash();
+      String name = key.toString();
+      if (reserve(name)) {
+        List<String> evicted = Collections.emptyList();
+        try {
+          Files.move(temp, new File(directory, name));
+          stored = true;
+        } finally {
+          synchronized (lock) {
+            busy.remove(name);
+            lock.notifyAll();
+            if (stored) {
+              blobs.put(name, length);
+              size += length;
+              evicted = evict(name);
+            }
+          }
+        }
+        delete(evicted);
+      }
+      return key;
+    } finally {
+      if (!stored) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Marks the blob named {@code name} as busy, so that the caller can move it
+   * into place, and returns true; or returns false if the blob is already
+   * stored. Waits while another thread moves or deletes a blob of that name.
+   */
+  private boolean reserve(String name) {
+    boolean interrupted = false;
+    try {
+      synchronized (lock) {
+        while (busy.contains(name)) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (blobs.get(name) != null) {
+          return false;
+        }
+        busy.add(name);
+        return true;
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Stores {@code bytes}, unless a blob with the same contents is already
+   * stored, and returns the hash code addressing them.
+   *
+   * @throws IOException if an I/O error occurs, in which case nothing is
+   *     stored
+   */
+  public HashCode put(byte[] bytes) throws IOException {
+    return put(ByteStreams.newInputStreamSupplier(bytes));
+  }
+
+  /**
+   * Returns whether a blob is stored under {@code key}. This does not count
+   * as a use of the blob.
+   */
+  public boolean contains(HashCode key) {
+    String name = key.toString();
+    synchronized (lock) {
+      return blobs.containsKey(name);
+    }
+  }
+
+  /**
+   * Maps the blob stored under {@code key} into memory, read-only, as by
+   * {@link Files#map(File)}, and marks it as the most recently used; or
+   * returns null if there is no such blob.
+   *
+   * <p>The mapping remains valid after the blob is evicted on platforms that
+   * allow deleting mapped files. On other platforms, an evicted blob whose
+   * file can't be deleted is dropped from the store but left on disk until
+   * the directory is next loaded.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Nullable
+  public MappedByteBuffer map(HashCode key) throws IOException {
+    String name = key.toString();
+    synchronized (lock) {
+      if (blobs.get(name) == null) {
+        return null;
+      }
+    }
+    try {
+      return Files.map(new File(directory, name));
+    } catch (FileNotFoundException e) {
+      return null; // evicted or removed meanwhile
+    }
+  }
+
+  /**
+   * Deletes the blob stored under {@code key}, if any, and returns whether
+   * there was one.
+   */
+  public boolean remove(HashCode key) {
+    String name = key.toString();
+    synchronized (lock) {
+      Long length = blobs.remove(name);
+      if (length == null) {
+        return false;
+      }
+      size -= length;
+      busy.add(name);
+    }
+    delete(Collections.singletonList(name));
+    return true;
+  }
+
+  /** Returns the number of blobs in the store. */
+  public int count() {
+    synchronized (lock) {
+      return blobs.size();
+    }
+  }
+
+  /** Returns the total size of the blobs in the store, in bytes. */
+  public long size() {
+    synchronized (lock) {
+      return size;
+    }
+  }
+
+  /**
+   * Drops the least recently used blobs until the total size is within the
+   * limit, marks them as busy, and returns their names; the caller deletes
+   * them with {@link #delete} after releasing the lock. The blob named {@code
+   * keep}, if not null, is kept even if it alone exceeds the limit, so that a
+   * blob is always readable just after it is stored.
+   */
+  @GuardedBy("lock")
+  private List<String> evict(@Nullable String keep) {
+    List<String> evicted = Collections.emptyList();
+    Iterator<Map.Entry<String, Long>> iterator = blobs.entrySet().iterator();
+    while (size > maxSize && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      if (eldest.getKey().equals(keep)) {
+        continue;
+      }
+      iterator.remove();
+      size -= eldest.getValue();
+      if (evicted.isEmpty()) {
+        evicted = new ArrayList<String>();
+      }
+      evicted.add(eldest.getKey());
+      busy.add(eldest.getKey());
+    }
+    return evicted;
+  }
+
+  /**
+   * Deletes the files of blobs that were dropped from the store and marked
+   * as busy, then clears their busy marks. Must not hold the lock.
+   */
+  private void delete(List<String> names) {
+    if (names.isEmpty()) {
+      return;
+    }
+    try {
+      for (String name : names) {
+        new File(directory, name).delete();
+      }
+    } finally {
+      synchronized (lock) {
+        busy.removeAll(names);
+        lock.notifyAll();
+      }
+    }
+  }
+}
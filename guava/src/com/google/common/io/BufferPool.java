@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The pool of scratch buffers used by the methods of {@link ByteStreams} and
+ * {@link Files} that read the library's own streams and channels, such as
+ * {@link Files#equal}, so that they don't allocate a new buffer on every
+ * call.
+ *
+ * <p>Pooled buffers are never passed to a caller's stream, reader, channel,
+ * appendable or {@link ByteProcessor}: a source could read the bytes a buffer
+ * still holds from an unrelated earlier call, and a sink could keep a
+ * reference to it. The methods that read from or write to those use a new
+ * buffer.
+ *
+ * <p>Buffers are cached per thread, so taking and returning them involves no
+ * locking. Each thread caches at most two buffers of each kind: byte arrays
+ * of 4K, and direct byte buffers of 4K (used for reading file channels). A
+ * buffer taken by a method is returned when the method completes, so nested
+ * calls on the same thread simply allocate a fresh buffer once the cache is
+ * empty.
+ *
+ * <p>This class only exposes statistics about the pool, which can be used to
+ * check that it is effective. The statistics are counted in cells striped by
+ * thread, and only summed when read.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class BufferPool {
+  static final int BYTE_BUFFER_SIZE = 0x1000; // 4K
+  static final int DIRECT_BUFFER_SIZE = 0x1000; // 4K
+
+  @VisibleForTesting static final int BUFFERS_PER_THREAD = 2;
+
+  /**
+   * The number of stripes of the statistics. Threads whose ids differ by a
+   * multiple of this share a stripe.
+   */
+  private static final int STRIPES = Math.min(64, Integer.highestOneBit(
+      Runtime.getRuntime().availableProcessors()) * 2);
+
+  /** The distance between stripes, in longs: one 128-byte line apart. */
+  private static final int PADDING = 16;
+
+  /** The hits of each stripe, followed by its misses. */
+  private static final AtomicLongArray counts =
+      new AtomicLongArray(STRIPES * PADDING);
+
+  private static final ThreadLocal<Cache> cache = new ThreadLocal<Cache>() {
+    @Override protected Cache initialValue() {
+      return new Cache();
+    }
+  };
+
+  /**
+   * The buffers cached by one thread, as stacks. A cache is only reachable
+   * from its thread, and is discarded with it.
+   */
+  private static final class Cache {
+    final byte[][] bytes = new byte[BUFFERS_PER_THREAD][];
+    int byteCount;
+    final ByteBuffer[] direct = new ByteBuffer[BUFFERS_PER_THREAD];
+    int directCount;
+  }
+
+  private BufferPool() {}
+
+  /**
+   * Returns the number of times a buffer was taken from the pool rather than
+   * allocated.
+   */
+  public static long hitCount() {
+    return sum(0);
+  }
+
+  /**
+   * Returns the number of times a buffer had to be allocated because the
+   * pool of the requesting thread had none left.
+   */
+  public static long missCount() {
+    return sum(1);
+  }
+
+  /**
+   * Returns the ratio of buffer requests that were served from the pool, or
+   * {@code 1.0} if there have been no requests.
+   */
+  public static double hitRate() {
+    long hitCount = hitCount();
+    long requestCount = hitCount + missCount();
+    return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  /** Sums the counts at {@code offset} of every stripe. */
+  private static long sum(int offset) {
+    long sum = 0;
+    for (int i = offset; i < counts.length(); i += PADDING) {
+      sum += counts.get(i);
+    }
+    return sum;
+  }
+
+  /** Counts a hit, or a miss, in the stripe of the current thread. */
+  private static void count(boolean hit) {
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    counts.incrementAndGet(stripe * PADDING + (hit ? 0 : 1));
+  }
+
+  /** Takes a byte array of {@link #BYTE_BUFFER_SIZE} bytes. */
+  static byte[] takeBytes() {
+    Cache c = cache.get();
+    if (c.byteCount > 0) {
+      count(true);
+      byte[] buf = c.bytes[--c.byteCount];
+      c.bytes[c.byteCount] = null;
+      return buf;
+    }
+    count(false);
+    return new byte[BYTE_BUFFER_SIZE];
+  }
+
+  /**
+   * Returns a byte array obtained from {@link #takeBytes} to the pool. The
+   * caller must not use it afterwards.
+   */
+  static void recycle(byte[] buf) {
+    Cache c = cache.get();
+    if (c.byteCount < BUFFERS_PER_THREAD) {
+      c.bytes[c.byteCount++] = buf;
+    }
+  }
+
+  /**
+   * Takes a cleared direct byte buffer of {@link #DIRECT_BUFFER_SIZE} bytes.
+   */
+  static ByteBuffer takeDirect() {
+    Cache c = cache.get();
+    if (c.directCount > 0) {
+      count(true);
+      ByteBuffer buf = c.direct[--c.directCount];
+      c.direct[c.directCount] = null;
+      buf.clear();
+      return buf;
+    }
+    count(false);
+    return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a buffer obtained from {@link #takeDirect} to the pool. The
+   * caller must not use it afterwards.
+   */
+  static void recycle(ByteBuffer buf) {
+    Cache c = cache.get();
+    if (c.directCount < BUFFERS_PER_THREAD) {
+      c.direct[c.directCount++] = buf;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.annotations.Beta;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteArrayDataInput} that reads from a {@link ByteBuffer}, in the
+ * byte order of the buffer, and that can read arrays of primitive values in
+ * bulk. Bulk reads copy directly from the buffer, which makes them much faster
+ * than reading one value at a time, particularly from direct and memory-mapped
+ * buffers in the native byte order.
+ *
+ * <p>If any method encounters the limit of the buffer prematurely, it throws
+ * {@link IllegalStateException} without consuming any bytes.
+ *
+ * @since 12.0
+ * @see ByteStreams#newDataInput(ByteBuffer)
+ */
+@Beta
+public interface ByteBufferDataInput extends ByteArrayDataInput {
+  /**
+   * Reads {@code len} ints into {@code dst}, starting at index {@code off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code dst}
+   */
+  void readInts(int[] dst, int off, int len);
+
+  /**
+   * Reads {@code len} longs into {@code dst}, starting at index {@code off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code dst}
+   */
+  void readLongs(long[] dst, int off, int len);
+
+  /**
+   * Reads {@code len} doubles into {@code dst}, starting at index {@code off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code dst}
+   */
+  void readDoubles(double[] dst, int off, int len);
+
+  /**
+   * Returns the number of bytes left to read.
+   */
+  int remaining();
+}
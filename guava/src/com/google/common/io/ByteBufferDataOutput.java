@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.annotations.Beta;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An extension of {@code DataOutput} for writing to a {@link ByteBuffer}, in
+ * the byte order of the buffer; its methods offer identical functionality but
+ * do not throw {@link IOException}. Arrays of primitive values can be written
+ * in bulk, copying directly into the buffer.
+ *
+ * <p>If any method would write past the limit of the buffer, it throws {@link
+ * IllegalStateException} without writing any bytes.
+ *
+ * @since 12.0
+ * @see ByteStreams#newDataOutput(ByteBuffer)
+ */
+@Beta
+public interface ByteBufferDataOutput extends DataOutput {
+  @Override void write(int b);
+  @Override void write(byte b[]);
+  @Override void write(byte b[], int off, int len);
+  @Override void writeBoolean(boolean v);
+  @Override void writeByte(int v);
+  @Override void writeShort(int v);
+  @Override void writeChar(int v);
+  @Override void writeInt(int v);
+  @Override void writeLong(long v);
+  @Override void writeFloat(float v);
+  @Override void writeDouble(double v);
+  @Override void writeChars(String s);
+  @Override void writeUTF(String s);
+
+  /**
+   * @deprecated This method is dangerous as it discards the high byte of
+   * every character. For UTF-8, use {@code write(s.getBytes(Charsets.UTF_8))}.
+   */
+  @Deprecated @Override void writeBytes(String s);
+
+  /**
+   * Writes {@code len} ints from {@code src}, starting at index {@code off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code src}
+   */
+  void writeInts(int[] src, int off, int len);
+
+  /**
+   * Writes {@code len} longs from {@code src}, starting at index {@code off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code src}
+   */
+  void writeLongs(long[] src, int off, int len);
+
+  /**
+   * Writes {@code len} doubles from {@code src}, starting at index {@code
+   * off}.
+   *
+   * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't
+   *     denote a range of {@code src}
+   */
+  void writeDoubles(double[] src, int off, int len);
+
+  /**
+   * Returns the number of bytes that can still be written.
+   */
+  int remaining();
+}
@@ -26,10 +26,18 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
@@ -46,7 +54,14 @@ import java.util.zip.Checksum;
  */
 @Beta
 public final class ByteStreams {
-  private static final int BUF_SIZE = 0x1000; // 4K
+  private static final int BUF_SIZE = BufferPool.BYTE_BUFFER_SIZE;
+
+  /**
+   * The maximum number of bytes moved by a single call to
+   * {@link FileChannel#transferTo} or {@link FileChannel#transferFrom}; some
+   * platforms map the transferred region, so it is kept moderate.
+   */
+  private static final long TRANSFER_SIZE = 0x800000; // 8M
 
   private ByteStreams() {}
 
@@ -180,6 +195,12 @@ public final class ByteStreams {
    * Copies all bytes from the input stream to the output stream.
    * Does not close or flush either stream.
    *
+   * <p>If {@code from} is a {@link FileInputStream} and {@code to} is a
+   * {@link FileOutputStream} (and neither is a subclass, which might
+   * override the read or write methods), the bytes are transferred with
+   * {@link FileChannel#transferTo}, which lets the operating system copy
+   * them without passing them through the Java heap.
+   *
    * @param from the input stream to read from
    * @param to the output stream to write to
    * @return the number of bytes copied
@@ -187,7 +208,20 @@ public final class ByteStreams {
    */
   public static long copy(InputStream from, OutputStream to)
       throws IOException {
-    byte[] buf = new byte[BUF_SIZE];
+    if (from.getClass() == FileInputStream.class
+        && to.getClass() == FileOutputStream.class) {
+      long transferred = transferFromFile(
+          ((FileInputStream) from).getChannel(),
+          ((FileOutputStream) to).getChannel());
+      // Copy whatever transferTo could not, e.g. data appended meanwhile.
+      return transferred + copyBuffered(from, to, new byte[BUF_SIZE]);
+    }
+    // Not a pooled buffer: the caller's stream might hold on to it.
+    return copyBuffered(from, to, new byte[BUF_SIZE]);
+  }
+
+  private static long copyBuffered(InputStream from, OutputStream to,
+      byte[] buf) throws IOException {
     long total = 0;
     while (true) {
       int r = from.read(buf);
@@ -204,6 +238,11 @@ public final class ByteStreams {
    * Copies all bytes from the readable channel to the writable channel.
    * Does not close or flush either channel.
    *
+   * <p>If either channel is a {@link FileChannel}, the bytes are moved with
+   * {@link FileChannel#transferTo} or {@link FileChannel#transferFrom}, which
+   * the operating system may implement without copying them into user space.
+   * Other channels are copied through a direct buffer.
+   *
    * @param from the readable channel to read from
    * @param to the writable channel to write to
    * @return the number of bytes copied
@@ -211,8 +250,20 @@ public final class ByteStreams {
    */
   public static long copy(ReadableByteChannel from,
       WritableByteChannel to) throws IOException {
-    ByteBuffer buf = ByteBuffer.allocate(BUF_SIZE);
     long total = 0;
+    if (from instanceof FileChannel) {
+      FileChannel in = (FileChannel) from;
+      total = transferFromFile(in, to);
+      if (total > 0 && in.position() >= in.size()) {
+        return total;
+      }
+    } else if (to instanceof FileChannel) {
+      total = transferToFile(from, (FileChannel) to);
+    }
+    // Copy whatever could not be transferred: the remaining bytes of a
+    // channel transferFrom stopped early on, or of non-file channels. Not a
+    // pooled buffer: the caller's channels might read or hold on to it.
+    ByteBuffer buf = ByteBuffer.allocate(BUF_SIZE);
     while (from.read(buf) != -1) {
       buf.flip();
       while (buf.hasRemaining()) {
@@ -223,6 +274,65 @@ public final class ByteStreams {
     return total;
   }
 
+  /**
+   * Transfers bytes from the current position of {@code from} to {@code to}
+   * until {@link FileChannel#transferTo} stops making progress, and advances
+   * the position of {@code from} past them. Returns 0 without transferring
+   * anything if {@code from} is not positionable, as for a pipe.
+   */
+  private static long transferFromFile(FileChannel from,
+      WritableByteChannel to) throws IOException {
+    long start = positionOrMinusOne(from);
+    if (start == -1) {
+      return 0;
+    }
+    long position = start;
+    try {
+      long transferred;
+      while ((transferred =
+          from.transferTo(position, TRANSFER_SIZE, to)) > 0) {
+        position += transferred;
+      }
+    } finally {
+      from.position(position);
+    }
+    return position - start;
+  }
+
+  /**
+   * Transfers bytes from {@code from} to the current position of {@code to}
+   * until {@link FileChannel#transferFrom} stops making progress, and advances
+   * the position of {@code to} past them. Returns 0 without transferring
+   * anything if {@code to} is not positionable.
+   */
+  private static long transferToFile(ReadableByteChannel from,
+      FileChannel to) throws IOException {
+    long start = positionOrMinusOne(to);
+    if (start == -1) {
+      return 0;
+    }
+    long position = start;
+    try {
+      long transferred;
+      while ((transferred =
+          to.transferFrom(from, position, TRANSFER_SIZE)) > 0) {
+        position += transferred;
+      }
+    } finally {
+      to.position(position);
+    }
+    return position - start;
+  }
+
+  private static long positionOrMinusOne(FileChannel channel) {
+    try {
+      return channel.position();
+    } catch (IOException e) {
+      // Not a seekable file (e.g. a pipe or a terminal).
+      return -1;
+    }
+  }
+
   /**
    * Reads all bytes from an input stream into a byte array.
    * Does not close the stream.
@@ -232,8 +342,20 @@ public final class ByteStreams {
    * @throws IOException if an I/O error occurs
    */
   public static byte[] toByteArray(InputStream in) throws IOException {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    copy(in, out);
+    // Not a pooled buffer: the caller's stream might read or hold on to it.
+    byte[] buf = new byte[BUF_SIZE];
+    // Most streams are short: read the first bytes into the buffer, and only
+    // fall back to a growing buffer if they don't fit.
+    int count = read(in, buf, 0, buf.length);
+    if (count < buf.length) {
+      byte[] result = new byte[count];
+      System.arraycopy(buf, 0, result, 0, count);
+      return result;
+    }
+    SegmentedByteArrayOutputStream out =
+        new SegmentedByteArrayOutputStream(buf.length * 2);
+    out.write(buf, 0, count);
+    copyBuffered(in, out, buf);
     return out.toByteArray();
   }
 
@@ -434,19 +556,19 @@ public final class ByteStreams {
       implements ByteArrayDataOutput {
 
     final DataOutput output;
-    final ByteArrayOutputStream byteArrayOutputSteam;
+    final SegmentedByteArrayOutputStream buffer;
 
     ByteArrayDataOutputStream() {
-      this(new ByteArrayOutputStream());
+      this(new SegmentedByteArrayOutputStream());
     }
 
     ByteArrayDataOutputStream(int size) {
-      this(new ByteArrayOutputStream(size));
+      this(new SegmentedByteArrayOutputStream(size));
     }
 
-    ByteArrayDataOutputStream(ByteArrayOutputStream byteArrayOutputSteam) {
-      this.byteArrayOutputSteam = byteArrayOutputSteam;
-      output = new DataOutputStream(byteArrayOutputSteam);
+    ByteArrayDataOutputStream(SegmentedByteArrayOutputStream buffer) {
+      this.buffer = buffer;
+      output = new DataOutputStream(buffer);
     }
 
     @Override public void write(int b) {
@@ -562,11 +684,304 @@ public final class ByteStreams {
     }
 
     @Override public byte[] toByteArray() {
-      return byteArrayOutputSteam.toByteArray();
+      return buffer.toByteArray();
     }
 
   }
 
+  /**
+   * Returns a new {@link ByteBufferDataInput} instance to read from {@code
+   * buffer}, starting at its position and in its byte order. Reading advances
+   * the position of the buffer; pass a {@link ByteBuffer#duplicate} to leave
+   * a shared buffer unchanged. Set the order of the buffer to {@link
+   * ByteOrder#LITTLE_ENDIAN} to read the output of {@link
+   * LittleEndianDataOutputStream}.
+   *
+   * <p>As in {@link LittleEndianDataInputStream}, the length preceding a
+   * string read by {@link DataInput#readUTF} is big-endian whatever the byte
+   * order of the buffer.
+   *
+   * @since 12.0
+   */
+  public static ByteBufferDataInput newDataInput(ByteBuffer buffer) {
+    return new ByteBufferDataInputStream(Preconditions.checkNotNull(buffer));
+  }
+
+  private static class ByteBufferDataInputStream
+      implements ByteBufferDataInput {
+    final ByteBuffer buffer;
+
+    ByteBufferDataInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private void checkRemaining(long bytes) {
+      if (buffer.remaining() < bytes) {
+        throw new IllegalStateException(new BufferUnderflowException());
+      }
+    }
+
+    @Override public void readFully(byte b[]) {
+      readFully(b, 0, b.length);
+    }
+
+    @Override public void readFully(byte b[], int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, b.length);
+      checkRemaining(len);
+      buffer.get(b, off, len);
+    }
+
+    @Override public int skipBytes(int n) {
+      int skipped = Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override public boolean readBoolean() {
+      return readByte() != 0;
+    }
+
+    @Override public byte readByte() {
+      checkRemaining(1);
+      return buffer.get();
+    }
+
+    @Override public int readUnsignedByte() {
+      return readByte() & 0xFF;
+    }
+
+    @Override public short readShort() {
+      checkRemaining(2);
+      return buffer.getShort();
+    }
+
+    @Override public int readUnsignedShort() {
+      return readShort() & 0xFFFF;
+    }
+
+    @Override public char readChar() {
+      checkRemaining(2);
+      return buffer.getChar();
+    }
+
+    @Override public int readInt() {
+      checkRemaining(4);
+      return buffer.getInt();
+    }
+
+    @Override public long readLong() {
+      checkRemaining(8);
+      return buffer.getLong();
+    }
+
+    @Override public float readFloat() {
+      checkRemaining(4);
+      return buffer.getFloat();
+    }
+
+    @Override public double readDouble() {
+      checkRemaining(8);
+      return buffer.getDouble();
+    }
+
+    @Override public String readLine() {
+      if (!buffer.hasRemaining()) {
+        return null;
+      }
+      StringBuilder line = new StringBuilder();
+      while (buffer.hasRemaining()) {
+        char c = (char) (buffer.get() & 0xFF);
+        if (c == '\n') {
+          break;
+        } else if (c == '\r') {
+          if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+            buffer.get();
+          }
+          break;
+        }
+        line.append(c);
+      }
+      return line.toString();
+    }
+
+    @Override public String readUTF() {
+      checkRemaining(2);
+      int position = buffer.position();
+      int length = ((buffer.get(position) & 0xFF) << 8)
+          | (buffer.get(position + 1) & 0xFF);
+      checkRemaining(2 + length);
+      byte[] bytes = new byte[2 + length];
+      buffer.get(bytes);
+      return newDataInput(bytes).readUTF();
+    }
+
+    @Override public void readInts(int[] dst, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, dst.length);
+      checkRemaining(len * 4L);
+      buffer.asIntBuffer().get(dst, off, len);
+      buffer.position(buffer.position() + len * 4);
+    }
+
+    @Override public void readLongs(long[] dst, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, dst.length);
+      checkRemaining(len * 8L);
+      buffer.asLongBuffer().get(dst, off, len);
+      buffer.position(buffer.position() + len * 8);
+    }
+
+    @Override public void readDoubles(double[] dst, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, dst.length);
+      checkRemaining(len * 8L);
+      buffer.asDoubleBuffer().get(dst, off, len);
+      buffer.position(buffer.position() + len * 8);
+    }
+
+    @Override public int remaining() {
+      return buffer.remaining();
+    }
+  }
+
+  /**
+   * Returns a new {@link ByteBufferDataOutput} instance to write to {@code
+   * buffer}, starting at its position and in its byte order. Writing advances
+   * the position of the buffer. Set the order of the buffer to {@link
+   * ByteOrder#LITTLE_ENDIAN} to write data for {@link
+   * LittleEndianDataInputStream}.
+   *
+   * <p>As in {@link LittleEndianDataOutputStream}, the length preceding a
+   * string written by {@link DataOutput#writeUTF} is big-endian whatever the
+   * byte order of the buffer.
+   *
+   * @throws java.nio.ReadOnlyBufferException if {@code buffer} is read-only
+   * @since 12.0
+   */
+  public static ByteBufferDataOutput newDataOutput(ByteBuffer buffer) {
+    if (buffer.isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+    return new ByteBufferDataOutputStream(buffer);
+  }
+
+  @SuppressWarnings("deprecation") // for writeBytes
+  private static class ByteBufferDataOutputStream
+      implements ByteBufferDataOutput {
+    final ByteBuffer buffer;
+
+    ByteBufferDataOutputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private void checkRemaining(long bytes) {
+      if (buffer.remaining() < bytes) {
+        throw new IllegalStateException(new BufferOverflowException());
+      }
+    }
+
+    @Override public void write(int b) {
+      checkRemaining(1);
+      buffer.put((byte) b);
+    }
+
+    @Override public void write(byte[] b) {
+      write(b, 0, b.length);
+    }
+
+    @Override public void write(byte[] b, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, b.length);
+      checkRemaining(len);
+      buffer.put(b, off, len);
+    }
+
+    @Override public void writeBoolean(boolean v) {
+      write(v ? 1 : 0);
+    }
+
+    @Override public void writeByte(int v) {
+      write(v);
+    }
+
+    @Override public void writeBytes(String s) {
+      checkRemaining(s.length());
+      for (int i = 0; i < s.length(); i++) {
+        buffer.put((byte) s.charAt(i));
+      }
+    }
+
+    @Override public void writeChar(int v) {
+      checkRemaining(2);
+      buffer.putChar((char) v);
+    }
+
+    @Override public void writeChars(String s) {
+      checkRemaining(s.length() * 2L);
+      for (int i = 0; i < s.length(); i++) {
+        buffer.putChar(s.charAt(i));
+      }
+    }
+
+    @Override public void writeDouble(double v) {
+      checkRemaining(8);
+      buffer.putDouble(v);
+    }
+
+    @Override public void writeFloat(float v) {
+      checkRemaining(4);
+      buffer.putFloat(v);
+    }
+
+    @Override public void writeInt(int v) {
+      checkRemaining(4);
+      buffer.putInt(v);
+    }
+
+    @Override public void writeLong(long v) {
+      checkRemaining(8);
+      buffer.putLong(v);
+    }
+
+    @Override public void writeShort(int v) {
+      checkRemaining(2);
+      buffer.putShort((short) v);
+    }
+
+    @Override public void writeUTF(String s) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try {
+        new DataOutputStream(bytes).writeUTF(s);
+      } catch (UTFDataFormatException e) {
+        throw new IllegalArgumentException(e.getMessage());
+      } catch (IOException impossible) {
+        throw new AssertionError(impossible);
+      }
+      write(bytes.toByteArray());
+    }
+
+    @Override public void writeInts(int[] src, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, src.length);
+      checkRemaining(len * 4L);
+      buffer.asIntBuffer().put(src, off, len);
+      buffer.position(buffer.position() + len * 4);
+    }
+
+    @Override public void writeLongs(long[] src, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, src.length);
+      checkRemaining(len * 8L);
+      buffer.asLongBuffer().put(src, off, len);
+      buffer.position(buffer.position() + len * 8);
+    }
+
+    @Override public void writeDoubles(double[] src, int off, int len) {
+      Preconditions.checkPositionIndexes(off, off + len, src.length);
+      checkRemaining(len * 8L);
+      buffer.asDoubleBuffer().put(src, off, len);
+      buffer.position(buffer.position() + len * 8);
+    }
+
+    @Override public int remaining() {
+      return buffer.remaining();
+    }
+  }
+
   // TODO(chrisn): Not all streams support skipping.
   /** Returns the length of a supplied input stream, in bytes. */
   public static long length(InputSupplier<? extends InputStream> supplier)
@@ -600,9 +1015,18 @@ public final class ByteStreams {
    */
   public static boolean equal(InputSupplier<? extends InputStream> supplier1,
       InputSupplier<? extends InputStream> supplier2) throws IOException {
-    byte[] buf1 = new byte[BUF_SIZE];
-    byte[] buf2 = new byte[BUF_SIZE];
+    // Not pooled buffers: the caller's streams might read or hold on to them.
+    return equal(supplier1, supplier2, new byte[BUF_SIZE], new byte[BUF_SIZE]);
+  }
 
+  /**
+   * Returns true if the supplied input streams contain the same bytes,
+   * reading them through {@code buf1} and {@code buf2}, which must hold
+   * {@link #BUF_SIZE} bytes each.
+   */
+  static boolean equal(InputSupplier<? extends InputStream> supplier1,
+      InputSupplier<? extends InputStream> supplier2, byte[] buf1,
+      byte[] buf2) throws IOException {
     boolean threw = true;
     InputStream in1 = supplier1.getInput();
     try {
@@ -611,7 +1035,7 @@ public final class ByteStreams {
         while (true) {
           int read1 = read(in1, buf1, 0, BUF_SIZE);
           int read2 = read(in2, buf2, 0, BUF_SIZE);
-          if (read1 != read2 || !Arrays.equals(buf1, buf2)) {
+          if (read1 != read2 || !equal(buf1, buf2, read1)) {
             threw = false;
             return false;
           } else if (read1 != BUF_SIZE) {
@@ -627,6 +1051,16 @@ public final class ByteStreams {
     }
   }
 
+  /** Returns whether the first {@code length} bytes of both arrays match. */
+  private static boolean equal(byte[] buf1, byte[] buf2, int length) {
+    for (int i = 0; i < length; i++) {
+      if (buf1[i] != buf2[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Attempts to read enough bytes from the stream to fill the given byte array,
    * with the same behavior as {@link DataInput#readFully(byte[])}.
@@ -700,6 +1134,7 @@ public final class ByteStreams {
    */
   public static <T> T readBytes(InputSupplier<? extends InputStream> supplier,
       ByteProcessor<T> processor) throws IOException {
+    // Not a pooled buffer: the processor might hold on to it.
     byte[] buf = new byte[BUF_SIZE];
     boolean threw = true;
     InputStream in = supplier.getInput();
@@ -206,6 +206,7 @@ public final class CharStreams {
       }
       buf.flip();
       to.append(buf, 0, r);
+      buf.clear();
       total += r;
     }
     return total;
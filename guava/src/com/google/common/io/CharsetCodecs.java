@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Utf8;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+/**
+ * Encodes and decodes whole character sequences, with specialized loops for
+ * UTF-8 (see {@link Utf8}), US-ASCII and ISO-8859-1, and the JDK's coders for
+ * other character sets. The results are always the same as those of {@link
+ * String#getBytes(String)} and {@link String#String(byte[], int, int,
+ * String)}.
+ */
+final class CharsetCodecs {
+  private CharsetCodecs() {}
+
+  /** The replacement for unmappable characters, as used by the JDK. */
+  private static final byte UNMAPPABLE = '?';
+
+  /** The replacement for malformed input, as used by the JDK. */
+  private static final char MALFORMED = '\uFFFD';
+
+  /** Returns whether {@code charset} has a specialized encoder and decoder. */
+  static boolean isSpecialized(Charset charset) {
+    return charset.equals(Charsets.UTF_8) || charset.equals(Charsets.US_ASCII)
+        || charset.equals(Charsets.ISO_8859_1);
+  }
+
+  /** Encodes {@code chars} with {@code charset}. */
+  static byte[] encode(CharSequence chars, Charset charset) {
+    if (charset.equals(Charsets.UTF_8)) {
+      return Utf8.encode(chars);
+    } else if (charset.equals(Charsets.US_ASCII)) {
+      return encodeSingleByte(chars, 0x7F);
+    } else if (charset.equals(Charsets.ISO_8859_1)) {
+      return encodeSingleByte(chars, 0xFF);
+    }
+    try {
+      return chars.toString().getBytes(charset.name());
+    } catch (UnsupportedEncodingException impossible) {
+      throw new AssertionError(impossible);
+    }
+  }
+
+  /** Decodes {@code length} bytes of {@code bytes} with {@code charset}. */
+  static String decode(byte[] bytes, int offset, int length, Charset charset) {
+    if (charset.equals(Charsets.UTF_8)) {
+      return Utf8.decode(bytes, offset, length);
+    } else if (charset.equals(Charsets.US_ASCII)) {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        byte b = bytes[offset + i];
+        chars[i] = b >= 0 ? (char) b : MALFORMED;
+      }
+      return new String(chars);
+    } else if (charset.equals(Charsets.ISO_8859_1)) {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) (bytes[offset + i] & 0xFF);
+      }
+      return new String(chars);
+    }
+    try {
+      return new String(bytes, offset, length, charset.name());
+    } catch (UnsupportedEncodingException impossible) {
+      throw new AssertionError(impossible);
+    }
+  }
+
+  /**
+   * Encodes {@code chars} one byte per character, replacing the characters
+   * above {@code maxChar}. A surrogate pair is replaced by a single byte.
+   */
+  private static byte[] encodeSingleByte(CharSequence chars, int maxChar) {
+    int length = chars.length();
+    int pairs = 0;
+    for (int i = 0; i < length; i++) {
+      if (chars.charAt(i) > maxChar && isPairAt(chars, i)) {
+        pairs++;
+        i++;
+      }
+    }
+    byte[] bytes = new byte[length - pairs];
+    for (int i = 0, j = 0; i < length; i++, j++) {
+      char c = chars.charAt(i);
+      if (c <= maxChar) {
+        bytes[j] = (byte) c;
+      } else {
+        bytes[j] = UNMAPPABLE;
+        if (isPairAt(chars, i)) {
+          i++;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static boolean isPairAt(CharSequence chars, int index) {
+    return Character.isHighSurrogate(chars.charAt(index))
+        && index + 1 < chars.length()
+        && Character.isLowSurrogate(chars.charAt(index + 1));
+  }
+}
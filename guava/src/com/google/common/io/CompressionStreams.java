@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Provides utility methods for compressing and decompressing streams in the
+ * gzip and zlib (deflate) formats, as {@link InputSupplier} and {@link
+ * OutputSupplier} factories that compose with those of {@link ByteStreams}
+ * and {@link Files}, and as a gzip {@link OutputStream} that compresses on
+ * several threads.
+ *
+ * <p>All method parameters must be non-null unless documented otherwise.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class CompressionStreams {
+  private static final int DEFAULT_BLOCK_SIZE = 0x20000; // 128K
+
+  private CompressionStreams() {}
+
+  /**
+   * Returns a factory that will supply instances of {@link GZIPInputStream}
+   * that decompress the streams supplied by {@code in}. If the gzip header
+   * can't be read, the underlying stream is closed.
+   *
+   * @param in the factory of the compressed streams
+   * @return the factory
+   */
+  public static InputSupplier<GZIPInputStream> newGzipInputStreamSupplier(
+      final InputSupplier<? extends InputStream> in) {
+    checkNotNull(in);
+    return new InputSupplier<GZIPInputStream>() {
+      @Override
+      public GZIPInputStream getInput() throws IOException {
+        InputStream compressed = in.getInput();
+        boolean threw = true;
+        try {
+          GZIPInputStream result = new GZIPInputStream(compressed);
+          threw = false;
+          return result;
+        } finally {
+          if (threw) {
+            Closeables.closeQuietly(compressed);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a factory that will supply instances of {@link GZIPOutputStream}
+   * that compress to the streams supplied by {@code out}.
+   *
+   * @param out the factory of the streams to write the compressed data to
+   * @return the factory
+   */
+  public static OutputSupplier<GZIPOutputStream> newGzipOutputStreamSupplier(
+      final OutputSupplier<? extends OutputStream> out) {
+    checkNotNull(out);
+    return new OutputSupplier<GZIPOutputStream>() {
+      @Override
+      public GZIPOutputStream getOutput() throws IOException {
+        OutputStream compressed = out.getOutput();
+        boolean threw = true;
+        try {
+          GZIPOutputStream result = new GZIPOutputStream(compressed);
+          threw = false;
+          return result;
+        } finally {
+          if (threw) {
+            Closeables.closeQuietly(compressed);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a factory that will supply instances of {@link
+   * InflaterInputStream} that decompress the zlib-format streams supplied by
+   * {@code in}.
+   *
+   * @param in the factory of the compressed streams
+   * @return the factory
+   */
+  public static InputSupplier<InflaterInputStream>
+      newInflaterInputStreamSupplier(
+          final InputSupplier<? extends InputStream> in) {
+    checkNotNull(in);
+    return new InputSupplier<InflaterInputStream>() {
+      @Override
+      public InflaterInputStream getInput() throws IOException {
+        return new InflaterInputStream(in.getInput(), new Inflater()) {
+          private boolean closed;
+
+          @Override public void close() throws IOException {
+            if (!closed) {
+              closed = true;
+              try {
+                super.close();
+              } finally {
+                inf.end();
+              }
+            }
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns a factory that will supply instances of {@link
+   * DeflaterOutputStream} that compress, in the zlib format and at the
+   * default compression level, to the streams supplied by {@code out}.
+   *
+   * @param out the factory of the streams to write the compressed data to
+   * @return the factory
+   */
+  public static OutputSupplier<DeflaterOutputStream>
+      newDeflaterOutputStreamSupplier(
+          OutputSupplier<? extends OutputStream> out) {
+    return newDeflaterOutputStreamSupplier(out, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Returns a factory that will supply instances of {@link
+   * DeflaterOutputStream} that compress, in the zlib format and at the given
+   * compression level, to the streams supplied by {@code out}.
+   *
+   * @param out the factory of the streams to write the compressed data to
+   * @param level the compression level, from 0 to 9, or {@link
+   *     Deflater#DEFAULT_COMPRESSION}
+   * @return the factory
+   * @throws IllegalArgumentException if {@code level} is invalid
+   */
+  public static OutputSupplier<DeflaterOutputStream>
+      newDeflaterOutputStreamSupplier(
+          final OutputSupplier<? extends OutputStream> out, final int level) {
+    checkNotNull(out);
+    checkLevel(level);
+    return new OutputSupplier<DeflaterOutputStream>() {
+      @Override
+      public DeflaterOutputStream getOutput() throws IOException {
+        return new DeflaterOutputStream(out.getOutput(), new Deflater(level)) {
+          private boolean closed;
+
+          @Override public void close() throws IOException {
+            if (!closed) {
+              closed = true;
+              try {
+                super.close();
+              } finally {
+                def.end();
+              }
+            }
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns an output stream that compresses the bytes written to it in the
+   * gzip format, using the tasks of {@code executor} to compress blocks of 128K
+   * in parallel, at the default compression level. Equivalent to {@link
+   * #newParallelGzipOutputStream(OutputStream, Executor, int, int, int)} with
+   * at most twice as many pending blocks as there are available processors.
+   */
+  public static OutputStream newParallelGzipOutputStream(OutputStream out,
+      Executor executor) {
+    return newParallelGzipOutputStream(out, executor, DEFAULT_BLOCK_SIZE,
+        Deflater.DEFAULT_COMPRESSION,
+        2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Returns an output stream that compresses the bytes written to it in the
+   * gzip format, using several threads.
+   *
+   * <p>The written bytes are split into blocks of {@code blockSize} bytes, and
+   * each block is compressed independently, as a separate gzip member, by a
+   * task submitted to {@code executor}. The members are written to {@code out}
+   * in order, by the threads calling the methods of the returned stream.
+   * Concatenated gzip members form a valid gzip stream, which the {@code
+   * gzip} tool (and {@link GZIPInputStream} on Java 7 and later) decompresses
+   * as a whole. Since the blocks don't share history, the output is slightly
+   * larger than that of a {@link GZIPOutputStream}.
+   *
+   * <p>At most {@code maxPendingBlocks} blocks are compressed or waiting to be
+   * written at a time; a write that would exceed this waits for the oldest
+   * one. Calling {@link OutputStream#flush} compresses the current block even
+   * if it's not full, and waits for all pending blocks to be written. Closing
+   * the stream does the same and then closes {@code out}. An exception thrown
+   * by a compression task is rethrown, wrapped in an {@code IOException}, by
+   * the call that would have written its block.
+   *
+   * <p>The returned stream is not thread-safe.
+   *
+   * @param out the stream to write the compressed data to
+   * @param executor the executor running the compression tasks
+   * @param blockSize the number of bytes compressed by each task
+   * @param level the compression level, from 0 to 9, or {@link
+   *     Deflater#DEFAULT_COMPRESSION}
+   * @param maxPendingBlocks the maximum number of blocks held in memory
+   * @throws IllegalArgumentException if {@code blockSize} or {@code
+   *     maxPendingBlocks} is not positive, or if {@code level} is invalid
+   */
+  public static OutputStream newParallelGzipOutputStream(OutputStream out,
+      Executor executor, int blockSize, int level, int maxPendingBlocks) {
+    checkArgument(blockSize > 0, "Invalid blockSize: %s", blockSize);
+    checkArgument(maxPendingBlocks > 0,
+        "Invalid maxPendingBlocks: %s", maxPendingBlocks);
+    checkLevel(level);
+    return new ParallelGzipOutputStream(checkNotNull(out),
+        checkNotNull(executor), blockSize, level, maxPendingBlocks);
+  }
+
+  private static void checkLevel(int level) {
+    checkArgument(level == Deflater.DEFAULT_COMPRESSION
+        || (level >= Deflater.NO_COMPRESSION
+            && level <= Deflater.BEST_COMPRESSION),
+        "Invalid compression level: %s", level);
+  }
+}
@@ -19,8 +19,6 @@ package com.google.common.io;
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -45,20 +43,9 @@ public final class FileBackedOutputStream extends OutputStream {
   private final InputSupplier<InputStream> supplier;
 
   private OutputStream out;
-  private MemoryOutput memory;
+  private SegmentedByteArrayOutputStream memory;
   private File file;
 
-  /** ByteArrayOutputStream that exposes its internals. */
-  private static class MemoryOutput extends ByteArrayOutputStream {
-    byte[] getBuffer() {
-      return buf;
-    }
-
-    int getCount() {
-      return count;
-    }
-  }
-
   /** Returns the file holding the data (possibly null). */
   @VisibleForTesting synchronized File getFile() {
     return file;
@@ -90,7 +77,7 @@ public final class FileBackedOutputStream extends OutputStream {
   public FileBackedOutputStream(int fileThreshold, boolean resetOnFinalize) {
     this.fileThreshold = fileThreshold;
     this.resetOnFinalize = resetOnFinalize;
-    memory = new MemoryOutput();
+    memory = new SegmentedByteArrayOutputStream();
     out = memory;
 
     if (resetOnFinalize) {
@@ -130,8 +117,7 @@ public final class FileBackedOutputStream extends OutputStream {
     if (file != null) {
       return new FileInputStream(file);
     } else {
-      return new ByteArrayInputStream(
-          memory.getBuffer(), 0, memory.getCount());
+      return memory.getSupplier().getInput();
     }
   }
 
@@ -147,7 +133,7 @@ public final class FileBackedOutputStream extends OutputStream {
       close();
     } finally {
       if (memory == null) {
-        memory = new MemoryOutput();
+        memory = new SegmentedByteArrayOutputStream();
       } else {
         memory.reset();
       }
@@ -190,7 +176,7 @@ public final class FileBackedOutputStream extends OutputStream {
    * switches to file buffering if so.
    */
   private void update(int len) throws IOException {
-    if (file == null && (memory.getCount() + len > fileThreshold)) {
+    if (file == null && (memory.size() + len > fileThreshold)) {
       File temp = File.createTempFile("FileBackedOutputStream", null);
       if (resetOnFinalize) {
         // Finalizers are not guaranteed to be called on system shutdown;
@@ -198,7 +184,7 @@ public final class FileBackedOutputStream extends OutputStream {
         temp.deleteOnExit();
       }
       FileOutputStream transfer = new FileOutputStream(temp);
-      transfer.write(memory.getBuffer(), 0, memory.getCount());
+      memory.writeTo(transfer);
       transfer.flush();
 
       // We've successfully transferred the data; switch to writing to file
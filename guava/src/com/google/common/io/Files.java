@@ -19,9 +19,16 @@ package com.google.common.io;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -36,6 +43,8 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -43,6 +52,7 @@ import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.zip.Checksum;
 
 /**
@@ -220,7 +230,8 @@ public final class Files {
    * @throws IOException if an I/O error occurs
    */
   public static String toString(File file, Charset charset) throws IOException {
-    return new String(toByteArray(file), charset.name());
+    byte[] bytes = toByteArray(file);
+    return CharsetCodecs.decode(bytes, 0, bytes.length, charset);
   }
 
   /**
@@ -272,8 +283,11 @@ public final class Files {
   }
 
   /**
-   * Copies all the bytes from one file to another.
-   *.
+   * Copies all the bytes from one file to another. Where the platform
+   * supports it, the bytes are copied by the operating system without passing
+   * through the Java heap (see {@link ByteStreams#copy(InputStream,
+   * OutputStream)}).
+   *
    * @param from the source file
    * @param to the destination file
    * @throws IOException if an I/O error occurs
@@ -340,7 +354,12 @@ public final class Files {
    */
   private static void write(CharSequence from, File to, Charset charset,
       boolean append) throws IOException {
-    CharStreams.write(from, newWriterSupplier(to, charset, append));
+    if (CharsetCodecs.isSpecialized(charset)) {
+      ByteStreams.write(CharsetCodecs.encode(from, charset),
+          newOutputStreamSupplier(to, append));
+    } else {
+      CharStreams.write(from, newWriterSupplier(to, charset, append));
+    }
   }
 
   /**
@@ -392,8 +411,16 @@ public final class Files {
     if (len1 != 0 && len2 != 0 && len1 != len2) {
       return false;
     }
-    return ByteStreams.equal(newInputStreamSupplier(file1),
-        newInputStreamSupplier(file2));
+    // The streams are our own, so they can't see or keep the pooled buffers.
+    byte[] buf1 = BufferPool.takeBytes();
+    byte[] buf2 = BufferPool.takeBytes();
+    try {
+      return ByteStreams.equal(newInputStreamSupplier(file1),
+          newInputStreamSupplier(file2), buf1, buf2);
+    } finally {
+      BufferPool.recycle(buf2);
+      BufferPool.recycle(buf1);
+    }
   }
 
   /**
@@ -543,6 +570,229 @@ public final class Files {
         callback);
   }
 
+  /**
+   * Streams lines from a {@link File} by mapping it into memory, stopping
+   * when our callback returns false, or we have read all of the lines.
+   *
+   * <p>Unlike {@link #readLines(File, Charset, LineProcessor)}, this method
+   * does not allocate a string per line: for UTF-8, US-ASCII and ISO-8859-1,
+   * each line is passed to the callback as a view of the mapped bytes (or of a
+   * reused buffer, for lines with non-ASCII characters), which is only valid
+   * until the callback returns. The file is mapped in windows, so files larger
+   * than 2GB are supported. Files in other charsets are read with a
+   * {@link Reader}, and each line is passed as a {@link String}.
+   *
+   * <p>Lines are terminated by {@code "\n"}, {@code "\r"} or {@code "\r\n"},
+   * as for {@link #readLines(File, Charset, LineProcessor)}. Malformed input
+   * is replaced by the charset's replacement character.
+   *
+   * @param file the file to read from
+   * @param charset the character set used when writing the file
+   * @param callback the {@link CharSequenceLineProcessor} to use to handle the
+   *     lines
+   * @return the output of processing the lines
+   * @throws IOException if an I/O error occurs
+   * @since 12.0
+   */
+  public static <T> T readMappedLines(File file, Charset charset,
+      final CharSequenceLineProcessor<T> callback) throws IOException {
+    checkNotNull(callback);
+    if (!MappedLineReader.isSupported(charset)) {
+      return readLines(file, charset, new LineProcessor<T>() {
+        @Override public boolean processLine(String line) throws IOException {
+          return callback.processLine(line);
+        }
+
+        @Override public T getResult() {
+          return callback.getResult();
+        }
+      });
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    boolean threw = true;
+    try {
+      FileChannel channel = raf.getChannel();
+      T result = new MappedLineReader(channel, 0, channel.size(), charset)
+          .readLines(callback);
+      threw = false;
+      return result;
+    } finally {
+      Closeables.close(raf, threw);
+    }
+  }
+
+  /**
+   * The default size of the chunks a file is split into by
+   * {@link #readLinesInParallel}.
+   */
+  static final long DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024; // 32M
+
+  /**
+   * Processes the lines of a {@link File} in parallel, splitting it into
+   * chunks of about 32MB. Equivalent to {@link #readLinesInParallel(File,
+   * Charset, Supplier, Function, ListeningExecutorService, long)} with that
+   * chunk size.
+   *
+   * @since 12.0
+   */
+  public static <T, R> ListenableFuture<R> readLinesInParallel(File file,
+      Charset charset, Supplier<? extends LineProcessor<T>> processors,
+      Function<? super List<T>, ? extends R> combiner,
+      ListeningExecutorService executor) {
+    return readLinesInParallel(file, charset, processors, combiner, executor,
+        DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Processes the lines of a {@link File} in parallel. The file is split into
+   * chunks of roughly {@code chunkSize} bytes, each extended to end on a line
+   * boundary, and the lines of each chunk are passed, in order, to a separate
+   * {@link LineProcessor} obtained from {@code processors}. The chunks are
+   * processed by tasks submitted to {@code executor}. Once all of them
+   * complete, the list of the processors' results, in the order of the
+   * chunks in the file, is passed to {@code combiner}, whose result becomes
+   * the result of the returned future.
+   *
+   * <p>A processor returning {@code false} stops the processing of its own
+   * chunk only. If any chunk fails, the returned future fails. Cancelling the
+   * returned future cancels the processing of the chunks that have not
+   * completed yet. The combiner runs in the thread that completes the last
+   * chunk.
+   *
+   * <p>For UTF-8, US-ASCII and ISO-8859-1, chunks are split after a {@code
+   * '\n'} byte, and each chunk is read through a memory mapping as by {@link
+   * #readMappedLines}. A file using only {@code "\r"} as a line terminator is
+   * therefore processed as a single chunk. Files in other charsets are always
+   * processed as a single chunk, as the position of a line boundary can't be
+   * found without decoding the file from the start.
+   *
+   * <p>The file's length is read when this method is called; bytes appended
+   * later are not processed.
+   *
+   * @param file the file to read from
+   * @param charset the character set used when writing the file
+   * @param processors supplies a new {@link LineProcessor} for each chunk
+   * @param combiner combines the results of the processors
+   * @param executor the executor that processes the chunks
+   * @param chunkSize the approximate number of bytes in each chunk
+   * @return a future holding the result of {@code combiner}
+   * @throws IllegalArgumentException if {@code chunkSize} is not positive
+   * @since 12.0
+   */
+  public static <T, R> ListenableFuture<R> readLinesInParallel(
+      final File file, final Charset charset,
+      final Supplier<? extends LineProcessor<T>> processors,
+      Function<? super List<T>, ? extends R> combiner,
+      ListeningExecutorService executor, final long chunkSize) {
+    checkNotNull(file);
+    checkNotNull(charset);
+    checkNotNull(processors);
+    checkNotNull(combiner);
+    checkNotNull(executor);
+    Preconditions.checkArgument(chunkSize > 0,
+        "chunkSize must be positive: %s", chunkSize);
+
+    final List<ListenableFuture<T>> chunks = Lists.newArrayList();
+    if (MappedLineReader.isSupported(charset)) {
+      final long length = file.length();
+      long chunkCount = Math.max(1,
+          length / chunkSize + (length % chunkSize == 0 ? 0 : 1));
+      for (long i = 0; i < chunkCount; i++) {
+        final long from = i * chunkSize;
+        final long to = Math.min(from + chunkSize, length);
+        chunks.add(executor.submit(new Callable<T>() {
+          @Override public T call() throws IOException {
+            return readChunk(file, charset, processors.get(), from, to, length);
+          }
+        }));
+      }
+    } else {
+      chunks.add(executor.submit(new Callable<T>() {
+        @Override public T call() throws IOException {
+          return readLines(file, charset, processors.get());
+        }
+      }));
+    }
+
+    final ListenableFuture<R> result =
+        Futures.transform(Futures.allAsList(chunks), combiner);
+    result.addListener(new Runnable() {
+      @Override public void run() {
+        if (result.isCancelled()) {
+          for (ListenableFuture<T> chunk : chunks) {
+            chunk.cancel(true);
+          }
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    return result;
+  }
+
+  /**
+   * Passes the lines of the chunk between the line boundaries following the
+   * nominal positions {@code from} and {@code to} to {@code processor}.
+   */
+  private static <T> T readChunk(File file, Charset charset,
+      final LineProcessor<T> processor, long from, long to, long length)
+      throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    boolean threw = true;
+    try {
+      FileChannel channel = raf.getChannel();
+      long start = nextLineStart(channel, from, length);
+      long end = nextLineStart(channel, to, length);
+      MappedLineReader reader =
+          new MappedLineReader(channel, start, end, charset);
+      T result = reader.readLines(new CharSequenceLineProcessor<T>() {
+        @Override public boolean processLine(CharSequence line)
+            throws IOException {
+          return processor.processLine(line.toString());
+        }
+
+        @Override public T getResult() {
+          return processor.getResult();
+        }
+      });
+      threw = false;
+      return result;
+    } finally {
+      Closeables.close(raf, threw);
+    }
+  }
+
+  /**
+   * Returns the position of the first line that starts at or after {@code
+   * position}, considering only {@code '\n'} as a terminator, or {@code
+   * length} if there is none.
+   */
+  private static long nextLineStart(FileChannel channel, long position,
+      long length) throws IOException {
+    if (position == 0 || position >= length) {
+      return Math.min(position, length);
+    }
+    ByteBuffer buf = BufferPool.takeDirect();
+    try {
+      // A line starts at position if the previous byte ends a line.
+      long bufStart = position - 1;
+      while (bufStart < length) {
+        buf.clear();
+        int read = channel.read(buf, bufStart);
+        if (read == -1) {
+          break;
+        }
+        for (int i = 0; i < read; i++) {
+          if (buf.get(i) == '\n') {
+            return Math.min(bufStart + i + 1, length);
+          }
+        }
+        bufStart += read;
+      }
+      return length;
+    } finally {
+      BufferPool.recycle(buf);
+    }
+  }
+
   /**
    * Process the bytes of a file.
    *
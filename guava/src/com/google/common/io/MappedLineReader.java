@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads the lines of a region of a file by mapping it into memory, one window
+ * at a time, and scanning the mapped bytes for line terminators. Lines are
+ * passed to a {@link CharSequenceLineProcessor} through a single reused
+ * {@link CharSequence}: lines of ASCII characters are read straight from the
+ * mapped bytes, and other lines are decoded into a reused char array, so no
+ * objects are allocated per line.
+ *
+ * <p>Only charsets that encode ASCII characters (and in particular {@code
+ * '\n'} and {@code '\r'}) as single bytes, and never use those byte values
+ * otherwise, are supported; see {@link #isSupported}.
+ *
+ * <p>Lines are terminated as by {@link LineReader}: by {@code "\n"}, {@code
+ * "\r"} or {@code "\r\n"}, or by the end of the region.
+ */
+final class MappedLineReader {
+  /** The default size of the mapped windows. */
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024; // 64M
+
+  private final FileChannel channel;
+  private final long start;
+  private final long end;
+  private final int windowSize;
+  private final CharsetDecoder decoder;
+  private final boolean latin1;
+  private final LineView line = new LineView();
+
+  private CharBuffer decoded = CharBuffer.allocate(0);
+
+  /**
+   * Creates a reader for the bytes of {@code channel} from {@code start}
+   * (inclusive) to {@code end} (exclusive). The channel is not closed.
+   */
+  MappedLineReader(FileChannel channel, long start, long end,
+      Charset charset) {
+    this(channel, start, end, charset, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting MappedLineReader(FileChannel channel, long start,
+      long end, Charset charset, int windowSize) {
+    checkArgument(isSupported(charset), "Unsupported charset: %s", charset);
+    checkArgument(0 <= start && start <= end,
+        "Invalid region: [%s, %s)", start, end);
+    checkArgument(windowSize > 0, "windowSize must be positive");
+    this.channel = checkNotNull(channel);
+    this.start = start;
+    this.end = end;
+    this.windowSize = windowSize;
+    this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.latin1 = charset.equals(Charsets.ISO_8859_1);
+  }
+
+  /**
+   * Returns whether lines encoded in {@code charset} can be read by this
+   * class, which is true for UTF-8, US-ASCII and ISO-8859-1.
+   */
+  static boolean isSupported(Charset charset) {
+    return charset.equals(Charsets.UTF_8)
+        || charset.equals(Charsets.US_ASCII)
+        || charset.equals(Charsets.ISO_8859_1);
+  }
+
+  /**
+   * Passes each line of the region to {@code processor}, stopping early if it
+   * returns false, and returns the processor's result.
+   */
+  <T> T readLines(CharSequenceLineProcessor<T> processor) throws IOException {
+    long windowStart = start;
+    long mapSize = windowSize;
+    while (windowStart < end) {
+      int size = (int) Math.min(mapSize, end - windowStart);
+      boolean last = windowStart + size == end;
+      ByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, size);
+      ByteBuffer decoderInput = window.duplicate();
+      int pos = 0;
+      while (pos < size) {
+        int lineEnd = pos;
+        int bits = 0;
+        byte b = 0;
+        while (lineEnd < size) {
+          b = window.get(lineEnd);
+          if (b == '\n' || b == '\r') {
+            break;
+          }
+          bits |= b;
+          lineEnd++;
+        }
+        int next;
+        if (lineEnd == size) {
+          if (!last) {
+            // The line continues past the window.
+            break;
+          }
+          next = size;
+        } else if (b == '\r') {
+          if (lineEnd + 1 == size && !last) {
+            // We can't tell yet whether the terminator is "\r\n".
+            break;
+          }
+          next = (lineEnd + 1 < size && window.get(lineEnd + 1) == '\n')
+              ? lineEnd + 2
+              : lineEnd + 1;
+        } else {
+          next = lineEnd + 1;
+        }
+        if (latin1 || bits >= 0) {
+          line.setBytes(window, pos, lineEnd - pos);
+        } else {
+          line.setChars(decode(decoderInput, pos, lineEnd));
+        }
+        pos = next;
+        if (!processor.processLine(line)) {
+          return processor.getResult();
+        }
+      }
+      if (pos == 0) {
+        // A single line is longer than the window; map a larger one.
+        if (mapSize >= Integer.MAX_VALUE) {
+          throw new IOException("Line longer than " + Integer.MAX_VALUE
+              + " bytes at offset " + windowStart);
+        }
+        mapSize = Math.min(mapSize * 2, Integer.MAX_VALUE);
+      } else {
+        windowStart += pos;
+        mapSize = windowSize;
+      }
+    }
+    return processor.getResult();
+  }
+
+  private CharBuffer decode(ByteBuffer in, int from, int to) {
+    in.limit(to);
+    in.position(from);
+    int capacity = (int) Math.ceil((to - from) * decoder.maxCharsPerByte());
+    if (decoded.capacity() < capacity) {
+      decoded =
+          CharBuffer.allocate(Math.max(capacity, decoded.capacity() * 2));
+    }
+    decoded.clear();
+    decoder.reset();
+    decoder.decode(in, decoded, true);
+    decoder.flush(decoded);
+    decoded.flip();
+    return decoded;
+  }
+
+  /**
+   * The reused view of the current line: either bytes of a mapped window, one
+   * char per byte, or a decoded char buffer.
+   */
+  private static final class LineView implements CharSequence {
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+    private int offset;
+    private int length;
+
+    void setBytes(ByteBuffer bytes, int offset, int length) {
+      this.bytes = bytes;
+      this.chars = null;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    void setChars(CharBuffer chars) {
+      this.bytes = null;
+      this.chars = chars;
+      this.offset = 0;
+      this.length = chars.remaining();
+    }
+
+    @Override public int length() {
+      return length;
+    }
+
+    @Override public char charAt(int index) {
+      checkElementIndex(index, length);
+      return (bytes != null)
+          ? (char) (bytes.get(offset + index) & 0xFF)
+          : chars.get(index);
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+      checkPositionIndexes(start, end, length);
+      return toString(start, end);
+    }
+
+    @Override public String toString() {
+      return toString(0, length);
+    }
+
+    private String toString(int start, int end) {
+      if (chars != null) {
+        return new String(chars.array(), start, end - start);
+      }
+      char[] result = new char[end - start];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = (char) (bytes.get(offset + start + i) & 0xFF);
+      }
+      return new String(result);
+    }
+  }
+}
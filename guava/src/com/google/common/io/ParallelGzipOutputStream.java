@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip output stream that compresses blocks of its input in parallel, each
+ * as a separate gzip member. See {@link
+ * CompressionStreams#newParallelGzipOutputStream(OutputStream, Executor, int,
+ * int, int)}.
+ */
+final class ParallelGzipOutputStream extends OutputStream {
+  /**
+   * The header of each member: magic number, deflate method, no flags, no
+   * modification time, no extra flags, unknown operating system.
+   */
+  private static final byte[] HEADER =
+      {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final OutputStream out;
+  private final Executor executor;
+  private final int blockSize;
+  private final int level;
+  private final int maxPendingBlocks;
+
+  /** The compressed members not yet written to {@link #out}, in order. */
+  private final Queue<Future<SegmentedByteArrayOutputStream>> pending =
+      new LinkedList<Future<SegmentedByteArrayOutputStream>>();
+  private byte[] block;
+  private int blockCount;
+  private boolean wroteMember;
+  private boolean closed;
+
+  ParallelGzipOutputStream(OutputStream out, Executor executor,
+      int blockSize, int level, int maxPendingBlocks) {
+    this.out = out;
+    this.executor = executor;
+    this.blockSize = blockSize;
+    this.level = level;
+    this.maxPendingBlocks = maxPendingBlocks;
+    this.block = new byte[blockSize];
+  }
+
+  @Override public void write(int b) throws IOException {
+    checkNotClosed();
+    block[blockCount++] = (byte) b;
+    if (blockCount == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override public void write(byte[] b, int off, int len) throws IOException {
+    checkPositionIndexes(off, off + len, b.length);
+    checkNotClosed();
+    while (len > 0) {
+      int n = Math.min(len, blockSize - blockCount);
+      System.arraycopy(b, off, block, blockCount, n);
+      blockCount += n;
+      off += n;
+      len -= n;
+      if (blockCount == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  @Override public void flush() throws IOException {
+    checkNotClosed();
+    if (blockCount > 0) {
+      submitBlock();
+    }
+    while (!pending.isEmpty()) {
+      writeOldestMember();
+    }
+    out.flush();
+  }
+
+  @Override public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    boolean threw = true;
+    try {
+      // An empty gzip stream still needs a member.
+      if (blockCount > 0 || (!wroteMember && pending.isEmpty())) {
+        submitBlock();
+      }
+      while (!pending.isEmpty()) {
+        writeOldestMember();
+      }
+      threw = false;
+    } finally {
+      closed = true;
+      block = null;
+      if (threw) {
+        for (Future<?> member : pending) {
+          member.cancel(false);
+        }
+        pending.clear();
+      }
+      Closeables.close(out, threw);
+    }
+  }
+
+  private void checkNotClosed() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  /** Hands the current block to the executor and starts a new one. */
+  private void submitBlock() throws IOException {
+    if (pending.size() == maxPendingBlocks) {
+      writeOldestMember();
+    }
+    final byte[] data = block;
+    final int length = blockCount;
+    FutureTask<SegmentedByteArrayOutputStream> task =
+        new FutureTask<SegmentedByteArrayOutputStream>(
+            new Callable<SegmentedByteArrayOutputStream>() {
+              @Override public SegmentedByteArrayOutputStream call() {
+                return compress(data, length, level);
+              }
+            });
+    executor.execute(task);
+    pending.add(task);
+    block = new byte[blockSize];
+    blockCount = 0;
+  }
+
+  /** Waits for the oldest pending member, and writes it to the output. */
+  private void writeOldestMember() throws IOException {
+    Future<SegmentedByteArrayOutputStream> member = pending.peek();
+    SegmentedByteArrayOutputStream compressed;
+    try {
+      compressed = member.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      IOException exception = new IOException("Compression failed");
+      exception.initCause(e.getCause());
+      throw exception;
+    }
+    pending.remove();
+    compressed.writeTo(out);
+    wroteMember = true;
+  }
+
+  /** Compresses {@code length} bytes of {@code data} into a gzip member. */
+  static SegmentedByteArrayOutputStream compress(byte[] data, int length,
+      int level) {
+    SegmentedByteArrayOutputStream member =
+        new SegmentedByteArrayOutputStream(Math.max(length / 2, 64));
+    member.write(HEADER, 0, HEADER.length);
+    Deflater deflater = new Deflater(level, true);
+    try {
+      deflater.setInput(data, 0, length);
+      deflater.finish();
+      byte[] buf = BufferPool.takeBytes();
+      try {
+        while (!deflater.finished()) {
+          int n = deflater.deflate(buf);
+          member.write(buf, 0, n);
+        }
+      } finally {
+        BufferPool.recycle(buf);
+      }
+    } finally {
+      deflater.end();
+    }
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, length);
+    writeIntLittleEndian(member, (int) crc.getValue());
+    writeIntLittleEndian(member, length);
+    return member;
+  }
+
+  private static void writeIntLittleEndian(
+      SegmentedByteArrayOutputStream out, int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * An output stream that stores the written bytes in memory, like {@link
+ * java.io.ByteArrayOutputStream}, but in a list of segments rather than a
+ * single array. When a segment is full, a new one is added; bytes already
+ * written are never copied. Segments start at the requested initial size and
+ * double until they reach a maximum size (64K by default), so large contents
+ * don't need any large contiguous allocation.
+ *
+ * <p>The contents can be read without copying them through {@link
+ * #getSupplier} or {@link #toByteBuffers}, which is suitable for gathering
+ * writes to a channel, or copied to a stream with {@link #writeTo}. {@link
+ * #toByteArray} copies the contents into a single new array.
+ *
+ * <p>Unlike {@code ByteArrayOutputStream}, this class is not thread-safe.
+ * Closing it has no effect.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class SegmentedByteArrayOutputStream extends OutputStream {
+  private static final int DEFAULT_INITIAL_SIZE = 32;
+  private static final int DEFAULT_MAX_SEGMENT_SIZE = 0x10000; // 64K
+
+  private final int maxSegmentSize;
+  private final ArrayList<byte[]> segments = Lists.newArrayList();
+  /** The last segment, which is the only one that may not be full. */
+  private byte[] current;
+  /** The number of bytes written to {@link #current}. */
+  private int currentCount;
+  private long size;
+
+  /**
+   * Creates a new stream whose first segment holds 32 bytes.
+   */
+  public SegmentedByteArrayOutputStream() {
+    this(DEFAULT_INITIAL_SIZE);
+  }
+
+  /**
+   * Creates a new stream whose first segment holds {@code initialSize} bytes,
+   * or 64K if {@code initialSize} is larger.
+   *
+   * @throws IllegalArgumentException if {@code initialSize} is negative
+   */
+  public SegmentedByteArrayOutputStream(int initialSize) {
+    this(initialSize, DEFAULT_MAX_SEGMENT_SIZE);
+  }
+
+  /**
+   * Creates a new stream whose first segment holds {@code initialSize} bytes,
+   * or {@code maxSegmentSize} bytes if that is smaller, and whose segments
+   * hold at most {@code maxSegmentSize} bytes.
+   *
+   * @throws IllegalArgumentException if {@code initialSize} is negative or
+   *     {@code maxSegmentSize} is not positive
+   */
+  public SegmentedByteArrayOutputStream(int initialSize, int maxSegmentSize) {
+    checkArgument(initialSize >= 0, "Invalid initialSize: %s", initialSize);
+    checkArgument(maxSegmentSize > 0,
+        "Invalid maxSegmentSize: %s", maxSegmentSize);
+    this.maxSegmentSize = maxSegmentSize;
+    this.current = new byte[Math.max(1, Math.min(initialSize, maxSegmentSize))];
+    segments.add(current);
+  }
+
+  @Override public void write(int b) {
+    if (currentCount == current.length) {
+      addSegment();
+    }
+    current[currentCount++] = (byte) b;
+    size++;
+  }
+
+  @Override public void write(byte[] b, int off, int len) {
+    checkPositionIndexes(off, off + len, b.length);
+    while (len > 0) {
+      if (currentCount == current.length) {
+        addSegment();
+      }
+      int n = Math.min(len, current.length - currentCount);
+      System.arraycopy(b, off, current, currentCount, n);
+      currentCount += n;
+      off += n;
+      len -= n;
+      size += n;
+    }
+  }
+
+  private void addSegment() {
+    int newSize = (int) Math.min(current.length * 2L, maxSegmentSize);
+    current = new byte[Math.max(newSize, current.length)];
+    currentCount = 0;
+    segments.add(current);
+  }
+
+  /** Returns the number of bytes written. */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Discards the written bytes, keeping only the first segment for reuse.
+   * Streams obtained from {@link #getSupplier} and buffers obtained from
+   * {@link #toByteBuffers} before this call must not be used afterwards.
+   */
+  public void reset() {
+    current = segments.get(0);
+    segments.clear();
+    segments.add(current);
+    currentCount = 0;
+    size = 0;
+  }
+
+  /**
+   * Writes the contents of this stream to {@code out}.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    int last = segments.size() - 1;
+    for (int i = 0; i < last; i++) {
+      byte[] segment = segments.get(i);
+      out.write(segment, 0, segment.length);
+    }
+    out.write(current, 0, currentCount);
+  }
+
+  /**
+   * Returns the contents of this stream in a new array.
+   *
+   * @throws IllegalStateException if more than {@code Integer.MAX_VALUE} bytes
+   *     were written
+   */
+  public byte[] toByteArray() {
+    checkState(size <= Integer.MAX_VALUE, "Too large for an array: %s", size);
+    byte[] result = new byte[(int) size];
+    int pos = 0;
+    int last = segments.size() - 1;
+    for (int i = 0; i < last; i++) {
+      byte[] segment = segments.get(i);
+      System.arraycopy(segment, 0, result, pos, segment.length);
+      pos += segment.length;
+    }
+    System.arraycopy(current, 0, result, pos, currentCount);
+    return result;
+  }
+
+  /**
+   * Returns read-only views of the segments holding the current contents of
+   * this stream, in order, for example to pass to {@link
+   * java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}. The buffers
+   * share the segments, so they must not be used after {@link #reset}.
+   */
+  public ByteBuffer[] toByteBuffers() {
+    int last = segments.size() - 1;
+    ByteBuffer[] result = new ByteBuffer[segments.size()];
+    for (int i = 0; i < last; i++) {
+      result[i] = ByteBuffer.wrap(segments.get(i)).asReadOnlyBuffer();
+    }
+    result[last] = ByteBuffer.wrap(current, 0, currentCount).asReadOnlyBuffer();
+    return result;
+  }
+
+  /**
+   * Returns a supplier of streams reading the contents of this stream,
+   * without copying them. Each stream reads the bytes written before it was
+   * opened.
+   */
+  public InputSupplier<InputStream> getSupplier() {
+    return new InputSupplier<InputStream>() {
+      @Override public InputStream getInput() {
+        return new SegmentsInputStream(segments, size);
+      }
+    };
+  }
+
+  /** Reads the first {@code length} bytes of a list of segments. */
+  private static final class SegmentsInputStream extends InputStream {
+    private final ArrayList<byte[]> segments;
+    private int segmentIndex;
+    private int offset;
+    private long remaining;
+
+    SegmentsInputStream(ArrayList<byte[]> segments, long length) {
+      // Later writes may add segments, but never change the first ones.
+      this.segments = Lists.newArrayList(segments);
+      this.remaining = length;
+    }
+
+    @Override public int read() {
+      if (remaining == 0) {
+        return -1;
+      }
+      byte[] segment = segment();
+      remaining--;
+      return segment[offset++] & 0xFF;
+    }
+
+    @Override public int read(byte[] b, int off, int len) {
+      checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining == 0) {
+        return -1;
+      }
+      int total = 0;
+      while (len > 0 && remaining > 0) {
+        byte[] segment = segment();
+        int n = (int) Math.min(Math.min(len, segment.length - offset),
+            remaining);
+        System.arraycopy(segment, offset, b, off, n);
+        offset += n;
+        off += n;
+        len -= n;
+        remaining -= n;
+        total += n;
+      }
+      return total;
+    }
+
+    @Override public long skip(long n) {
+      long skipped = Math.max(0, Math.min(n, remaining));
+      long toSkip = skipped;
+      while (toSkip > 0) {
+        byte[] segment = segment();
+        int step = (int) Math.min(toSkip, segment.length - offset);
+        offset += step;
+        toSkip -= step;
+      }
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override public int available() {
+      return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /** Returns the segment to read from, moving on if the current is done. */
+    private byte[] segment() {
+      byte[] segment = segments.get(segmentIndex);
+      if (offset == segment.length) {
+        segment = segments.get(++segmentIndex);
+        offset = 0;
+      }
+      return segment;
+    }
+  }
+}
@@ -16,7 +16,7 @@
 
 /**
  * This package contains utility methods and classes for working with net
- * addresses (numeric IP and domain names).
+ * addresses (numeric IP and domain names), and escapers for URLs.
  *
  * <p>This package is a part of the open-source
  * <a href="http://guava-libraries.googlecode.com">Guava libraries</a>.
@@ -46,6 +46,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -868,6 +869,95 @@ public final class Futures {
         MoreExecutors.sameThreadExecutor());
   }
 
+  /**
+   * Creates a new {@code ListenableFuture} that completes with the result of
+   * whichever of the input futures completes first, whether that is a value,
+   * an exception, or a cancellation. The results of the other input futures
+   * are ignored.
+   *
+   * <p>No thread is blocked while waiting: the returned future is completed
+   * directly from a listener on the winning input.
+   *
+   * <p>Canceling this future does not cancel any of the component futures,
+   * and neither do the component futures that lose the race get canceled;
+   * callers that want to stop them should do so themselves.
+   *
+   * @param futures futures to race
+   * @return a future that provides the result of the first input future to
+   *         complete
+   * @throws IllegalArgumentException if {@code futures} is empty
+   * @since 12.0
+   */
+  @Beta
+  public static <V> ListenableFuture<V> firstCompletedOf(
+      ListenableFuture<? extends V>... futures) {
+    return firstCompletedOf(ImmutableList.copyOf(futures));
+  }
+
+  /**
+   * Creates a new {@code ListenableFuture} that completes with the result of
+   * whichever of the input futures completes first, whether that is a value,
+   * an exception, or a cancellation. The results of the other input futures
+   * are ignored.
+   *
+   * <p>No thread is blocked while waiting: the returned future is completed
+   * directly from a listener on the winning input.
+   *
+   * <p>Canceling this future does not cancel any of the component futures,
+   * and neither do the component futures that lose the race get canceled;
+   * callers that want to stop them should do so themselves.
+   *
+   * @param futures futures to race
+   * @return a future that provides the result of the first input future to
+   *         complete
+   * @throws IllegalArgumentException if {@code futures} is empty
+   * @since 12.0
+   */
+  @Beta
+  public static <V> ListenableFuture<V> firstCompletedOf(
+      Iterable<? extends ListenableFuture<? extends V>> futures) {
+    ImmutableList<? extends ListenableFuture<? extends V>> copy =
+        ImmutableList.copyOf(futures);
+    checkArgument(!copy.isEmpty(), "futures must not be empty");
+    FirstCompletedFuture<V> output = new FirstCompletedFuture<V>();
+    for (ListenableFuture<? extends V> input : copy) {
+      output.race(input);
+      if (output.isDone()) {
+        break;
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Returns a future that delegates to {@code delegate}, but fails with a
+   * {@link TimeoutException} if {@code delegate} has not completed within the
+   * given time. When the timeout fires, {@code delegate} is canceled (with
+   * interruption). Canceling the returned future also cancels {@code
+   * delegate}.
+   *
+   * <p>Unlike {@link Future#get(long, TimeUnit)}, no thread is blocked while
+   * waiting: the timeout is a task scheduled on {@code scheduledExecutor},
+   * which is canceled as soon as {@code delegate} completes.
+   *
+   * @param delegate the future to bound in time
+   * @param time how long to wait for {@code delegate} to complete
+   * @param unit the time unit of the {@code time} argument
+   * @param scheduledExecutor the executor used to schedule the timeout
+   * @since 12.0
+   */
+  @Beta
+  public static <V> ListenableFuture<V> withTimeout(
+      ListenableFuture<V> delegate, long time, TimeUnit unit,
+      ScheduledExecutorService scheduledExecutor) {
+    checkNotNull(delegate);
+    checkNotNull(unit);
+    checkNotNull(scheduledExecutor);
+    TimeoutFuture<V> output = new TimeoutFuture<V>(delegate);
+    output.start(time, unit, scheduledExecutor);
+    return output;
+  }
+
   /**
    * Registers separate success and failure callbacks to be run when the {@code
    * Future}'s computation is {@linkplain java.util.concurrent.Future#isDone()
@@ -1441,6 +1531,104 @@ public final class Futures {
     }
   }
 
+  /**
+   * Completes {@code output} with the result of {@code input}, which must be
+   * done. Returns false if {@code output} had already been completed.
+   */
+  private static <V> boolean completeFrom(
+      AbstractFuture<V> output, Future<? extends V> input) {
+    checkState(input.isDone(),
+        "Tried to set value from future which is not done");
+    try {
+      return output.set(getUninterruptibly(input));
+    } catch (CancellationException e) {
+      return output.cancel(false);
+    } catch (ExecutionException e) {
+      return output.setException(e.getCause());
+    } catch (RuntimeException e) {
+      return output.setException(e);
+    } catch (Error e) {
+      return output.setException(e);
+    }
+  }
+
+  /**
+   * Class that implements {@link #firstCompletedOf}. Every input gets a
+   * listener that tries to complete this future; {@link AbstractFuture}
+   * guarantees that only the first attempt succeeds, so no further
+   * coordination between the inputs is needed.
+   */
+  private static class FirstCompletedFuture<V> extends AbstractFuture<V> {
+    void race(final ListenableFuture<? extends V> input) {
+      input.addListener(new Runnable() {
+        @Override
+        public void run() {
+          if (!isDone()) {
+            completeFrom(FirstCompletedFuture.this, input);
+          }
+        }
+      }, sameThreadExecutor());
+    }
+  }
+
+  /**
+   * Class that implements {@link #withTimeout}. Whichever of the delegate and
+   * the scheduled timeout completes this future first wins; the loser is then
+   * canceled so that neither the timer task nor the delegate outlives it.
+   */
+  private static class TimeoutFuture<V> extends AbstractFuture<V> {
+    final ListenableFuture<V> delegate;
+
+    TimeoutFuture(ListenableFuture<V> delegate) {
+      this.delegate = delegate;
+    }
+
+    void start(final long time, final TimeUnit unit,
+        ScheduledExecutorService scheduledExecutor) {
+      final Future<?> timer = scheduledExecutor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (setException(new TimeoutException(
+              "Future timed out after " + time + " " + unit))) {
+            delegate.cancel(true);
+          }
+        }
+      }, time, unit);
+
+      delegate.addListener(new Runnable() {
+        @Override
+        public void run() {
+          completeFrom(TimeoutFuture.this, delegate);
+          timer.cancel(false);
+        }
+      }, sameThreadExecutor());
+
+      addListener(new Runnable() {
+        @Override
+        public void run() {
+          if (isCancelled()) {
+            timer.cancel(false);
+          }
+        }
+      }, sameThreadExecutor());
+    }
+
+    /*
+     * Forwards cancellation with the caller's mayInterruptIfRunning. This
+     * can't be left to a listener and interruptTask(): AbstractFuture runs
+     * the listeners first, and a delegate cancelled without interruption
+     * ignores the later cancel(true).
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      delegate.cancel(mayInterruptIfRunning);
+      return true;
+    }
+  }
+
   /**
    * A checked future that uses a function to map from exceptions to the
    * appropriate checked type.
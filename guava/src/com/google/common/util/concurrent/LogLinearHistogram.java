@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative {@code long} values,
+ * striped so that threads recording concurrently mostly update different
+ * memory.
+ *
+ * <p>Values below {@code 2^SUB_BUCKET_BITS} each have their own bucket.
+ * Above that, each power-of-two range is split into {@code SUB_BUCKETS}
+ * equal buckets, so the width of the bucket holding a value is at most
+ * {@code 1 / SUB_BUCKETS} of the value. The whole range of {@code long} thus
+ * takes {@link #BUCKETS} buckets, and every stripe is one {@link
+ * AtomicLongArray} segment holding the bucket counts followed by the sum,
+ * minimum and maximum of the values it recorded. Recording a value allocates
+ * nothing.
+ */
+final class LogLinearHistogram {
+  static final int SUB_BUCKET_BITS = 4;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private static final int SUM = BUCKETS;
+  private static final int MIN = BUCKETS + 1;
+  private static final int MAX = BUCKETS + 2;
+
+  /**
+   * The length of a stripe's segment. The extra slots keep the hot buckets
+   * of neighbouring stripes on different cache lines.
+   */
+  private static final int STRIDE = BUCKETS + 16;
+
+  private final AtomicLongArray cells;
+  private final int mask;
+
+  /**
+   * @param stripes the number of stripes, which must be a power of two
+   */
+  LogLinearHistogram(int stripes) {
+    this.cells = new AtomicLongArray(stripes * STRIDE);
+    this.mask = stripes - 1;
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      cells.set(stripe * STRIDE + MIN, Long.MAX_VALUE);
+    }
+  }
+
+  /** Records {@code value}, which must not be negative. */
+  void record(long value) {
+    int base = countValue(value);
+    long min;
+    while (value < (min = cells.get(base + MIN))) {
+      if (cells.compareAndSet(base + MIN, min, value)) {
+        break;
+      }
+    }
+    long max;
+    while (value > (max = cells.get(base + MAX))) {
+      if (cells.compareAndSet(base + MAX, max, value)) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Performs the first step of {@link #record}, which counts {@code value}
+   * and adds it to the sum, and returns the offset of the stripe.
+   */
+  @VisibleForTesting int countValue(long value) {
+    int base = ((int) Thread.currentThread().getId() & mask) * STRIDE;
+    cells.incrementAndGet(base + bucketIndex(value));
+    cells.addAndGet(base + SUM, value);
+    return base;
+  }
+
+  /**
+   * Returns the sum of all stripes. Values recorded concurrently with this
+   * method may be only partly reflected in the result, but the minimum never
+   * exceeds the maximum.
+   */
+  NamedTimer.Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    long sum = 0;
+    long min = Long.MAX_VALUE;
+    long max = 0;
+    for (int base = 0; base < cells.length(); base += STRIDE) {
+      for (int i = 0; i < BUCKETS; i++) {
+        long bucketCount = cells.get(base + i);
+        counts[i] += bucketCount;
+        count += bucketCount;
+      }
+      sum += cells.get(base + SUM);
+      min = Math.min(min, cells.get(base + MIN));
+      max = Math.max(max, cells.get(base + MAX));
+    }
+    if (count == 0) {
+      return new NamedTimer.Snapshot(counts, 0, sum, 0, max);
+    }
+    // record() counts a value before updating MIN and MAX, so a value being
+    // recorded may be counted but not yet reflected in them: fall back on
+    // the bounds of the buckets that hold values.
+    int highest = BUCKETS - 1;
+    while (counts[highest] == 0) {
+      highest--;
+    }
+    max = Math.max(max, lowerBound(highest));
+    if (min == Long.MAX_VALUE) {
+      int lowest = 0;
+      while (counts[lowest] == 0) {
+        lowest++;
+      }
+      min = lowerBound(lowest);
+    }
+    return new NamedTimer.Snapshot(counts, count, sum, Math.min(min, max),
+        max);
+  }
+
+  /** Returns the index of the bucket holding {@code value}. */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value))
+        - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS)
+        + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /** Returns the smallest value held by the bucket at {@code index}. */
+  static long lowerBound(int index) {
+    int group = index >>> SUB_BUCKET_BITS;
+    long sub = index & (SUB_BUCKETS - 1);
+    return (group == 0) ? sub : (SUB_BUCKETS + sub) << (group - 1);
+  }
+
+  /** Returns the largest value held by the bucket at {@code index}. */
+  static long upperBound(int index) {
+    return (index == BUCKETS - 1) ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+  }
+}
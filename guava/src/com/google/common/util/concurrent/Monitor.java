@@ -16,6 +16,7 @@
 
 package com.google.common.util.concurrent;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.Beta;
@@ -196,7 +197,46 @@ import javax.annotation.concurrent.GuardedBy;
  *       }
  *     }
  *   }}</pre>
- * 
+ *
+ * <h2>Declaring guard dependencies</h2>
+ *
+ * <p>Whenever a thread leaves the monitor, or waits for a guard, the monitor evaluates the guards
+ * that have waiters until it finds one that is satisfied. With many guards this becomes the
+ * dominant cost of {@link #leave}. To reduce it, the state protected by the monitor may be divided
+ * into up to 32 parts, each identified by one bit of an {@code int}. A guard created with {@link
+ * Guard#Guard(Monitor, int)} declares the parts its condition reads, and a thread that modifies the
+ * protected state reports the parts it modified by calling {@link #stateChanged} before leaving.
+ * The monitor then skips the guards that cannot have been affected: <pre>   {@code
+ *
+ *   private static final int HEAD = 1 << 0;
+ *   private static final int TAIL = 1 << 1;
+ *
+ *   private final Monitor.Guard notEmpty = new Monitor.Guard(monitor, HEAD | TAIL) {
+ *     public boolean isSatisfied() {
+ *       return head != tail;
+ *     }
+ *   };
+ *
+ *   public void put(E e) throws InterruptedException {
+ *     monitor.enterWhen(notFull);
+ *     try {
+ *       items[tail] = e;
+ *       tail = (tail + 1) % items.length;
+ *       monitor.stateChanged(TAIL);
+ *     } finally {
+ *       monitor.leave();
+ *     }
+ *   }}</pre>
+ *
+ * A thread that only read the state can call {@code stateChanged(0)}. A thread that leaves without
+ * calling {@code stateChanged} is assumed to have modified all of the state, so code that never
+ * declares dependencies keeps the behavior described above. Declaring too few dependencies can
+ * cause a waiter to miss a signal, so when in doubt, declare more.
+ *
+ * <p>The methods {@link #getEntryCount}, {@link #getWaitCount} and {@link
+ * #getSpuriousWakeupCount} report how contended a monitor is and how often waiters were woken in
+ * vain.
+ *
  * @author Justin T. Sampson
  * @since 10.0
  */
@@ -221,12 +261,34 @@ public final class Monitor {
     final Monitor monitor;
     final Condition condition;
 
+    /** The parts of the monitor's state that this guard's condition reads. */
+    final int dependencies;
+
     @GuardedBy("monitor.lock")
     int waiterCount = 0;
 
+    /**
+     * Creates a guard for the given monitor whose condition may depend on any of the state
+     * protected by the monitor.
+     */
     protected Guard(Monitor monitor) {
+      this(monitor, ALL_STATE);
+    }
+
+    /**
+     * Creates a guard for the given monitor whose condition depends only on the parts of the
+     * monitor's state identified by the bits of {@code dependencies}. The monitor evaluates this
+     * guard only after a thread reports, through {@link Monitor#stateChanged}, a change to one of
+     * these parts (or leaves without reporting its changes at all).
+     *
+     * @throws IllegalArgumentException if {@code dependencies} is zero
+     * @since 12.0
+     */
+    protected Guard(Monitor monitor, int dependencies) {
+      checkArgument(dependencies != 0, "a guard must depend on some state");
       this.monitor = checkNotNull(monitor, "monitor");
       this.condition = monitor.lock.newCondition();
+      this.dependencies = dependencies;
     }
 
     /**
@@ -250,6 +312,11 @@ public final class Monitor {
 
   }
 
+  /**
+   * The value of {@link #pendingChanges} meaning that any part of the state may have changed.
+   */
+  private static final int ALL_STATE = ~0;
+
   /**
    * Whether this monitor is fair.
    */
@@ -268,6 +335,31 @@ public final class Monitor {
   @GuardedBy("lock")
   private final ArrayList<Guard> activeGuards = Lists.newArrayListWithCapacity(1);
 
+  /**
+   * The parts of the state that changed since the active guards depending on them were last all
+   * found unsatisfied. Guards that depend on none of these parts are known to be unsatisfied and
+   * need not be evaluated.
+   */
+  @GuardedBy("lock")
+  private int pendingChanges = 0;
+
+  /**
+   * Whether the occupying thread has called {@link #stateChanged} since guards were last evaluated.
+   */
+  @GuardedBy("lock")
+  private boolean changesReported = false;
+
+  /**
+   * The parts of the state reported changed by the occupying thread through {@link #stateChanged}.
+   */
+  @GuardedBy("lock")
+  private int reportedChanges = 0;
+
+  // Statistics; only written while holding the lock, but readable at any time.
+  private volatile long entryCount;
+  private volatile long waitCount;
+  private volatile long spuriousWakeupCount;
+
   /**
    * Creates a monitor with a non-fair (but fast) ordering policy. Equivalent to {@code
    * Monitor(false)}.
@@ -671,6 +763,7 @@ public final class Monitor {
       throw new IllegalMonitorStateException();
     }
     try {
+      entryCount++;
       signalConditionsOfSatisfiedGuards(null);
     } finally {
       lock.unlock();
@@ -738,6 +831,54 @@ public final class Monitor {
     return lock.hasQueuedThread(thread);
   }
 
+  /**
+   * Reports that the occupying thread has modified the parts of the state protected by this monitor
+   * identified by the bits of {@code changedState}. When the thread next leaves the monitor, or
+   * waits for a guard, only the guards that depend on the reported parts are evaluated. A thread
+   * that only read the state may call {@code stateChanged(0)} so that no guard is evaluated at all.
+   * If a thread leaves without calling this method, every guard with waiters may be evaluated.
+   *
+   * @throws IllegalMonitorStateException if the current thread does not occupy this monitor
+   * @since 12.0
+   */
+  public void stateChanged(int changedState) {
+    if (!lock.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    changesReported = true;
+    reportedChanges |= changedState;
+  }
+
+  /**
+   * Returns the number of times this monitor has been left, that is, the number of completed
+   * entries (including reentrant ones). This is a rough measure of how busy the monitor is.
+   *
+   * @since 12.0
+   */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Returns the number of times a thread has started waiting for a guard of this monitor to become
+   * satisfied.
+   *
+   * @since 12.0
+   */
+  public long getWaitCount() {
+    return waitCount;
+  }
+
+  /**
+   * Returns the number of times a waiting thread was woken up only to find its guard unsatisfied
+   * (for example because another thread got there first), and had to wait again.
+   *
+   * @since 12.0
+   */
+  public long getSpuriousWakeupCount() {
+    return spuriousWakeupCount;
+  }
+
   /**
    * Queries whether any threads are waiting for the given guard to become satisfied. Note that
    * because timeouts and interrupts may occur at any time, a {@code true} return does not guarantee
@@ -776,6 +917,14 @@ public final class Monitor {
 
   @GuardedBy("lock")
   private void signalConditionsOfSatisfiedGuards(@Nullable Guard interruptedGuard) {
+    // A thread that didn't report its changes (or an interrupted waiter passing on a signal it may
+    // have consumed) could have affected any guard.
+    pendingChanges |= (!changesReported || interruptedGuard != null)
+        ? ALL_STATE
+        : reportedChanges;
+    changesReported = false;
+    reportedChanges = 0;
+    final int changes = pendingChanges;
     final ArrayList<Guard> guards = this.activeGuards;
     final int guardCount = guards.size();
     try {
@@ -786,11 +935,19 @@ public final class Monitor {
           // paying attention to the guard being satisfied, so find another waiter on another guard.
           continue;
         }
+        if ((guard.dependencies & changes) == 0) {
+          // Nothing this guard reads has changed since it was last found unsatisfied.
+          continue;
+        }
         if (guard.isSatisfied()) {
+          // Keep pendingChanges: the guards after this one have not been evaluated yet, and will be
+          // when the signaled thread leaves.
           guard.condition.signal();
           return;
         }
       }
+      // Every guard affected by the pending changes is unsatisfied.
+      pendingChanges = 0;
     } catch (Throwable throwable) {
       for (int i = 0; i < guardCount; i++) {
         Guard guard = guards.get(i);
@@ -800,8 +957,38 @@ public final class Monitor {
     }
   }
   
+  /**
+   * Re-evaluates the guard of a waiter that has just woken up, counting the wakeup as spurious if
+   * the guard turns out to be unsatisfied.
+   */
+  @GuardedBy("lock")
+  private boolean isSatisfiedAfterWakeup(Guard guard) {
+    return isSatisfiedAfterWakeup(guard, 1L);
+  }
+
+  /**
+   * Like {@link #isSatisfiedAfterWakeup(Guard)}, but for timed waits: a wakeup caused by the wait
+   * timing out ({@code remainingNanos <= 0}) is not counted as spurious.
+   */
+  @GuardedBy("lock")
+  private boolean isSatisfiedAfterWakeup(Guard guard, long remainingNanos) {
+    if (guard.isSatisfied()) {
+      return true;
+    }
+    if (remainingNanos > 0) {
+      spuriousWakeupCount++;
+    }
+    return false;
+  }
+
   @GuardedBy("lock")
   private void incrementWaiters(Guard guard) {
+    // The waiting thread gives up the monitor, so its reported changes must not be attributed to
+    // the next occupant.
+    pendingChanges |= reportedChanges;
+    changesReported = false;
+    reportedChanges = 0;
+    waitCount++;
     int waiters = guard.waiterCount++;
     if (waiters == 0) {
       activeGuards.add(guard);
@@ -838,7 +1025,7 @@ public final class Monitor {
             }
             throw interrupt;
           }
-        } while (!guard.isSatisfied());
+        } while (!isSatisfiedAfterWakeup(guard));
       } finally {
         decrementWaiters(guard);
       }
@@ -856,7 +1043,7 @@ public final class Monitor {
         final Condition condition = guard.condition;
         do {
           condition.awaitUninterruptibly();
-        } while (!guard.isSatisfied());
+        } while (!isSatisfiedAfterWakeup(guard));
       } finally {
         decrementWaiters(guard);
       }
@@ -888,7 +1075,7 @@ public final class Monitor {
             }
             throw interrupt;
           }
-        } while (!guard.isSatisfied());
+        } while (!isSatisfiedAfterWakeup(guard, remainingNanos));
       } finally {
         decrementWaiters(guard);
       }
@@ -926,7 +1113,7 @@ public final class Monitor {
               interruptIgnored = true;
               remainingNanos = (timeoutNanos - (System.nanoTime() - startNanos));
             }
-          } while (!guard.isSatisfied());
+          } while (!isSatisfiedAfterWakeup(guard, remainingNanos));
         } finally {
           decrementWaiters(guard);
         }
@@ -401,6 +401,40 @@ public final class MoreExecutors {
         : new ScheduledListeningDecorator(delegate);
   }
 
+  /**
+   * Creates a {@link WorkStealingExecutorService} with the given number of
+   * worker threads, created by {@link Executors#defaultThreadFactory}. Each
+   * worker has its own task queue; tasks submitted from a worker thread run on
+   * that worker unless an idle worker steals them first.
+   *
+   * @param parallelism the number of worker threads
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   * @since 12.0
+   */
+  @Beta
+  public static WorkStealingExecutorService newWorkStealingExecutorService(
+      int parallelism) {
+    return newWorkStealingExecutorService(
+        parallelism, Executors.defaultThreadFactory());
+  }
+
+  /**
+   * Creates a {@link WorkStealingExecutorService} with the given number of
+   * worker threads, created by {@code threadFactory}. Each worker has its own
+   * task queue; tasks submitted from a worker thread run on that worker unless
+   * an idle worker steals them first.
+   *
+   * @param parallelism the number of worker threads
+   * @param threadFactory the factory used to create the worker threads
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   * @since 12.0
+   */
+  @Beta
+  public static WorkStealingExecutorService newWorkStealingExecutorService(
+      int parallelism, ThreadFactory threadFactory) {
+    return new WorkStealingExecutorService(parallelism, threadFactory);
+  }
+
   private static class ListeningDecorator
       extends AbstractListeningExecutorService {
     final ExecutorService delegate;
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe timer that records the durations of an operation into a
+ * histogram. Unlike {@link com.google.common.base.Stopwatch}, a single
+ * instance times any number of concurrent operations, so it can live in a
+ * static field and instrument a hot path permanently:
+ *
+ * <pre>   {@code
+ *
+ *   private static final NamedTimer PARSE_TIMER = REGISTRY.timer("parse");
+ *
+ *   long start = PARSE_TIMER.start();
+ *   try {
+ *     parse(input);
+ *   } finally {
+ *     PARSE_TIMER.stop(start);
+ *   }}</pre>
+ *
+ * <p>{@link #start} and {@link #stop} read the timer's {@link Ticker} and
+ * allocate nothing. Durations are recorded into a log-linear histogram with
+ * a fixed number of buckets, each at most 1/16 as wide as the durations it
+ * holds, so percentiles are accurate to within about 6%. The histogram is
+ * striped by thread, so that concurrent recordings rarely contend, and its
+ * memory use is fixed: about 8 KB per stripe, with at most four stripes.
+ *
+ * <p>Timers are obtained from a {@link TimerRegistry}.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class NamedTimer {
+  private static final int MAX_STRIPES = 4;
+
+  private final String name;
+  private final Ticker ticker;
+  private final LogLinearHistogram histogram;
+
+  NamedTimer(String name, Ticker ticker) {
+    this.name = checkNotNull(name);
+    this.ticker = checkNotNull(ticker);
+    int processors = Runtime.getRuntime().availableProcessors();
+    this.histogram = new LogLinearHistogram(
+        Math.min(MAX_STRIPES, Integer.highestOneBit(processors)));
+  }
+
+  /** Returns the name of this timer. */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the current reading of this timer's ticker, to be passed to
+   * {@link #stop} when the timed operation completes.
+   */
+  public long start() {
+    return ticker.read();
+  }
+
+  /**
+   * Records the time elapsed since {@code startTick}, a value returned by
+   * {@link #start}, and returns it in nanoseconds.
+   */
+  public long stop(long startTick) {
+    long elapsedNanos = Math.max(0, ticker.read() - startTick);
+    histogram.record(elapsedNanos);
+    return elapsedNanos;
+  }
+
+  /**
+   * Records a duration measured by other means.
+   *
+   * @throws IllegalArgumentException if {@code duration} is negative
+   */
+  public void record(long duration, TimeUnit unit) {
+    checkArgument(duration >= 0, "duration must not be negative: %s",
+        duration);
+    histogram.record(unit.toNanos(duration));
+  }
+
+  /**
+   * Returns the statistics of the durations recorded so far. Durations
+   * recorded while this method runs may be only partly reflected.
+   */
+  public Snapshot snapshot() {
+    return histogram.snapshot();
+  }
+
+  @Override public String toString() {
+    return name + ": " + snapshot();
+  }
+
+  /**
+   * The statistics of the durations recorded by a {@link NamedTimer} up to
+   * some point in time. Percentiles are estimated from the histogram, and
+   * the other statistics are exact.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long minNanos;
+    private final long maxNanos;
+
+    Snapshot(long[] counts, long count, long totalNanos, long minNanos,
+        long maxNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.minNanos = minNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /** Returns the number of recorded durations. */
+    public long count() {
+      return count;
+    }
+
+    /** Returns the sum of the recorded durations. */
+    public long total(TimeUnit unit) {
+      return unit.convert(totalNanos, NANOSECONDS);
+    }
+
+    /** Returns the shortest recorded duration, or 0 if there is none. */
+    public long min(TimeUnit unit) {
+      return unit.convert(minNanos, NANOSECONDS);
+    }
+
+    /** Returns the longest recorded duration, or 0 if there is none. */
+    public long max(TimeUnit unit) {
+      return unit.convert(maxNanos, NANOSECONDS);
+    }
+
+    /** Returns the mean recorded duration, or 0 if there is none. */
+    public long mean(TimeUnit unit) {
+      checkNotNull(unit);
+      return (count == 0) ? 0 : unit.convert(totalNanos / count, NANOSECONDS);
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the recorded durations:
+     * the upper bound of the histogram bucket holding it, capped to the
+     * longest recorded duration. Returns 0 if there is no recorded duration.
+     *
+     * @param percent the percentile, for example {@code 99.9}
+     * @throws IllegalArgumentException if {@code percent} is not between 0
+     *     and 100
+     */
+    public long percentile(double percent, TimeUnit unit) {
+      checkArgument(percent >= 0 && percent <= 100,
+          "percent must be between 0 and 100: %s", percent);
+      checkNotNull(unit);
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+      long seen = 0;
+      int index = 0;
+      while ((seen += counts[index]) < rank) {
+        index++;
+      }
+      long estimate = Math.min(LogLinearHistogram.upperBound(index), maxNanos);
+      return unit.convert(Math.max(estimate, minNanos), NANOSECONDS);
+    }
+
+    @Override public String toString() {
+      return Objects.toStringHelper(this)
+          .add("count", count)
+          .add("meanNanos", mean(NANOSECONDS))
+          .add("p50Nanos", percentile(50, NANOSECONDS))
+          .add("p99Nanos", percentile(99, NANOSECONDS))
+          .add("maxNanos", maxNanos)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,628 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A rate limiter. Conceptually, a rate limiter distributes permits at a
+ * configurable rate. Each {@link #acquire()} blocks if necessary until a
+ * permit is available, and then takes it. Once acquired, permits need not be
+ * released.
+ *
+ * <p>Rate limiters are often used to restrict the rate at which some physical
+ * or logical resource is accessed. This is in contrast to {@link
+ * java.util.concurrent.Semaphore}, which restricts the number of concurrent
+ * accesses instead of the rate, and to {@link TimeLimiter}, which bounds the
+ * duration of a single call.
+ *
+ * <p>For example, to submit no more than two tasks per second: <pre>   {@code
+ *   final RateLimiter rateLimiter = RateLimiter.create(2.0);
+ *   void submitTasks(List<Runnable> tasks, Executor executor) {
+ *     for (Runnable task : tasks) {
+ *       rateLimiter.acquire(); // may wait
+ *       executor.execute(task);
+ *     }
+ *   }}</pre>
+ *
+ * <p>The rate limiter behaves like a token bucket: unused permits accumulate
+ * while the limiter is idle, up to a limit, and are handed out before new
+ * ones. Limiters created by {@link #create(double)} hand out stored permits
+ * immediately, which allows short bursts after an idle period. Limiters
+ * created by {@link #create(double, long, TimeUnit)} instead treat stored
+ * permits as "cold": after an idle period the rate starts low and ramps up to
+ * the stable rate over the warmup period, which suits resources such as
+ * caches that need time to warm up.
+ *
+ * <p>Requests are never refused because too many permits were asked for:
+ * the cost of a request is paid by the <i>next</i> request. An expensive
+ * request on an idle limiter is therefore granted immediately, and whoever
+ * comes next waits for it.
+ *
+ * <p>Callers that must not block can use {@link #tryAcquire()}, which
+ * succeeds only if the permit is available without waiting, or {@link
+ * #acquireAsync(int, ScheduledExecutorService)}, which reserves the permits
+ * right away and returns a future that completes when they become available.
+ *
+ * @since 12.0
+ */
+@Beta
+@ThreadSafe
+public abstract class RateLimiter {
+  /**
+   * Creates a {@code RateLimiter} with the specified stable throughput, given
+   * as "permits per second" (commonly referred to as <i>QPS</i>, queries per
+   * second).
+   *
+   * <p>The returned {@code RateLimiter} ensures that on average no more than
+   * {@code permitsPerSecond} are issued during any given second, with
+   * sustained requests being smoothly spread over each second. When the
+   * incoming request rate exceeds {@code permitsPerSecond} the rate limiter
+   * will release one permit every {@code (1.0 / permitsPerSecond)} seconds.
+   * When the rate limiter is unused, bursts of up to {@code permitsPerSecond}
+   * permits will be allowed, with subsequent requests being smoothly limited
+   * at the stable rate of {@code permitsPerSecond}.
+   *
+   * @param permitsPerSecond the rate of the returned {@code RateLimiter},
+   *     measured in how many permits become available per second
+   * @throws IllegalArgumentException if {@code permitsPerSecond} is not
+   *     positive
+   */
+  public static RateLimiter create(double permitsPerSecond) {
+    return create(SleepingTicker.SYSTEM_TICKER, permitsPerSecond);
+  }
+
+  /**
+   * Creates a {@code RateLimiter} like {@link #create(double)}, which measures
+   * time and waits for permits with {@code ticker} instead of the system
+   * clock; for example, a simulated clock in tests.
+   *
+   * @throws IllegalArgumentException if {@code permitsPerSecond} is not
+   *     positive
+   */
+  public static RateLimiter create(
+      SleepingTicker ticker, double permitsPerSecond) {
+    RateLimiter rateLimiter = new Bursty(ticker, 1.0 /* maxBurstSeconds */);
+    rateLimiter.setRate(permitsPerSecond);
+    return rateLimiter;
+  }
+
+  /**
+   * Creates a {@code RateLimiter} with the specified stable throughput, given
+   * as "permits per second", and a <i>warmup period</i>, during which the
+   * {@code RateLimiter} smoothly ramps up its rate, until it reaches its
+   * maximum rate at the end of the period (as long as there are enough
+   * requests to saturate it). Similarly, if the {@code RateLimiter} is left
+   * unused for a duration of {@code warmupPeriod}, it will gradually return to
+   * its "cold" state, i.e. it will go through the same warming up process as
+   * when it was first created.
+   *
+   * <p>The returned {@code RateLimiter} is intended for cases where the
+   * resource that actually fulfills the requests (e.g., a remote server) needs
+   * "warmup" time, rather than being immediately accessed at the stable
+   * (maximum) rate.
+   *
+   * <p>The returned {@code RateLimiter} starts in a "cold" state (i.e. the
+   * warmup period will follow), and if it is left unused for long enough, it
+   * will return to that state.
+   *
+   * @param permitsPerSecond the rate of the returned {@code RateLimiter},
+   *     measured in how many permits become available per second
+   * @param warmupPeriod the duration of the period where the {@code
+   *     RateLimiter} ramps up its rate, before reaching its stable (maximum)
+   *     rate
+   * @param unit the time unit of the warmupPeriod argument
+   * @throws IllegalArgumentException if {@code permitsPerSecond} is not
+   *     positive or {@code warmupPeriod} is negative
+   */
+  public static RateLimiter create(
+      double permitsPerSecond, long warmupPeriod, TimeUnit unit) {
+    return create(
+        SleepingTicker.SYSTEM_TICKER, permitsPerSecond, warmupPeriod, unit);
+  }
+
+  /**
+   * Creates a {@code RateLimiter} like {@link #create(double, long,
+   * TimeUnit)}, which measures time and waits for permits with {@code ticker}
+   * instead of the system clock.
+   *
+   * @throws IllegalArgumentException if {@code permitsPerSecond} is not
+   *     positive or {@code warmupPeriod} is negative
+   */
+  public static RateLimiter create(SleepingTicker ticker,
+      double permitsPerSecond, long warmupPeriod, TimeUnit unit) {
+    checkArgument(warmupPeriod >= 0,
+        "warmupPeriod must not be negative: %s", warmupPeriod);
+    RateLimiter rateLimiter = new WarmingUp(ticker, warmupPeriod, unit);
+    rateLimiter.setRate(permitsPerSecond);
+    return rateLimiter;
+  }
+
+  /**
+   * The underlying timer; used both to measure elapsed time and sleep as
+   * necessary. A separate object to facilitate testing.
+   */
+  private final SleepingTicker ticker;
+
+  /**
+   * The timestamp when the RateLimiter was created; used to avoid possible
+   * overflow/time-wrapping errors.
+   */
+  private final long offsetNanos;
+
+  /** The currently stored permits. */
+  double storedPermits;
+
+  /** The maximum number of stored permits. */
+  double maxPermits;
+
+  /**
+   * The interval between two unit requests, at our stable rate. E.g., a
+   * stable rate of 5 permits per second has a stable interval of 200ms.
+   */
+  volatile double stableIntervalMicros;
+
+  private final Object mutex = new Object();
+
+  /**
+   * The time when the next request (no matter its size) will be granted.
+   * After granting a request, this is pushed further in the future. Large
+   * requests push this further than small requests.
+   */
+  private long nextFreeTicketMicros = 0L;
+
+  private RateLimiter(SleepingTicker ticker) {
+    this.ticker = checkNotNull(ticker);
+    this.offsetNanos = ticker.read();
+  }
+
+  /**
+   * Updates the stable rate of this {@code RateLimiter}, that is, the {@code
+   * permitsPerSecond} argument provided in the factory method that constructed
+   * the {@code RateLimiter}. Currently throttled threads will <b>not</b> be
+   * awakened as a result of this invocation, thus they do not observe the new
+   * rate; only subsequent requests will.
+   *
+   * <p>Note though that, since each request repays (by waiting, if necessary)
+   * the cost of the <i>previous</i> request, this means that the very next
+   * request after an invocation to {@code setRate} will not be affected by the
+   * new rate; it will pay the cost of the previous request, which is in terms
+   * of the previous rate.
+   *
+   * <p>The behavior of the {@code RateLimiter} is not modified in any other
+   * way, e.g. if the {@code RateLimiter} was configured with a warmup period
+   * of 20 seconds, it still has a warmup period of 20 seconds after this
+   * method invocation.
+   *
+   * @param permitsPerSecond the new stable rate of this {@code RateLimiter}
+   * @throws IllegalArgumentException if {@code permitsPerSecond} is not
+   *     positive
+   */
+  public final void setRate(double permitsPerSecond) {
+    checkArgument(permitsPerSecond > 0.0 && !Double.isNaN(permitsPerSecond),
+        "rate must be positive: %s", permitsPerSecond);
+    synchronized (mutex) {
+      resync(readSafeMicros());
+      double stableIntervalMicros = SECONDS.toMicros(1L) / permitsPerSecond;
+      this.stableIntervalMicros = stableIntervalMicros;
+      doSetRate(permitsPerSecond, stableIntervalMicros);
+    }
+  }
+
+  abstract void doSetRate(double permitsPerSecond, double stableIntervalMicros);
+
+  /**
+   * Returns the stable rate (as {@code permits per seconds}) with which this
+   * {@code RateLimiter} is configured with. The initial value of this is the
+   * same as the {@code permitsPerSecond} argument passed in the factory method
+   * that produced this {@code RateLimiter}, and it is only updated after
+   * invocations to {@linkplain #setRate}.
+   */
+  public final double getRate() {
+    return SECONDS.toMicros(1L) / stableIntervalMicros;
+  }
+
+  /**
+   * Acquires a single permit from this {@code RateLimiter}, blocking until the
+   * request can be granted.
+   *
+   * <p>This method is equivalent to {@code acquire(1)}.
+   *
+   * @return the time spent sleeping to enforce rate, in seconds; 0.0 if not
+   *     rate-limited
+   */
+  public double acquire() {
+    return acquire(1);
+  }
+
+  /**
+   * Acquires the given number of permits from this {@code RateLimiter},
+   * blocking until the request can be granted.
+   *
+   * @param permits the number of permits to acquire
+   * @return the time spent sleeping to enforce rate, in seconds; 0.0 if not
+   *     rate-limited
+   * @throws IllegalArgumentException if {@code permits} is not positive
+   */
+  public double acquire(int permits) {
+    long microsToWait = reserve(permits);
+    ticker.sleepMicrosUninterruptibly(microsToWait);
+    return microsToSeconds(microsToWait);
+  }
+
+  /**
+   * Acquires the given number of permits from this {@code RateLimiter} without
+   * blocking the calling thread. The permits are reserved immediately, exactly
+   * as {@link #acquire(int)} would reserve them, and the returned future
+   * completes once they become available.
+   *
+   * <p>If the permits are available right away, the returned future is
+   * already done. Otherwise a task that completes it is scheduled on {@code
+   * executor} after the required delay. The value of the future is the delay
+   * in seconds, as returned by {@code acquire}.
+   *
+   * <p>Canceling the returned future does not give back the reserved permits.
+   *
+   * @param permits the number of permits to acquire
+   * @param executor the executor used to complete the returned future
+   * @throws IllegalArgumentException if {@code permits} is not positive
+   * @throws RejectedExecutionException if {@code executor} rejects the task
+   *     completing the future, in which case the permits are given back
+   */
+  public ListenableFuture<Double> acquireAsync(
+      int permits, ScheduledExecutorService executor) {
+    checkNotNull(executor);
+    checkPermits(permits);
+    long microsToWait;
+    long reservedMicros;
+    double storedPermitsSpent;
+    synchronized (mutex) {
+      long nowMicros = readSafeMicros();
+      resync(nowMicros);
+      long nextFreeTicketBefore = nextFreeTicketMicros;
+      double storedPermitsBefore = storedPermits;
+      microsToWait = reserveNextTicket(permits, nowMicros);
+      reservedMicros = nextFreeTicketMicros - nextFreeTicketBefore;
+      storedPermitsSpent = storedPermitsBefore - storedPermits;
+    }
+    final Double seconds = microsToSeconds(microsToWait);
+    if (microsToWait <= 0) {
+      return Futures.immediateFuture(seconds);
+    }
+    ListenableFutureTask<Double> task =
+        ListenableFutureTask.create(new Callable<Double>() {
+          @Override public Double call() {
+            return seconds;
+          }
+        });
+    try {
+      executor.schedule(task, microsToWait, MICROSECONDS);
+    } catch (RejectedExecutionException e) {
+      synchronized (mutex) {
+        // Undo the reservation; later ones keep the waits they were given.
+        nextFreeTicketMicros -= reservedMicros;
+        storedPermits =
+            Math.min(maxPermits, storedPermits + storedPermitsSpent);
+      }
+      throw e;
+    }
+    return task;
+  }
+
+  /**
+   * Acquires a permit from this {@code RateLimiter} if it can be obtained
+   * without exceeding the specified {@code timeout}, or returns {@code false}
+   * immediately (without waiting) if the permit would not have been granted
+   * before the timeout expired.
+   *
+   * <p>This method is equivalent to {@code tryAcquire(1, timeout, unit)}.
+   *
+   * @param timeout the maximum time to wait for the permit
+   * @param unit the time unit of the timeout argument
+   * @return {@code true} if the permit was acquired, {@code false} otherwise
+   */
+  public boolean tryAcquire(long timeout, TimeUnit unit) {
+    return tryAcquire(1, timeout, unit);
+  }
+
+  /**
+   * Acquires permits from this {@link RateLimiter} if it can be acquired
+   * immediately without delay.
+   *
+   * <p>This method is equivalent to {@code tryAcquire(permits, 0, anyUnit)}.
+   *
+   * @param permits the number of permits to acquire
+   * @return {@code true} if the permits were acquired, {@code false} otherwise
+   * @throws IllegalArgumentException if {@code permits} is not positive
+   */
+  public boolean tryAcquire(int permits) {
+    return tryAcquire(permits, 0, MICROSECONDS);
+  }
+
+  /**
+   * Acquires a permit from this {@link RateLimiter} if it can be acquired
+   * immediately without delay.
+   *
+   * <p>This method is equivalent to {@code tryAcquire(1)}.
+   *
+   * @return {@code true} if the permit was acquired, {@code false} otherwise
+   */
+  public boolean tryAcquire() {
+    return tryAcquire(1, 0, MICROSECONDS);
+  }
+
+  /**
+   * Acquires the given number of permits from this {@code RateLimiter} if it
+   * can be obtained without exceeding the specified {@code timeout}, or
+   * returns {@code false} immediately (without waiting) if the permits would
+   * not have been granted before the timeout expired.
+   *
+   * @param permits the number of permits to acquire
+   * @param timeout the maximum time to wait for the permits
+   * @param unit the time unit of the timeout argument
+   * @return {@code true} if the permits were acquired, {@code false} otherwise
+   * @throws IllegalArgumentException if {@code permits} is not positive
+   */
+  public boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+    // A negative timeout means "don't wait"
+    long timeoutMicros = Math.max(unit.toMicros(timeout), 0);
+    checkPermits(permits);
+    long microsToWait;
+    synchronized (mutex) {
+      long nowMicros = readSafeMicros();
+      // Subtract rather than add, so that huge timeouts can't overflow
+      if (nextFreeTicketMicros - timeoutMicros > nowMicros) {
+        return false;
+      } else {
+        microsToWait = reserveNextTicket(permits, nowMicros);
+      }
+    }
+    ticker.sleepMicrosUninterruptibly(microsToWait);
+    return true;
+  }
+
+  private long reserve(int permits) {
+    checkPermits(permits);
+    synchronized (mutex) {
+      return reserveNextTicket(permits, readSafeMicros());
+    }
+  }
+
+  private static void checkPermits(int permits) {
+    checkArgument(permits > 0,
+        "Requested permits must be positive: %s", permits);
+  }
+
+  /**
+   * Reserves next ticket and returns the wait time that the caller must wait
+   * for.
+   */
+  private long reserveNextTicket(double requiredPermits, long nowMicros) {
+    resync(nowMicros);
+    long microsToNextFreeTicket = nextFreeTicketMicros - nowMicros;
+    double storedPermitsToSpend = Math.min(requiredPermits, this.storedPermits);
+    double freshPermits = requiredPermits - storedPermitsToSpend;
+
+    long waitMicros = storedPermitsToWaitTime(this.storedPermits,
+        storedPermitsToSpend) + (long) (freshPermits * stableIntervalMicros);
+
+    this.nextFreeTicketMicros = nextFreeTicketMicros + waitMicros;
+    this.storedPermits -= storedPermitsToSpend;
+    return microsToNextFreeTicket;
+  }
+
+  /**
+   * Translates a specified portion of our currently stored permits which we
+   * want to spend/acquire, into a throttling time. Conceptually, this
+   * evaluates the integral of the underlying function we use, for the range of
+   * [(storedPermits - permitsToTake), storedPermits].
+   *
+   * <p>This always holds: {@code 0 <= permitsToTake <= storedPermits}
+   */
+  abstract long storedPermitsToWaitTime(
+      double storedPermits, double permitsToTake);
+
+  private void resync(long nowMicros) {
+    // if nextFreeTicket is in the past, resync to now
+    if (nowMicros > nextFreeTicketMicros) {
+      storedPermits = Math.min(maxPermits,
+          storedPermits
+              + (nowMicros - nextFreeTicketMicros) / stableIntervalMicros);
+      nextFreeTicketMicros = nowMicros;
+    }
+  }
+
+  private long readSafeMicros() {
+    return NANOSECONDS.toMicros(ticker.read() - offsetNanos);
+  }
+
+  private static double microsToSeconds(long micros) {
+    return 1.0 * micros / SECONDS.toMicros(1L);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RateLimiter[stableRate=%3.1fqps]", getRate());
+  }
+
+  /**
+   * This implements a "bursty" RateLimiter, where storedPermits are
+   * translated to zero throttling. The maximum number of permits that can be
+   * saved (when the RateLimiter is unused) is defined in terms of time, in
+   * this sense: if a RateLimiter is 2qps, and this time is specified as 10
+   * seconds, we can save up to 2 * 10 = 20 permits.
+   */
+  private static class Bursty extends RateLimiter {
+    /** The work (permits) of how many seconds can be saved up if this
+     * RateLimiter is unused? */
+    final double maxBurstSeconds;
+
+    Bursty(SleepingTicker ticker, double maxBurstSeconds) {
+      super(ticker);
+      this.maxBurstSeconds = maxBurstSeconds;
+    }
+
+    @Override
+    void doSetRate(double permitsPerSecond, double stableIntervalMicros) {
+      double oldMaxPermits = this.maxPermits;
+      maxPermits = maxBurstSeconds * permitsPerSecond;
+      storedPermits = (oldMaxPermits == 0.0)
+          ? 0.0 // initial state
+          : storedPermits * maxPermits / oldMaxPermits;
+    }
+
+    @Override
+    long storedPermitsToWaitTime(double storedPermits, double permitsToTake) {
+      return 0L;
+    }
+  }
+
+  /**
+   * This implements a RateLimiter whose stored permits are "cold": the
+   * throttling time of a stored permit decreases linearly as permits are used
+   * up, from three times the stable interval when the limiter is fully cold
+   * down to the stable interval once half of the stored permits have been
+   * spent. Spending the upper half of the stored permits from a fully cold
+   * state takes exactly the warmup period.
+   *
+   * <pre>
+   *          ^ throttling
+   *          |
+   *    3*stable +                  /
+   *    interval |                 /.
+   *     (cold)  |                / .
+   *             |               /  .   <-- "warmup period" is the area of
+   *             |              /   .       the trapezoid between halfPermits
+   *             |             /    .       and maxPermits
+   *             |            /     .
+   *             |           /      .
+   *             |          /       .
+   *      stable +----------+       .   <-- area of the rectangle is half
+   *    interval |          .       .       the warmup period
+   *             |          .       .
+   *             |          .       .
+   *           0 +----------+-------+--------------> storedPermits
+   *             0 halfPermits maxPermits
+   * </pre>
+   */
+  private static class WarmingUp extends RateLimiter {
+    final long warmupPeriodMicros;
+
+    /**
+     * The slope of the line from the stable interval (when permits == 0), to
+     * the cold interval (when permits == maxPermits)
+     */
+    private double slope;
+    private double halfPermits;
+
+    WarmingUp(SleepingTicker ticker, long warmupPeriod, TimeUnit timeUnit) {
+      super(ticker);
+      this.warmupPeriodMicros = timeUnit.toMicros(warmupPeriod);
+    }
+
+    @Override
+    void doSetRate(double permitsPerSecond, double stableIntervalMicros) {
+      double oldMaxPermits = maxPermits;
+      maxPermits = warmupPeriodMicros / stableIntervalMicros;
+      halfPermits = maxPermits / 2.0;
+      // Stable interval is x, cold is 3x, so on average it's 2x. Double the
+      // time -> halve the rate
+      double coldIntervalMicros = stableIntervalMicros * 3.0;
+      slope = (halfPermits == 0.0)
+          ? 0.0 // no warmup period
+          : (coldIntervalMicros - stableIntervalMicros) / halfPermits;
+      storedPermits = (oldMaxPermits == 0.0)
+          ? maxPermits // initial state is cold
+          : storedPermits * maxPermits / oldMaxPermits;
+    }
+
+    @Override
+    long storedPermitsToWaitTime(double storedPermits, double permitsToTake) {
+      double availablePermitsAboveHalf = storedPermits - halfPermits;
+      long micros = 0;
+      // measuring the integral on the right part of the function (the
+      // climbing line)
+      if (availablePermitsAboveHalf > 0.0) {
+        double permitsAboveHalfToTake =
+            Math.min(availablePermitsAboveHalf, permitsToTake);
+        micros = (long) (permitsAboveHalfToTake
+            * (permitsToTime(availablePermitsAboveHalf)
+                + permitsToTime(
+                    availablePermitsAboveHalf - permitsAboveHalfToTake))
+            / 2.0);
+        permitsToTake -= permitsAboveHalfToTake;
+      }
+      // measuring the integral on the left part of the function (the
+      // horizontal line)
+      micros += (long) (stableIntervalMicros * permitsToTake);
+      return micros;
+    }
+
+    private double permitsToTime(double permits) {
+      return stableIntervalMicros + permits * slope;
+    }
+  }
+
+  /**
+   * A {@link Ticker} that can also put the calling thread to sleep. A rate
+   * limiter measures time and waits through the same object, so that both can
+   * be replaced, for example by a simulated clock in tests; see {@link
+   * RateLimiter#create(SleepingTicker, double)}.
+   *
+   * @since 12.0
+   */
+  @Beta
+  public abstract static class SleepingTicker extends Ticker {
+    /** Constructor for use by subclasses. */
+    protected SleepingTicker() {}
+
+    /**
+     * Sleeps for {@code micros} microseconds of this ticker's time, or
+     * returns immediately if {@code micros} is not positive, without being
+     * interrupted.
+     */
+    public abstract void sleepMicrosUninterruptibly(long micros);
+
+    static final SleepingTicker SYSTEM_TICKER = new SleepingTicker() {
+      @Override
+      public long read() {
+        return Ticker.systemTicker().read();
+      }
+
+      @Override
+      public void sleepMicrosUninterruptibly(long micros) {
+        if (micros > 0) {
+          Uninterruptibles.sleepUninterruptibly(micros, MICROSECONDS);
+        }
+      }
+    };
+  }
+}
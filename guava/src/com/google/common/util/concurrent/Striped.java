@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.MapMaker;
+import com.google.common.math.IntMath;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A striped {@code Lock/Semaphore/ReadWriteLock}. This offers the underlying
+ * lock striping similar to that of {@code ConcurrentHashMap} in a reusable
+ * form, and extends it for semaphores and read-write locks. Conceptually, lock
+ * striping is the technique of dividing a lock into many <i>stripes</i>,
+ * increasing the granularity of a single lock and allowing independent
+ * operations to lock different stripes and proceed concurrently, instead of
+ * creating contention for a single lock.
+ *
+ * <p>The guarantee provided by this class is that equal keys lead to the same
+ * lock (or semaphore), i.e. {@code if (key1.equals(key2))} then {@code
+ * striped.get(key1) == striped.get(key2)} (assuming {@link Object#hashCode()}
+ * is correctly implemented for the keys). Note that if {@code key1} is
+ * <strong>not</strong> equal to {@code key2}, it is <strong>not</strong>
+ * guaranteed that {@code striped.get(key1) != striped.get(key2)}; the
+ * elements might nevertheless be mapped to the same lock. The lower the
+ * number of stripes, the higher the probability of this happening.
+ *
+ * <p>There are two flavors of this class: eager and lazy. Eager stripes
+ * ({@link #lock(int)}, {@link #semaphore(int, int)}, {@link
+ * #readWriteLock(int)}) are allocated up front, and padded to make it less
+ * likely that neighboring stripes share a cache line. Lazy stripes ({@link
+ * #lazyWeakLock(int)} etc.) are created on first use and held through weak
+ * references, so they are garbage collected when no thread is using them;
+ * they suit cases where the number of stripes is large compared to the number
+ * of keys in use.
+ *
+ * <p>Prior to this class, one might be tempted to use {@code Map<K, Lock>},
+ * where {@code K} represents the task. This maximizes concurrency by having
+ * each unique key mapped to a unique lock, but also maximizes memory
+ * footprint. On the other extreme, one could use a single lock for all tasks,
+ * which minimizes memory footprint but also minimizes concurrency. Instead of
+ * choosing either of these extremes, {@code Striped} allows the user to trade
+ * between required concurrency and memory footprint. For example, if a set of
+ * tasks are CPU-bound, one could easily create a very compact {@code
+ * Striped<Lock>} of {@code availableProcessors() * 4} stripes, instead of
+ * possibly thousands of locks which could be created in a {@code Map<K, Lock>}
+ * structure.
+ *
+ * @param <L> the type of the lock (or semaphore) held by each stripe
+ * @since 12.0
+ */
+@Beta
+public abstract class Striped<L> {
+  private Striped() {}
+
+  /**
+   * Returns the stripe that corresponds to the passed key. It is always
+   * guaranteed that if {@code key1.equals(key2)}, then {@code get(key1) ==
+   * get(key2)}.
+   *
+   * @param key an arbitrary, non-null key
+   * @return the stripe that the passed key corresponds to
+   */
+  public abstract L get(Object key);
+
+  /**
+   * Returns the stripe at the specified index. Valid indexes are 0,
+   * inclusively, to {@code size()}, exclusively.
+   *
+   * @param index the index of the stripe to return; must be in {@code
+   *     [0...size())}
+   * @return the stripe at the specified index
+   */
+  public abstract L getAt(int index);
+
+  /**
+   * Returns the index to which the given key is mapped, so that
+   * getAt(indexFor(key)) == get(key).
+   */
+  abstract int indexFor(Object key);
+
+  /**
+   * Returns the total number of stripes in this instance.
+   */
+  public abstract int size();
+
+  /**
+   * Returns the stripes that correspond to the passed objects, in ascending (as
+   * per {@link #getAt(int)}) order. Thus, threads that use the stripes in the
+   * order returned by this method are guaranteed to not deadlock each other.
+   *
+   * <p>To hold the stripes of several keys at once, acquire them in iteration
+   * order and release them when done, for example: <pre>   {@code
+   *
+   *   Iterable<Lock> locks = striped.bulkGet(keys);
+   *   List<Lock> locked = Lists.newArrayList();
+   *   try {
+   *     for (Lock lock : locks) {
+   *       lock.lock();
+   *       locked.add(lock);
+   *     }
+   *     updateAll(keys);
+   *   } finally {
+   *     for (Lock lock : Lists.reverse(locked)) {
+   *       lock.unlock();
+   *     }
+   *   }}</pre>
+   *
+   * Acquiring the stripes in any other order, or acquiring stripes of other
+   * keys meanwhile, may deadlock.
+   *
+   * <p>It should be noted that using a {@code Striped<L>} with relatively few
+   * stripes, and {@code bulkGet(keys)} with a relative large number of keys can
+   * cause an excessive number of shared stripes (much like the birthday
+   * paradox, where much fewer than anticipated birthdays are needed for a pair
+   * of them to match). Please consider carefully the implications of the
+   * number of stripes, the intended concurrency level, and the typical number
+   * of keys used in a {@code bulkGet(keys)} operation. See <a
+   * href="http://www.mathpages.com/home/kmath199.htm">Balls in Bins model</a>
+   * for mathematical formulas that can be used to estimate the probability of
+   * collisions.
+   *
+   * <p>Keys that map to the same stripe produce repeated elements in the
+   * returned list. This is harmless for reentrant locks, but a semaphore
+   * stripe that appears twice will be acquired twice if the caller acquires
+   * every element.
+   *
+   * @param keys arbitrary non-null keys
+   * @return the stripes corresponding to the objects (one per each object,
+   *     derived by delegating to {@link #get(Object)}; may contain duplicates),
+   *     in an increasing index order.
+   */
+  public Iterable<L> bulkGet(Iterable<?> keys) {
+    // Initially using the array to store the keys, then reusing it to store
+    // the respective L's
+    final Object[] array = Iterables.toArray(keys, Object.class);
+    int[] stripes = new int[array.length];
+    for (int i = 0; i < array.length; i++) {
+      stripes[i] = indexFor(array[i]);
+    }
+    Arrays.sort(stripes);
+    for (int i = 0; i < array.length; i++) {
+      array[i] = getAt(stripes[i]);
+    }
+    /*
+     * Note that the returned Iterable holds references to the returned stripes,
+     * to avoid error-prone code like:
+     *
+     * Striped<Lock> stripedLock = Striped.lazyWeakXXX(...)'
+     * Iterable<Lock> locks = stripedLock.bulkGet(keys);
+     * for (Lock lock : locks) {
+     *   lock.lock();
+     * }
+     * operation();
+     * for (Lock lock : locks) {
+     *   lock.unlock();
+     * }
+     *
+     * If we only held the int[] stripes, translating it on the fly to L's, the
+     * original locks might be garbage collected after locking them, ending up
+     * in a huge mess.
+     */
+    // we carefully replaced all keys with their respective L's
+    @SuppressWarnings("unchecked")
+    List<L> asList = (List<L>) Arrays.asList(array);
+    return Collections.unmodifiableList(asList);
+  }
+
+  // Static factories
+
+  /**
+   * Creates a {@code Striped<Lock>} with eagerly initialized, strongly
+   * referenced locks. Every lock is reentrant.
+   *
+   * @param stripes the minimum number of stripes (locks) required
+   * @return a new {@code Striped<Lock>}
+   */
+  public static Striped<Lock> lock(int stripes) {
+    return new CompactStriped<Lock>(stripes, new Supplier<Lock>() {
+      @Override public Lock get() {
+        return new PaddedLock();
+      }
+    });
+  }
+
+  /**
+   * Creates a {@code Striped<Lock>} with lazily initialized, weakly referenced
+   * locks. Every lock is reentrant.
+   *
+   * @param stripes the minimum number of stripes (locks) required
+   * @return a new {@code Striped<Lock>}
+   */
+  public static Striped<Lock> lazyWeakLock(int stripes) {
+    return new LazyStriped<Lock>(stripes, new Supplier<Lock>() {
+      @Override public Lock get() {
+        return new ReentrantLock(false);
+      }
+    });
+  }
+
+  /**
+   * Creates a {@code Striped<Semaphore>} with eagerly initialized, strongly
+   * referenced semaphores, with the specified number of permits.
+   *
+   * @param stripes the minimum number of stripes (semaphores) required
+   * @param permits the number of permits in each semaphore
+   * @return a new {@code Striped<Semaphore>}
+   */
+  public static Striped<Semaphore> semaphore(int stripes, final int permits) {
+    return new CompactStriped<Semaphore>(stripes, new Supplier<Semaphore>() {
+      @Override public Semaphore get() {
+        return new PaddedSemaphore(permits);
+      }
+    });
+  }
+
+  /**
+   * Creates a {@code Striped<Semaphore>} with lazily initialized, weakly
+   * referenced semaphores, with the specified number of permits.
+   *
+   * @param stripes the minimum number of stripes (semaphores) required
+   * @param permits the number of permits in each semaphore
+   * @return a new {@code Striped<Semaphore>}
+   */
+  public static Striped<Semaphore> lazyWeakSemaphore(
+      int stripes, final int permits) {
+    return new LazyStriped<Semaphore>(stripes, new Supplier<Semaphore>() {
+      @Override public Semaphore get() {
+        return new Semaphore(permits, false);
+      }
+    });
+  }
+
+  /**
+   * Creates a {@code Striped<ReadWriteLock>} with eagerly initialized,
+   * strongly referenced read-write locks. Every lock is reentrant.
+   *
+   * @param stripes the minimum number of stripes (locks) required
+   * @return a new {@code Striped<ReadWriteLock>}
+   */
+  public static Striped<ReadWriteLock> readWriteLock(int stripes) {
+    return new CompactStriped<ReadWriteLock>(stripes, READ_WRITE_LOCK_SUPPLIER);
+  }
+
+  /**
+   * Creates a {@code Striped<ReadWriteLock>} with lazily initialized, weakly
+   * referenced read-write locks. Every lock is reentrant.
+   *
+   * @param stripes the minimum number of stripes (locks) required
+   * @return a new {@code Striped<ReadWriteLock>}
+   */
+  public static Striped<ReadWriteLock> lazyWeakReadWriteLock(int stripes) {
+    return new LazyStriped<ReadWriteLock>(stripes, READ_WRITE_LOCK_SUPPLIER);
+  }
+
+  // ReentrantReadWriteLock is large enough to make padding probably unnecessary
+  private static final Supplier<ReadWriteLock> READ_WRITE_LOCK_SUPPLIER =
+      new Supplier<ReadWriteLock>() {
+        @Override public ReadWriteLock get() {
+          return new ReentrantReadWriteLock();
+        }
+      };
+
+  private abstract static class PowerOfTwoStriped<L> extends Striped<L> {
+    /** Capacity (power of two) minus one, for fast mod evaluation */
+    final int mask;
+
+    PowerOfTwoStriped(int stripes) {
+      checkArgument(stripes > 0, "Stripes must be positive: %s", stripes);
+      this.mask = (stripes > MAX_POWER_OF_TWO)
+          ? ALL_SET
+          : ceilToPowerOfTwo(stripes) - 1;
+    }
+
+    @Override final int indexFor(Object key) {
+      int hash = smear(key.hashCode());
+      return hash & mask;
+    }
+
+    @Override public final L get(Object key) {
+      return getAt(indexFor(key));
+    }
+  }
+
+  /**
+   * Implementation of Striped where 2^k stripes are represented as an array of
+   * the same length, eagerly initialized.
+   */
+  private static class CompactStriped<L> extends PowerOfTwoStriped<L> {
+    /** Size is a power of two. */
+    private final Object[] array;
+
+    private CompactStriped(int stripes, Supplier<L> supplier) {
+      super(stripes);
+      checkArgument(stripes <= MAX_POWER_OF_TWO, "Stripes must be <= 2^30)");
+
+      this.array = new Object[mask + 1];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = supplier.get();
+      }
+    }
+
+    @SuppressWarnings("unchecked") // we only put L's in the array
+    @Override public L getAt(int index) {
+      return (L) array[index];
+    }
+
+    @Override public int size() {
+      return array.length;
+    }
+  }
+
+  /**
+   * Implementation of Striped where up to 2^k stripes can be represented, using
+   * a weak-valued map where stripes are created on first use and collected
+   * when no longer referenced.
+   */
+  private static class LazyStriped<L> extends PowerOfTwoStriped<L> {
+    final ConcurrentMap<Integer, L> locks;
+    final Supplier<L> supplier;
+    final int size;
+
+    LazyStriped(int stripes, Supplier<L> supplier) {
+      super(stripes);
+      this.size = (mask == ALL_SET) ? Integer.MAX_VALUE : mask + 1;
+      this.supplier = supplier;
+      this.locks = new MapMaker().weakValues().makeMap();
+    }
+
+    @Override public L getAt(int index) {
+      if (size != Integer.MAX_VALUE) {
+        checkElementIndex(index, size());
+      } // else no check necessary, all index values are valid
+      L existing = locks.get(index);
+      if (existing != null) {
+        return existing;
+      }
+      L created = supplier.get();
+      existing = locks.putIfAbsent(index, created);
+      return (existing != null) ? existing : created;
+    }
+
+    @Override public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * A bit mask were all bits are set.
+   */
+  private static final int ALL_SET = ~0;
+
+  /** The largest power of two that fits in an int. */
+  private static final int MAX_POWER_OF_TWO = 1 << (Integer.SIZE - 2);
+
+  @VisibleForTesting static int ceilToPowerOfTwo(int x) {
+    return 1 << IntMath.log2(x, RoundingMode.CEILING);
+  }
+
+  /*
+   * This method was written by Doug Lea with assistance from members of JCP
+   * JSR-166 Expert Group and released to the public domain, as explained at
+   * http://creativecommons.org/licenses/publicdomain
+   *
+   * As of 2010/06/11, this method is identical to the (package private) hash
+   * method in OpenJDK 7's java.util.HashMap class.
+   */
+  // Copied from com.google.common.collect.Hashing, which is package-private
+  private static int smear(int hashCode) {
+    hashCode ^= (hashCode >>> 20) ^ (hashCode >>> 12);
+    return hashCode ^ (hashCode >>> 7) ^ (hashCode >>> 4);
+  }
+
+  /*
+   * The padded classes below add fields to each lock, spacing out the locks
+   * of a CompactStriped, which are allocated one after the other. This is
+   * only a best effort: the state that threads actually contend on lives in
+   * each lock's internal synchronizer, a separate object that the padding
+   * doesn't cover, and whose placement is up to the JVM.
+   */
+
+  @SuppressWarnings("unused")
+  private static class PaddedLock extends ReentrantLock {
+    private static final long serialVersionUID = 0L;
+
+    long q1, q2, q3;
+
+    PaddedLock() {
+      super(false);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static class PaddedSemaphore extends Semaphore {
+    private static final long serialVersionUID = 0L;
+
+    long q1, q2, q3;
+
+    PaddedSemaphore(int permits) {
+      super(permits, false);
+    }
+  }
+}
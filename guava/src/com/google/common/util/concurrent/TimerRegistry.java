@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe registry of {@link NamedTimer}s, identified by name, which
+ * share a {@link Ticker}. Looking up a timer allocates nothing once it
+ * exists, but callers on hot paths should still keep the timer in a field
+ * rather than look it up on every use.
+ *
+ * <p>When testing code that uses timers, create the registry with a fake
+ * ticker, such as {@code com.google.common.testing.FakeTicker}.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class TimerRegistry {
+  private final Ticker ticker;
+  private final ConcurrentMap<String, NamedTimer> timers =
+      new ConcurrentHashMap<String, NamedTimer>();
+
+  /** Creates a registry whose timers read {@link Ticker#systemTicker}. */
+  public TimerRegistry() {
+    this(Ticker.systemTicker());
+  }
+
+  /** Creates a registry whose timers read {@code ticker}. */
+  public TimerRegistry(Ticker ticker) {
+    this.ticker = checkNotNull(ticker);
+  }
+
+  /**
+   * Returns the timer with the given name, creating it if this registry has
+   * none yet.
+   */
+  public NamedTimer timer(String name) {
+    NamedTimer timer = timers.get(name);
+    if (timer == null) {
+      NamedTimer created = new NamedTimer(name, ticker);
+      timer = timers.putIfAbsent(name, created);
+      if (timer == null) {
+        timer = created;
+      }
+    }
+    return timer;
+  }
+
+  /**
+   * Returns a snapshot of every timer in this registry, ordered by name.
+   */
+  public ImmutableSortedMap<String, NamedTimer.Snapshot> snapshots() {
+    ImmutableSortedMap.Builder<String, NamedTimer.Snapshot> builder =
+        ImmutableSortedMap.naturalOrder();
+    for (NamedTimer timer : timers.values()) {
+      builder.put(timer.name(), timer.snapshot());
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.util.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ListeningExecutorService} that gives each of its worker threads a
+ * private task queue and lets idle workers steal work from the queues of busy
+ * ones. Tasks submitted from one of the pool's own workers (for example, the
+ * continuation of a {@link Futures#transform} chain, or the fan-out of a
+ * request graph) are enqueued on that worker's queue, so they are normally
+ * executed by the worker that produced them without touching a shared queue.
+ * Tasks submitted from other threads are spread over the worker queues in
+ * round-robin order.
+ *
+ * <p>This is similar in spirit to the JDK7 {@code ForkJoinPool}, but it is
+ * available on JDK5, has no notion of joining, and implements the full
+ * {@code ListeningExecutorService} contract, so it can be dropped in wherever
+ * a {@link MoreExecutors#listeningDecorator decorated} thread pool is used
+ * today.
+ *
+ * <p>The pool also exposes a few counters ({@link #getActiveCount}, {@link
+ * #getQueuedTaskCount}, {@link #getStealCount}, {@link
+ * #getCompletedTaskCount}) for monitoring. These are maintained per worker and
+ * summed on demand, so they add no contention to task execution; the values
+ * they return are estimates while the pool is busy.
+ *
+ * <p>Instances are created with {@link
+ * MoreExecutors#newWorkStealingExecutorService(int)}.
+ *
+ * @since 12.0
+ */
+@Beta
+public final class WorkStealingExecutorService
+    extends AbstractListeningExecutorService {
+  private static final int RUNNING = 0;
+  private static final int SHUTDOWN = 1;
+  private static final int STOP = 2;
+
+  private final Worker[] workers;
+
+  /** Identifies the worker, if any, owned by this pool on the current thread. */
+  private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+
+  /** Round-robin cursor used to place tasks submitted by outside threads. */
+  private final AtomicInteger nextQueue = new AtomicInteger();
+
+  /** Number of workers that are parked (or about to park) waiting for work. */
+  private final AtomicInteger idleWorkers = new AtomicInteger();
+
+  /**
+   * Guards parking and unparking of idle workers, and the termination state.
+   * Task submission and execution never acquire this lock while the pool is
+   * busy.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition workAvailable = lock.newCondition();
+  private final Condition termination = lock.newCondition();
+
+  private volatile int state = RUNNING;
+
+  // Guarded by lock
+  private int liveWorkers;
+
+  WorkStealingExecutorService(int parallelism, ThreadFactory threadFactory) {
+    checkArgument(parallelism > 0,
+        "parallelism must be positive: %s", parallelism);
+    checkNotNull(threadFactory);
+    workers = new Worker[parallelism];
+    for (int i = 0; i < parallelism; i++) {
+      workers[i] = new Worker(i);
+    }
+    lock.lock();
+    try {
+      for (Worker worker : workers) {
+        worker.thread = threadFactory.newThread(worker);
+        worker.thread.start();
+        liveWorkers++;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    checkNotNull(command);
+    if (state != RUNNING) {
+      throw new RejectedExecutionException("Executor already shutdown");
+    }
+    Worker worker = currentWorker.get();
+    Queue<Runnable> queue = (worker != null)
+        ? worker.queue
+        : workers[(nextQueue.getAndIncrement() & Integer.MAX_VALUE)
+            % workers.length].queue;
+    queue.add(command);
+    /*
+     * If shutdown() raced with us, the workers may already have decided that
+     * there is no more work and exited. Withdraw the task unless a worker has
+     * already taken it.
+     */
+    if (state != RUNNING && queue.remove(command)) {
+      throw new RejectedExecutionException("Executor already shutdown");
+    }
+    if (idleWorkers.get() > 0) {
+      lock.lock();
+      try {
+        workAvailable.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    lock.lock();
+    try {
+      if (state == RUNNING) {
+        state = SHUTDOWN;
+      }
+      workAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = new ArrayList<Runnable>();
+    lock.lock();
+    try {
+      state = STOP;
+      for (Worker worker : workers) {
+        Runnable task;
+        while ((task = worker.queue.poll()) != null) {
+          pending.add(task);
+        }
+        worker.thread.interrupt();
+      }
+      workAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return state != RUNNING;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    lock.lock();
+    try {
+      return state != RUNNING && liveWorkers == 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit)
+      throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      for (;;) {
+        if (isTerminated()) {
+          return true;
+        } else if (nanos <= 0) {
+          return false;
+        } else {
+          nanos = termination.awaitNanos(nanos);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of worker threads in this pool.
+   */
+  public int getParallelism() {
+    return workers.length;
+  }
+
+  /**
+   * Returns an estimate of the number of workers that are currently running a
+   * task.
+   */
+  public int getActiveCount() {
+    int count = 0;
+    for (Worker worker : workers) {
+      if (worker.active) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns an estimate of the number of tasks that have been submitted but
+   * have not yet started. This method traverses every worker queue and so is
+   * relatively expensive; it is intended for monitoring, not for flow control.
+   */
+  public long getQueuedTaskCount() {
+    long count = 0;
+    for (Worker worker : workers) {
+      count += worker.queue.size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns an estimate of the number of tasks that were executed by a worker
+   * other than the one whose queue they were placed on.
+   */
+  public long getStealCount() {
+    long count = 0;
+    for (Worker worker : workers) {
+      count += worker.steals;
+    }
+    return count;
+  }
+
+  /**
+   * Returns an estimate of the number of tasks that have finished executing,
+   * normally or abruptly.
+   */
+  public long getCompletedTaskCount() {
+    long count = 0;
+    for (Worker worker : workers) {
+      count += worker.completed;
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    String runState = (state == RUNNING) ? "Running"
+        : isTerminated() ? "Terminated" : "Shutting down";
+    return super.toString() + "[" + runState
+        + ", parallelism = " + getParallelism()
+        + ", active = " + getActiveCount()
+        + ", queued = " + getQueuedTaskCount()
+        + ", steals = " + getStealCount()
+        + ", completed = " + getCompletedTaskCount() + "]";
+  }
+
+  private boolean hasQueuedTasks() {
+    for (Worker worker : workers) {
+      if (!worker.queue.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private final class Worker implements Runnable {
+    final int index;
+    final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+    Thread thread;
+
+    // Written only by the owning worker; read by the monitoring methods.
+    volatile boolean active;
+    volatile long steals;
+    volatile long completed;
+
+    Worker(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      currentWorker.set(this);
+      try {
+        Runnable task;
+        while ((task = awaitTask()) != null) {
+          // Don't let a stray interrupt from one task leak into the next
+          if (state != STOP) {
+            Thread.interrupted();
+          }
+          active = true;
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            handleUncaught(e);
+          } catch (Error e) {
+            handleUncaught(e);
+          } finally {
+            active = false;
+            completed++;
+          }
+        }
+      } finally {
+        currentWorker.remove();
+        workerExited();
+      }
+    }
+
+    /**
+     * Polls this worker's queue, then tries to steal from the others starting
+     * with the next worker over, so that thieves spread across victims.
+     */
+    Runnable findTask() {
+      Runnable task = queue.poll();
+      if (task != null) {
+        return task;
+      }
+      for (int i = 1; i < workers.length; i++) {
+        task = workers[(index + i) % workers.length].queue.poll();
+        if (task != null) {
+          steals++;
+          return task;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the next task to run, parking while there is none, or null once
+     * this worker should exit.
+     */
+    Runnable awaitTask() {
+      for (;;) {
+        if (state == STOP) {
+          return null;
+        }
+        Runnable task = findTask();
+        if (task != null) {
+          return task;
+        }
+        lock.lock();
+        try {
+          /*
+           * We must advertise ourselves as idle before rechecking the queues:
+           * execute() enqueues before it reads idleWorkers, so either it sees
+           * us and signals, or we see its task here.
+           */
+          idleWorkers.incrementAndGet();
+          try {
+            if (state == STOP) {
+              return null;
+            }
+            if (!hasQueuedTasks()) {
+              if (state != RUNNING) {
+                return null;
+              }
+              workAvailable.await();
+            }
+          } finally {
+            idleWorkers.decrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          // Interrupts are only meaningful to the tasks; recheck the state.
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void handleUncaught(Throwable t) {
+      Thread.UncaughtExceptionHandler handler =
+          thread.getUncaughtExceptionHandler();
+      if (handler != null) {
+        handler.uncaughtException(thread, t);
+      }
+    }
+  }
+
+  private void workerExited() {
+    lock.lock();
+    try {
+      liveWorkers--;
+      // Let the other idle workers notice that the pool is draining.
+      workAvailable.signalAll();
+      if (liveWorkers == 0) {
+        termination.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}